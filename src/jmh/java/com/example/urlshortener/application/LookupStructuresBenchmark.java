@@ -0,0 +1,87 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-lookup cost of the in-memory structures on the redirect path: the redirect cache,
+ * the Bloom filter of issued short URLs and the click counter buffer.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LookupStructuresBenchmark {
+
+    private static final int KEYS = 100_000;
+
+    private String[] shortUrls;
+    private String[] unknownShortUrls;
+    private RedirectCache redirectCache;
+    private ScalableBloomFilter bloomFilter;
+    private ClickCounterBuffer clickCounterBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var generator = new HashShortCodeGenerator();
+        shortUrls = new String[KEYS];
+        unknownShortUrls = new String[KEYS];
+        redirectCache = new RedirectCache(KEYS * 2L, 0, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        bloomFilter = new ScalableBloomFilter(KEYS, 0.01);
+        for (int i = 0; i < KEYS; i++) {
+            shortUrls[i] = "short.ly/" + generator.generate("https://example.com/" + i, 0);
+            unknownShortUrls[i] = "short.ly/" + generator.generate("https://unknown.example.com/" + i, 0);
+            redirectCache.put(shortUrls[i], RedirectTarget.of(shortUrls[i], "https://example.com/" + i));
+            bloomFilter.put(shortUrls[i]);
+        }
+        // No persistence and no key limit: the buffer is never flushed during the run
+        var journal = new ClickJournal(false, null, 0, "short.ly", new SimpleMeterRegistry());
+        clickCounterBuffer = new ClickCounterBuffer(null, journal, Integer.MAX_VALUE, new SimpleMeterRegistry());
+    }
+
+    private String randomShortUrl() {
+        return shortUrls[ThreadLocalRandom.current().nextInt(KEYS)];
+    }
+
+    @Benchmark
+    public RedirectTarget redirectCacheHit() {
+        return redirectCache.get(randomShortUrl(), key -> Optional.empty());
+    }
+
+    @Benchmark
+    public boolean bloomFilterPresent() {
+        return bloomFilter.mightContain(randomShortUrl());
+    }
+
+    @Benchmark
+    public boolean bloomFilterAbsent() {
+        return bloomFilter.mightContain(unknownShortUrls[ThreadLocalRandom.current().nextInt(KEYS)]);
+    }
+
+    @Benchmark
+    public long bloomFilterHash() {
+        return ScalableBloomFilter.hash64(randomShortUrl());
+    }
+
+    @Benchmark
+    public void recordClick() {
+        clickCounterBuffer.record(randomShortUrl());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.HttpCachingPolicy;
+import com.example.urlshortener.api.ShortenerController;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.http.HttpServletResponseWrapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cache-hit redirect from the short code to the written status and {@code Location} header, including click
+ * recording and hot link tracking. Run with {@code -prof gc} (the jmh profile does) and read
+ * {@code gc.alloc.rate.norm} as bytes allocated per redirect. {@code viralLinkRedirect} sends every thread to the
+ * same short code through one shared service, the worst case for contention on the click counters.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class RedirectPathBenchmark {
+
+    private static final int KEYS = 1024;
+
+    private RecordingResponse response;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        response = new RecordingResponse();
+    }
+
+    /**
+     * The service and controller, shared by all benchmark threads as they are by request threads.
+     */
+    @State(Scope.Benchmark)
+    public static class Redirects {
+        private String[] shortCodes;
+        private ShortenerService shortenerService;
+        private HotLinkTracker hotLinkTracker;
+        private ShortenerController controller;
+
+        @Setup(Level.Trial)
+        public void setUp() {
+            var meterRegistry = new SimpleMeterRegistry();
+            var generator = new HashShortCodeGenerator();
+            var redirectCache = new RedirectCache(KEYS * 2L, 0, Duration.ofSeconds(30), meterRegistry);
+            // No persistence: every lookup is a cache hit and the click buffers are never flushed during the run
+            var clickCounterBuffer = new ClickCounterBuffer(null,
+                    new ClickJournal(false, null, 0, "short.ly", meterRegistry), Integer.MAX_VALUE, meterRegistry);
+            shortenerService = new ShortenerService(null, redirectCache, clickCounterBuffer,
+                    new ClickRollupBuffer(null, meterRegistry),
+                    new ShortCodeFilter(null, redirectCache, false, 1, 0.01, meterRegistry),
+                    new ShortCodeIndex(null, false, false, 1, meterRegistry), generator,
+                    new LinkExpiry(null, redirectCache, false, Duration.ZERO, 1000, Duration.ofHours(1), 500, 10,
+                            100_000, meterRegistry),
+                    new ShortenerMetrics(meterRegistry, generator));
+            // Slices are not rotated during the run, so every click lands in the same one, as within 10 seconds
+            hotLinkTracker = new HotLinkTracker(redirectCache, true, 1000, 10_000, 0, "1h", meterRegistry);
+            controller = new ShortenerController(shortenerService, null, null,
+                    new HttpCachingPolicy(302, Duration.ZERO, Duration.ZERO), null, hotLinkTracker);
+            shortCodes = new String[KEYS];
+            for (int i = 0; i < KEYS; i++) {
+                shortCodes[i] = generator.generate("https://example.com/" + i, 0);
+                redirectCache.put(shortCodes[i],
+                        RedirectTarget.of("short.ly/" + shortCodes[i], "https://example.com/" + i));
+                // Buffer keys and hot link counters exist, as in steady state
+                shortenerService.incrementUsedCount("short.ly/" + shortCodes[i]);
+                hotLinkTracker.record(shortCodes[i]);
+            }
+        }
+    }
+
+    private String nextShortCode(Redirects redirects) {
+        return redirects.shortCodes[next++ & (KEYS - 1)];
+    }
+
+    @Benchmark
+    public RedirectTarget resolveAndRecordClick(Redirects redirects) {
+        var shortCode = nextShortCode(redirects);
+        var target = redirects.shortenerService.resolve(shortCode);
+        redirects.shortenerService.incrementUsedCount(target.shortUrl());
+        redirects.hotLinkTracker.record(shortCode);
+        return target;
+    }
+
+    @Benchmark
+    public String controllerRedirect(Redirects redirects) {
+        redirects.controller.redirectToOriginalUrl(nextShortCode(redirects), response);
+        return response.location;
+    }
+
+    @Benchmark
+    @Threads(4)
+    public String viralLinkRedirect(Redirects redirects) {
+        redirects.controller.redirectToOriginalUrl(redirects.shortCodes[0], response);
+        return response.location;
+    }
+
+    /**
+     * Keeps the status and headers in fields, as a servlet container writes them into reused buffers.
+     */
+    private static final class RecordingResponse extends HttpServletResponseWrapper {
+        private int status;
+        private String location;
+        private String cacheControl;
+
+        RecordingResponse() {
+            super(new MockHttpServletResponse());
+        }
+
+        @Override
+        public void setStatus(int status) {
+            this.status = status;
+        }
+
+        @Override
+        public void setHeader(String name, String value) {
+            if (HttpHeaders.LOCATION.equals(name)) {
+                this.location = value;
+            } else {
+                this.cacheControl = value;
+            }
+        }
+
+        @Override
+        public int getStatus() {
+            return status;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ReplicaReads;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of producing one short code with each generator strategy.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ShortCodeGeneratorBenchmark {
+
+    @Param({"https://example.com/a", "https://example.com/some/fairly/long/path/with/segments?utm_source=newsletter&utm_medium=email&utm_campaign=spring"})
+    public String originalUrl;
+
+    private HashShortCodeGenerator hashGenerator;
+    private SequenceShortCodeGenerator sequenceGenerator;
+
+    @Setup
+    public void setUp() {
+        hashGenerator = new HashShortCodeGenerator();
+        sequenceGenerator = new SequenceShortCodeGenerator(new InMemorySequence(), new SimpleMeterRegistry());
+    }
+
+    @Benchmark
+    public String hash() {
+        return hashGenerator.generate(originalUrl, 0);
+    }
+
+    @Benchmark
+    public String hashRetry() {
+        return hashGenerator.generate(originalUrl, 1);
+    }
+
+    @Benchmark
+    public String sequence() {
+        return sequenceGenerator.generate(originalUrl, 0);
+    }
+
+    @Benchmark
+    public String base62() {
+        return SequenceShortCodeGenerator.encodeBase62(56_800_235_583L); // "zzzzzz", six characters
+    }
+
+    /**
+     * Hands out sequence blocks without a database, so only the generator itself is measured.
+     */
+    static class InMemorySequence extends ShortUrlPersistenceService {
+        private static final long BLOCK_SIZE = 1000;
+        private long next = 1;
+
+        InMemorySequence() {
+            super(null, new ReplicaReads(List.of(), Duration.ZERO), null, new SimpleMeterRegistry());
+        }
+
+        @Override
+        public long codeBlockSize() {
+            return BLOCK_SIZE;
+        }
+
+        @Override
+        public long nextCodeBlockStart() {
+            long start = next;
+            next += BLOCK_SIZE;
+            return start;
+        }
+    }
+}
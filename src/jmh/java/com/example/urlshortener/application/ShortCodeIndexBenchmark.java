@@ -0,0 +1,72 @@
+package com.example.urlshortener.application;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lookup cost of the packed short code index against the {@code HashMap<String, String>} it replaces,
+ * over a data set far larger than the CPU caches. Each lookup uses a freshly built code, as a request
+ * does, so the map pays for hashing and comparing against its stored key.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgs = "-Xmx4g")
+@State(Scope.Benchmark)
+public class ShortCodeIndexBenchmark {
+
+    private static final int KEYS = 1 << 21;
+    private static final int CODE_LENGTH = HashShortCodeGenerator.CODE_LENGTH;
+
+    @Param({"false", "true"})
+    public boolean offHeap;
+
+    private char[] shortCodes;
+    private PrimitiveUrlTable table;
+    private Map<String, String> map;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var generator = new HashShortCodeGenerator();
+        shortCodes = new char[KEYS * CODE_LENGTH];
+        table = new PrimitiveUrlTable(KEYS, offHeap);
+        map = new HashMap<>(KEYS * 2);
+        for (int i = 0; i < KEYS; i++) {
+            var originalUrl = "https://example.com/articles/" + i + "?utm_source=newsletter";
+            var shortCode = generator.generate(originalUrl, 0);
+            shortCode.getChars(0, CODE_LENGTH, shortCodes, i * CODE_LENGTH);
+            table.put(shortCode, originalUrl);
+            map.put(shortCode, originalUrl);
+        }
+    }
+
+    private String randomShortCode() {
+        return new String(shortCodes, ThreadLocalRandom.current().nextInt(KEYS) * CODE_LENGTH, CODE_LENGTH);
+    }
+
+    @Benchmark
+    public String indexGet() {
+        return table.get(randomShortCode());
+    }
+
+    @Benchmark
+    public String hashMapGet() {
+        return map.get(randomShortCode());
+    }
+}
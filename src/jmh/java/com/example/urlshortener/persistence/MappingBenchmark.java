@@ -0,0 +1,60 @@
+package com.example.urlshortener.persistence;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * DTO/entity mapping in {@link ShortUrlRepositoryAdapter} and the URL digest computed before every insert.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    private ShortUrlRepositoryAdapter adapter;
+    private ShortUrlDto dto;
+    private ShortUrlEntity entity;
+
+    @Setup
+    public void setUp() {
+        adapter = new ShortUrlRepositoryAdapter(null, null);
+        dto = new ShortUrlDto("short.ly/abc12345", "https://example.com/some/path?query=value", 3, 7);
+        entity = adapter.mapToEntity(dto);
+    }
+
+    @Benchmark
+    public ShortUrlDto mapToDomain() {
+        return adapter.mapToDomain(entity);
+    }
+
+    @Benchmark
+    public ShortUrlEntity mapToEntity() {
+        return adapter.mapToEntity(dto);
+    }
+
+    @Benchmark
+    public ShortUrlEntity mapToEntityWithDigest() {
+        var mapped = adapter.mapToEntity(dto);
+        mapped.computeOriginalUrlSha256(); // what @PrePersist adds on save
+        return mapped;
+    }
+
+    @Benchmark
+    public byte[] urlDigest() {
+        return UrlDigest.sha256(dto.getOriginalUrl());
+    }
+}
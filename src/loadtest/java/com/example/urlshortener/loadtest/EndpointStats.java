@@ -0,0 +1,52 @@
+package com.example.urlshortener.loadtest;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency histogram and error count for one endpoint; safe for concurrent recording.
+ */
+class EndpointStats {
+
+    private final Recorder recorder = new Recorder(3);
+    private final LongAdder errors = new LongAdder();
+
+    void recordSuccess(long latencyNanos) {
+        recorder.recordValue(latencyNanos);
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    /**
+     * Discards everything recorded so far, e.g. at the end of the warm-up.
+     */
+    void reset() {
+        recorder.reset();
+        errors.reset();
+    }
+
+    Result result(String endpoint, double seconds) {
+        Histogram histogram = recorder.getIntervalHistogram();
+        return new Result(endpoint,
+                histogram.getTotalCount(),
+                errors.sum(),
+                histogram.getTotalCount() / seconds,
+                toMillis(histogram.getValueAtPercentile(50)),
+                toMillis(histogram.getValueAtPercentile(99)),
+                toMillis(histogram.getValueAtPercentile(99.9)),
+                toMillis(histogram.getMaxValue()));
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    record Result(String endpoint, long requests, long errors, double throughput,
+                  double p50Ms, double p99Ms, double p999Ms, double maxMs) {
+    }
+}
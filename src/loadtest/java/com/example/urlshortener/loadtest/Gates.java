@@ -0,0 +1,68 @@
+package com.example.urlshortener.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Pass/fail checks on a run: absolute limits ({@code max-p99-ms.<endpoint>}, {@code min-rps.<endpoint>})
+ * and, when a baseline report is given, regressions beyond the tolerance in throughput or p99.
+ */
+final class Gates {
+
+    private Gates() {
+    }
+
+    static List<String> check(List<EndpointStats.Result> results, LoadTestOptions options) throws IOException {
+        var failures = new ArrayList<String>();
+        for (var result : results) {
+            if (result.requests() == 0) {
+                continue; // not part of the mix
+            }
+            var maxP99 = options.maxP99Ms().get(result.endpoint());
+            if (maxP99 != null && result.p99Ms() > maxP99) {
+                failures.add("%s p99 %.2f ms exceeds %.2f ms".formatted(result.endpoint(), result.p99Ms(), maxP99));
+            }
+            var minThroughput = options.minThroughput().get(result.endpoint());
+            if (minThroughput != null && result.throughput() < minThroughput) {
+                failures.add("%s throughput %.1f req/s is below %.1f req/s"
+                        .formatted(result.endpoint(), result.throughput(), minThroughput));
+            }
+        }
+        if (options.baseline() != null) {
+            failures.addAll(compareWithBaseline(results, options));
+        }
+        failures.forEach(failure -> System.out.println("GATE FAILED: " + failure));
+        if (failures.isEmpty()) {
+            System.out.println("All gates passed");
+        }
+        return failures;
+    }
+
+    private static List<String> compareWithBaseline(List<EndpointStats.Result> results, LoadTestOptions options)
+            throws IOException {
+        var baseline = Arrays.stream(new ObjectMapper().readValue(options.baseline().toFile(), EndpointStats.Result[].class))
+                .collect(Collectors.toMap(EndpointStats.Result::endpoint, Function.identity()));
+        var failures = new ArrayList<String>();
+        for (var result : results) {
+            var before = baseline.get(result.endpoint());
+            if (before == null || before.requests() == 0 || result.requests() == 0) {
+                continue;
+            }
+            if (result.throughput() < before.throughput() * (1 - options.tolerance())) {
+                failures.add("%s throughput regressed from %.1f to %.1f req/s"
+                        .formatted(result.endpoint(), before.throughput(), result.throughput()));
+            }
+            if (result.p99Ms() > before.p99Ms() * (1 + options.tolerance())) {
+                failures.add("%s p99 regressed from %.2f to %.2f ms"
+                        .formatted(result.endpoint(), before.p99Ms(), result.p99Ms()));
+            }
+        }
+        return failures;
+    }
+}
@@ -0,0 +1,219 @@
+package com.example.urlshortener.loadtest;
+
+import com.example.urlshortener.UrlShortenerApplication;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * End-to-end load harness: boots an embedded PostgreSQL and the application against it, shortens a
+ * seed set of URLs, then replays a weighted mix of shorten/redirect/stats requests from a fixed number
+ * of closed-loop clients. Code popularity follows a Zipf distribution. Reports throughput and
+ * p50/p99/p99.9 latency per endpoint, writes them as JSON and exits with status 1 if a gate fails.
+ */
+public class LoadTest {
+
+    static final List<String> ENDPOINTS = List.of("shorten", "redirect", "stats");
+
+    private final LoadTestOptions options;
+    private final HttpClient client = HttpClient.newBuilder().followRedirects(HttpClient.Redirect.NEVER).build();
+    private final Map<String, EndpointStats> stats = new LinkedHashMap<>();
+    private final AtomicLong newUrls = new AtomicLong();
+    private String baseUri;
+    private String prefix;
+    private List<String> seedUrls;
+    private List<String> seedCodes;
+    private ZipfDistribution popularity;
+
+    LoadTest(LoadTestOptions options) {
+        this.options = options;
+        ENDPOINTS.forEach(endpoint -> stats.put(endpoint, new EndpointStats()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        var options = LoadTestOptions.parse(args);
+        List<String> failures;
+        // Close the application before the database so the final click flush still has somewhere to go
+        try (var postgres = EmbeddedPostgres.builder().start();
+             var application = startApplication(postgres, options)) {
+            var loadTest = new LoadTest(options);
+            loadTest.baseUri = "http://localhost:" + application.getEnvironment().getProperty("local.server.port");
+            loadTest.prefix = application.getEnvironment().getProperty("shortener.prefix");
+            failures = Gates.check(loadTest.run(), options);
+        }
+        System.exit(failures.isEmpty() ? 0 : 1);
+    }
+
+    private static ConfigurableApplicationContext startApplication(EmbeddedPostgres postgres, LoadTestOptions options) {
+        var args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--spring.datasource.url=" + postgres.getJdbcUrl("postgres", "postgres"),
+                "--spring.datasource.username=postgres",
+                "--spring.datasource.password=",
+                "--spring.r2dbc.url=r2dbc:postgresql://localhost:" + postgres.getPort() + "/postgres",
+                // Per-request INFO logging would dominate the measurements
+                "--logging.level.com.example.urlshortener=WARN"));
+        if (!options.profiles().isEmpty()) {
+            args.add("--spring.profiles.active=" + options.profiles());
+        }
+        return new SpringApplicationBuilder(UrlShortenerApplication.class).run(args.toArray(String[]::new));
+    }
+
+    List<EndpointStats.Result> run() throws Exception {
+        seed();
+        var executor = Executors.newFixedThreadPool(options.concurrency());
+        try {
+            System.out.printf("Warming up for %s with %d clients%n", options.warmup(), options.concurrency());
+            drive(executor, options.warmup());
+            stats.values().forEach(EndpointStats::reset);
+            System.out.printf("Measuring for %s, mix %s%n", options.duration(), options.mix());
+            drive(executor, options.duration());
+        } finally {
+            executor.shutdownNow();
+        }
+        double seconds = options.duration().toMillis() / 1000.0;
+        var results = new ArrayList<EndpointStats.Result>();
+        stats.forEach((endpoint, endpointStats) -> results.add(endpointStats.result(endpoint, seconds)));
+        print(results);
+        writeReport(results);
+        return results;
+    }
+
+    private void seed() throws IOException, InterruptedException {
+        seedUrls = SeedUrls.load(options.seedFiles(), options.urls());
+        seedCodes = new ArrayList<>(seedUrls.size());
+        for (var url : seedUrls) {
+            var response = send(shortenRequest(url));
+            if (response.statusCode() != 200) {
+                throw new IllegalStateException("Seeding failed with HTTP " + response.statusCode() + " for " + url);
+            }
+            var body = response.body();
+            int start = body.indexOf(prefix + "/") + prefix.length() + 1;
+            seedCodes.add(body.substring(start, body.indexOf('"', start)));
+        }
+        // Decouple popularity from insertion order
+        var random = new Random(options.randomSeed());
+        Collections.shuffle(seedCodes, random);
+        Collections.shuffle(seedUrls, random);
+        popularity = new ZipfDistribution(seedCodes.size(), options.zipfExponent());
+        System.out.printf("Seeded %d short URLs%n", seedCodes.size());
+    }
+
+    private void drive(ExecutorService executor, Duration duration) throws InterruptedException {
+        long deadline = System.nanoTime() + duration.toNanos();
+        var clients = new ArrayList<Future<?>>();
+        for (int i = 0; i < options.concurrency(); i++) {
+            var random = new Random(options.randomSeed() * 31 + i);
+            clients.add(executor.submit(() -> {
+                while (System.nanoTime() < deadline) {
+                    issue(pickEndpoint(random), random);
+                }
+            }));
+        }
+        for (var client : clients) {
+            try {
+                client.get(duration.toMillis() + TimeUnit.MINUTES.toMillis(1), TimeUnit.MILLISECONDS);
+            } catch (Exception e) {
+                throw new IllegalStateException("Load client failed", e);
+            }
+        }
+    }
+
+    private String pickEndpoint(Random random) {
+        int total = options.mix().values().stream().mapToInt(Integer::intValue).sum();
+        int roll = random.nextInt(total);
+        for (var weight : options.mix().entrySet()) {
+            roll -= weight.getValue();
+            if (roll < 0) {
+                return weight.getKey();
+            }
+        }
+        throw new IllegalStateException("Empty mix");
+    }
+
+    private void issue(String endpoint, Random random) {
+        HttpRequest request;
+        int expectedStatus;
+        switch (endpoint) {
+            case "shorten" -> {
+                var url = random.nextDouble() < options.newUrlRatio()
+                        ? "https://loadtest.example.com/" + newUrls.incrementAndGet()
+                        : seedUrls.get(popularity.sample(random));
+                request = shortenRequest(url);
+                expectedStatus = 200;
+            }
+            case "redirect" -> {
+                request = HttpRequest.newBuilder(URI.create(baseUri + "/" + prefix + "/" + seedCodes.get(popularity.sample(random))))
+                        .GET().build();
+                expectedStatus = 302;
+            }
+            default -> {
+                request = HttpRequest.newBuilder(URI.create(baseUri + "/stats/" + prefix + "/" + seedCodes.get(popularity.sample(random))))
+                        .GET().build();
+                expectedStatus = 200;
+            }
+        }
+        var endpointStats = stats.get(endpoint);
+        long start = System.nanoTime();
+        try {
+            var response = send(request);
+            if (response.statusCode() == expectedStatus) {
+                endpointStats.recordSuccess(System.nanoTime() - start);
+            } else {
+                endpointStats.recordError();
+            }
+        } catch (IOException e) {
+            endpointStats.recordError();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private HttpRequest shortenRequest(String url) {
+        return HttpRequest.newBuilder(URI.create(baseUri + "/shorten"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"url\":\"" + url.replace("\"", "\\\"") + "\"}"))
+                .build();
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static void print(List<EndpointStats.Result> results) {
+        System.out.printf("%-10s %10s %8s %10s %9s %9s %9s %9s%n",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (var r : results) {
+            System.out.printf("%-10s %10d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    r.endpoint(), r.requests(), r.errors(), r.throughput(), r.p50Ms(), r.p99Ms(), r.p999Ms(), r.maxMs());
+        }
+    }
+
+    private void writeReport(List<EndpointStats.Result> results) throws IOException {
+        var report = options.report().toAbsolutePath();
+        Files.createDirectories(report.getParent());
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(report.toFile(), results);
+        System.out.println("Report written to " + report);
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.urlshortener.loadtest;
+
+import org.springframework.boot.convert.DurationStyle;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Harness settings parsed from {@code key=value} arguments; see the README for the full list.
+ */
+record LoadTestOptions(Duration warmup,
+                       Duration duration,
+                       int concurrency,
+                       Map<String, Integer> mix,
+                       int urls,
+                       double zipfExponent,
+                       double newUrlRatio,
+                       List<Path> seedFiles,
+                       long randomSeed,
+                       String profiles,
+                       Path report,
+                       Path baseline,
+                       double tolerance,
+                       Map<String, Double> maxP99Ms,
+                       Map<String, Double> minThroughput) {
+
+    // Named sets of arguments; explicit arguments override the scenario's
+    private static final Map<String, Map<String, String>> SCENARIOS = Map.of(
+            "mixed", Map.of(),
+            // The same few URLs shortened over and over, i.e. the upsert's conflict path
+            "repeated-shorten", Map.of("mix", "shorten:100", "new-url-ratio", "0", "urls", "16", "zipf", "0"));
+
+    static LoadTestOptions parse(String[] args) {
+        var values = new HashMap<String, String>();
+        for (var arg : args) {
+            if (arg.startsWith("scenario=")) {
+                var scenario = SCENARIOS.get(arg.substring("scenario=".length()));
+                if (scenario == null) {
+                    throw new IllegalArgumentException("Unknown scenario " + arg + ", expected one of "
+                            + SCENARIOS.keySet());
+                }
+                values.putAll(scenario);
+            }
+        }
+        for (var arg : args) {
+            int separator = arg.indexOf('=');
+            if (separator <= 0) {
+                throw new IllegalArgumentException("Expected key=value but got: " + arg);
+            }
+            values.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        var maxP99Ms = new HashMap<String, Double>();
+        var minThroughput = new HashMap<String, Double>();
+        values.forEach((key, value) -> {
+            if (key.startsWith("max-p99-ms.")) {
+                maxP99Ms.put(key.substring("max-p99-ms.".length()), Double.parseDouble(value));
+            } else if (key.startsWith("min-rps.")) {
+                minThroughput.put(key.substring("min-rps.".length()), Double.parseDouble(value));
+            }
+        });
+        return new LoadTestOptions(
+                DurationStyle.detectAndParse(values.getOrDefault("warmup", "10s")),
+                DurationStyle.detectAndParse(values.getOrDefault("duration", "30s")),
+                Integer.parseInt(values.getOrDefault("concurrency", "32")),
+                parseMix(values.getOrDefault("mix", "shorten:10,redirect:85,stats:5")),
+                Integer.parseInt(values.getOrDefault("urls", "10000")),
+                Double.parseDouble(values.getOrDefault("zipf", "1.1")),
+                Double.parseDouble(values.getOrDefault("new-url-ratio", "0.5")),
+                values.containsKey("seed")
+                        ? Arrays.stream(values.get("seed").split(",")).map(Path::of).toList()
+                        : List.of(),
+                Long.parseLong(values.getOrDefault("random-seed", "42")),
+                values.getOrDefault("profiles", ""),
+                Path.of(values.getOrDefault("report", "target/loadtest-report.json")),
+                values.containsKey("baseline") ? Path.of(values.get("baseline")) : null,
+                Double.parseDouble(values.getOrDefault("tolerance", "0.10")),
+                maxP99Ms,
+                minThroughput);
+    }
+
+    private static Map<String, Integer> parseMix(String mix) {
+        var weights = new LinkedHashMap<String, Integer>();
+        for (var part : mix.split(",")) {
+            var weight = part.split(":");
+            if (!LoadTest.ENDPOINTS.contains(weight[0])) {
+                throw new IllegalArgumentException("Unknown endpoint in mix: " + weight[0]);
+            }
+            weights.put(weight[0], Integer.parseInt(weight[1]));
+        }
+        return weights;
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.urlshortener.loadtest;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Builds the set of URLs to shorten before the run: every http(s) URL found in the seed files
+ * (e.g. requests.http or an NDJSON file), topped up with synthetic URLs to reach the requested count.
+ */
+final class SeedUrls {
+
+    private static final Pattern URL = Pattern.compile("https?://[^\\s\"'<>\\\\]+");
+
+    private SeedUrls() {
+    }
+
+    static List<String> load(List<Path> seedFiles, int count) throws IOException {
+        var urls = new LinkedHashSet<String>();
+        for (var file : seedFiles) {
+            var matcher = URL.matcher(Files.readString(file));
+            while (matcher.find() && urls.size() < count) {
+                var url = matcher.group();
+                if (!url.contains("localhost")) {
+                    urls.add(url);
+                }
+            }
+        }
+        for (int i = 0; urls.size() < count; i++) {
+            urls.add("https://example.com/seed/" + i);
+        }
+        return new ArrayList<>(urls);
+    }
+}
@@ -0,0 +1,65 @@
+package com.example.urlshortener;
+
+import com.example.urlshortener.persistence.RoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.annotation.Profile;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read replica wiring, active once {@code shortener.datasource.replica-urls} is set. The primary pool is
+ * built from {@code spring.datasource.*} as Boot would build it, each replica gets its own pool with the same
+ * credentials, and the {@link RoutingDataSource} in front of them becomes the DataSource that JPA, Flyway and
+ * the JdbcTemplate use. Not available with the reactive profile, whose lookups go through R2DBC instead.
+ */
+@Configuration(proxyBeanMethods = false)
+@Profile("!reactive")
+@ConditionalOnProperty("shortener.datasource.replica-urls")
+public class ReplicaRoutingConfiguration {
+
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties dataSourceProperties) {
+        return dataSourceProperties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+    }
+
+    @Bean
+    @Primary
+    public RoutingDataSource routingDataSource(HikariDataSource primaryDataSource,
+                                               DataSourceProperties dataSourceProperties,
+                                               @Value("${shortener.datasource.replica-urls}") List<String> replicaUrls,
+                                               @Value("${shortener.datasource.replica-pool-size:10}") int poolSize,
+                                               @Value("${shortener.datasource.replica-max-lag:10s}") Duration maxLag,
+                                               @Value("${shortener.datasource.replica-connection-timeout:2s}") Duration connectionTimeout,
+                                               MeterRegistry meterRegistry) {
+        var replicas = new ArrayList<DataSource>();
+        for (int i = 0; i < replicaUrls.size(); i++) {
+            var replica = new HikariDataSource();
+            replica.setPoolName("replica-" + i);
+            replica.setJdbcUrl(replicaUrls.get(i));
+            replica.setUsername(dataSourceProperties.determineUsername());
+            replica.setPassword(dataSourceProperties.determinePassword());
+            replica.setMaximumPoolSize(poolSize);
+            replica.setReadOnly(true);
+            // A replica that cannot hand out a connection quickly is skipped in favour of the next one
+            replica.setConnectionTimeout(connectionTimeout.toMillis());
+            // Do not fail startup when a replica is down; the health check keeps it out of rotation
+            replica.setInitializationFailTimeout(-1);
+            replica.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(replica);
+        }
+        return new RoutingDataSource(primaryDataSource, replicas, maxLag, meterRegistry);
+    }
+}
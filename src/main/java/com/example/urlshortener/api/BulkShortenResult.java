@@ -0,0 +1,41 @@
+package com.example.urlshortener.api;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonValue;
+
+/**
+ * One NDJSON line of the {@code POST /shorten/batch} response.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record BulkShortenResult(String originalUrl, String shortUrl, Status status, String error) {
+
+    public static BulkShortenResult created(ShortUrlDto shortUrl) {
+        return new BulkShortenResult(shortUrl.getOriginalUrl(), shortUrl.getShortUrl(), Status.CREATED, null);
+    }
+
+    public static BulkShortenResult existing(ShortUrlDto shortUrl) {
+        return new BulkShortenResult(shortUrl.getOriginalUrl(), shortUrl.getShortUrl(), Status.EXISTING, null);
+    }
+
+    /**
+     * A URL that was not shortened; the error is the fixed reason of the status, never an exception message.
+     */
+    public static BulkShortenResult failed(String originalUrl, Status status) {
+        return new BulkShortenResult(originalUrl, null, status, status.reason);
+    }
+
+    public enum Status {
+        CREATED(null), EXISTING(null), INVALID("Invalid URL"), FAILED("Failed to shorten URL");
+
+        private final String reason;
+
+        Status(String reason) {
+            this.reason = reason;
+        }
+
+        @JsonValue
+        public String toJson() {
+            return name().toLowerCase();
+        }
+    }
+}
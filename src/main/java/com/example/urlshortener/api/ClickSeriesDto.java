@@ -0,0 +1,13 @@
+package com.example.urlshortener.api;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Click counts of one short URL per time bucket, oldest first.
+ */
+public record ClickSeriesDto(String shortUrl, String granularity, List<Point> points) {
+
+    public record Point(Instant start, long clicks) {
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.urlshortener.api;
+
+import com.example.urlshortener.application.RedirectTarget;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+/**
+ * HTTP caching of the redirect and stats responses, so that repeat traffic can be absorbed by browsers and CDNs.
+ * A redirect uses its link's status and max-age override when it has one and the configured defaults otherwise;
+ * the default header values are built once, so serving a redirect still allocates nothing. Stats responses carry
+ * the row version as their ETag, which lets conditional requests be answered with 304 without rendering a body.
+ */
+@Component
+public class HttpCachingPolicy {
+
+    private final int redirectStatus;
+    private final String redirectCacheControl;
+    private final CacheControl statsCacheControl;
+
+    public HttpCachingPolicy(@Value("${shortener.redirect.status:302}") int redirectStatus,
+                             @Value("${shortener.redirect.cache-max-age:0s}") Duration redirectMaxAge,
+                             @Value("${shortener.stats.cache-max-age:0s}") Duration statsMaxAge) {
+        if (!isRedirectStatus(redirectStatus)) {
+            throw new IllegalArgumentException(
+                    "shortener.redirect.status must be 301, 302, 307 or 308, was " + redirectStatus);
+        }
+        this.redirectStatus = redirectStatus;
+        this.redirectCacheControl = RedirectTarget.cacheControl(redirectMaxAge.toSeconds());
+        // no-cache lets caches keep the body but revalidate it with If-None-Match every time
+        this.statsCacheControl = statsMaxAge.isZero()
+                ? CacheControl.noCache()
+                : CacheControl.maxAge(statsMaxAge).cachePublic();
+    }
+
+    public static boolean isRedirectStatus(int status) {
+        return status == 301 || status == 302 || status == 307 || status == 308;
+    }
+
+    public int redirectStatus(RedirectTarget target) {
+        return target.status() != 0 ? target.status() : redirectStatus;
+    }
+
+    public String redirectCacheControl(RedirectTarget target) {
+        return target.cacheControl() != null ? target.cacheControl() : redirectCacheControl;
+    }
+
+    public CacheControl statsCacheControl() {
+        return statsCacheControl;
+    }
+
+    /**
+     * Every statement that changes a row bumps its version, so equal versions mean equal stats.
+     */
+    public static String statsETag(ShortUrlDto stats) {
+        return "\"" + stats.getVersion() + "\"";
+    }
+}
@@ -0,0 +1,105 @@
+package com.example.urlshortener.api;
+
+import com.example.urlshortener.application.HotLinkTracker;
+import com.example.urlshortener.application.ReactiveShortenerService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.validation.Valid;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+/**
+ * WebFlux variant of {@link ShortenerController} with the same shorten, redirect and stats contract,
+ * served on the Netty event loop when the reactive profile is active. Batch shortening is not exposed here.
+ */
+@RestController
+@Profile("reactive")
+@Tag(name = "URL Shortener", description = "Endpoints for shortening and resolving URLs")
+public class ReactiveShortenerController {
+    private final ReactiveShortenerService shortenerService;
+    private final HttpCachingPolicy cachingPolicy;
+    private final HotLinkTracker hotLinkTracker;
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+    private static final Logger log = LogManager.getLogger(ReactiveShortenerController.class);
+
+    public ReactiveShortenerController(ReactiveShortenerService shortenerService, HttpCachingPolicy cachingPolicy,
+                                       HotLinkTracker hotLinkTracker) {
+        this.shortenerService = shortenerService;
+        this.cachingPolicy = cachingPolicy;
+        this.hotLinkTracker = hotLinkTracker;
+    }
+
+    @Operation(summary = "Shorten a URL", description = "Returns a shortened version of the original URL")
+    @PostMapping("/shorten")
+    public Mono<ResponseEntity<ShortUrlDto>> shortenUrl(@RequestBody @Valid Mono<ShortenerController.RequestBodyDto> originalUrl) {
+        return originalUrl
+                .flatMap(request -> shortenerService.shortenUrl(request.getUrl(), request.getRedirectStatus(),
+                        request.getCacheMaxAge(), request.getExpiresAt()))
+                .map(response -> ResponseEntity.ok().body(response));
+    }
+
+    @Operation(summary = "Redirect short URL",
+            description = "Redirects to the original long URL; answers 410 for a link that has expired")
+    @GetMapping("/${shortener.prefix}/{shortCode}")
+    public Mono<ResponseEntity<Void>> redirectToOriginalUrl(@PathVariable String shortCode) {
+        return shortenerService.resolve(shortCode)
+                .map(target -> {
+                    if (target.isExpired(System.currentTimeMillis())) {
+                        // Expired but not purged yet; not counted as a click
+                        return ResponseEntity.status(HttpStatus.GONE).<Void>build();
+                    }
+                    shortenerService.incrementUsedCount(target.shortUrl());
+                    hotLinkTracker.record(shortCode);
+                    return ResponseEntity.status(cachingPolicy.redirectStatus(target))
+                            .header(HttpHeaders.LOCATION, target.location())
+                            .header(HttpHeaders.CACHE_CONTROL, cachingPolicy.redirectCacheControl(target))
+                            .<Void>build();
+                })
+                .switchIfEmpty(Mono.fromSupplier(() -> {
+                    log.debug("Short code not found: {}", shortCode);
+                    return ResponseEntity.notFound().build();
+                }));
+    }
+
+    @Operation(summary = "Get usage stats",
+            description = "Returns statistics for a shortened URL; answers If-None-Match with 304 while they are unchanged")
+    @GetMapping("/stats/${shortener.prefix}/{shortCode}")
+    public Mono<ResponseEntity<ShortUrlDto>> getStatistics(@PathVariable String shortCode) {
+        return shortenerService.getStatistics(baseUrl + "/" + shortCode)
+                .map(stats -> ResponseEntity.ok()
+                        .eTag(HttpCachingPolicy.statsETag(stats))
+                        .cacheControl(cachingPolicy.statsCacheControl())
+                        .body(stats))
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @Operation(summary = "Get the most clicked links",
+            description = "Returns the approximate most clicked links of the last minute, hour or day from memory, "
+                    + "without touching the database")
+    @GetMapping("/stats/top")
+    public Mono<ResponseEntity<TopLinksDto>> getTopLinks(@RequestParam(defaultValue = "1h") String window,
+                                                         @RequestParam(defaultValue = "10") int limit) {
+        try {
+            var hotLinks = hotLinkTracker.top(HotLinkTracker.Window.of(window), limit);
+            return Mono.just(ResponseEntity.ok()
+                    .cacheControl(cachingPolicy.statsCacheControl())
+                    .body(TopLinksDto.of(window, hotLinks, baseUrl)));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid top links request: {}", e.getMessage());
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+    }
+}
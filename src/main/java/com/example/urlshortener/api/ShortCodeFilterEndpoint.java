@@ -0,0 +1,32 @@
+package com.example.urlshortener.api;
+
+import com.example.urlshortener.application.ShortCodeFilter;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+
+/**
+ * Actuator endpoint ({@code /actuator/shortcodefilter}) exposing the short code Bloom filter:
+ * GET returns size, fill ratio and expected false-positive rate, POST triggers a rebuild from the database.
+ */
+@Component
+@Endpoint(id = "shortcodefilter")
+public class ShortCodeFilterEndpoint {
+    private final ShortCodeFilter shortCodeFilter;
+
+    public ShortCodeFilterEndpoint(ShortCodeFilter shortCodeFilter) {
+        this.shortCodeFilter = shortCodeFilter;
+    }
+
+    @ReadOperation
+    public ShortCodeFilter.Stats stats() {
+        return shortCodeFilter.stats();
+    }
+
+    @WriteOperation
+    public ShortCodeFilter.Stats rebuild() {
+        shortCodeFilter.rebuild();
+        return shortCodeFilter.stats();
+    }
+}
@@ -1,8 +1,12 @@
 package com.example.urlshortener.api;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 
+import java.time.Instant;
+
 @Data
 @AllArgsConstructor
 public class ShortUrlDto {
@@ -10,4 +14,37 @@ public class ShortUrlDto {
     private String originalUrl;
     private int requestCount;
     private int usedCount;
+    // Per-link redirect policy; null means the configured default
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer redirectStatus;
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Integer cacheMaxAge;
+    // Row version, sent as the stats ETag
+    @JsonIgnore
+    private long version;
+    // Null for a link that never expires
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Instant expiresAt;
+
+    public ShortUrlDto(String shortUrl, String originalUrl, int requestCount, int usedCount) {
+        this(shortUrl, originalUrl, requestCount, usedCount, null, null, 0, null);
+    }
+
+    public ShortUrlDto(String shortUrl, String originalUrl, int requestCount, int usedCount,
+                       Integer redirectStatus, Integer cacheMaxAge, long version) {
+        this(shortUrl, originalUrl, requestCount, usedCount, redirectStatus, cacheMaxAge, version, null);
+    }
+
+    @JsonIgnore
+    public boolean hasRedirectOverride() {
+        return redirectStatus != null || cacheMaxAge != null;
+    }
+
+    /**
+     * True if the original URL alone describes the redirect: no policy override and no expiry.
+     */
+    @JsonIgnore
+    public boolean isPlainRedirect() {
+        return !hasRedirectOverride() && expiresAt == null;
+    }
 }
@@ -1,66 +1,196 @@
 package com.example.urlshortener.api;
 
+import com.example.urlshortener.application.BulkShortenerService;
+import com.example.urlshortener.application.ClickAnalyticsService;
+import com.example.urlshortener.application.HotLinkTracker;
+import com.example.urlshortener.application.ShortUrlExporter;
 import com.example.urlshortener.application.ShortenerService;
+import com.example.urlshortener.persistence.ClickGranularity;
+import com.example.urlshortener.persistence.ExportQuery;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import jakarta.validation.constraints.AssertTrue;
+import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.PositiveOrZero;
 import lombok.Data;
 import org.hibernate.validator.constraints.URL;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+
 @RestController
+@Profile("!reactive")
 @Tag(name = "URL Shortener", description = "Endpoints for shortening and resolving URLs")
 public class ShortenerController {
     private final ShortenerService shortenerService;
+    private final BulkShortenerService bulkShortenerService;
+    private final ClickAnalyticsService clickAnalyticsService;
+    private final HttpCachingPolicy cachingPolicy;
+    private final ShortUrlExporter shortUrlExporter;
+    private final HotLinkTracker hotLinkTracker;
     @Value("${shortener.prefix}")
     private String baseUrl = "short.ly";
     private static final Logger log = LogManager.getLogger(ShortenerController.class);
 
-    public ShortenerController(ShortenerService shortenerService) {
+    public ShortenerController(ShortenerService shortenerService, BulkShortenerService bulkShortenerService,
+                               ClickAnalyticsService clickAnalyticsService, HttpCachingPolicy cachingPolicy,
+                               ShortUrlExporter shortUrlExporter, HotLinkTracker hotLinkTracker) {
         this.shortenerService = shortenerService;
+        this.bulkShortenerService = bulkShortenerService;
+        this.clickAnalyticsService = clickAnalyticsService;
+        this.cachingPolicy = cachingPolicy;
+        this.shortUrlExporter = shortUrlExporter;
+        this.hotLinkTracker = hotLinkTracker;
     }
 
     @Operation(summary = "Shorten a URL", description = "Returns a shortened version of the original URL")
     @PostMapping("/shorten")
     public ResponseEntity<ShortUrlDto> shortenUrl(@RequestBody @Valid RequestBodyDto originalUrl) {
-       var response = shortenerService.shortenUrl(originalUrl.url);
+       var response = shortenerService.shortenUrl(originalUrl.url, originalUrl.redirectStatus,
+               originalUrl.cacheMaxAge, originalUrl.expiresAt);
        return ResponseEntity.ok().body(response);
     }
 
-    @Operation(summary = "Redirect short URL", description = "Redirects to the original long URL")
-    @GetMapping("/${shortener.prefix}/{shortCode}")
-    public ResponseEntity<Void> redirectToOriginalUrl(@PathVariable String shortCode) {
-        var originalUrl = shortenerService.getOriginalUrl(baseUrl + "/" + shortCode);
+    @Operation(summary = "Shorten a batch of URLs",
+            description = "Accepts a JSON array or NDJSON stream of URLs and streams one NDJSON result per URL")
+    @PostMapping(value = "/shorten/batch",
+            consumes = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE},
+            produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> shortenBatch(HttpServletRequest request) {
+        StreamingResponseBody body = output -> bulkShortenerService.shortenAll(request.getInputStream(), output);
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .body(body);
+    }
 
-        if (originalUrl.isEmpty()) {
-            log.warn("Short code not found: {}", shortCode);
-            return ResponseEntity.notFound().build();
+    @Operation(summary = "Redirect short URL",
+            description = "Redirects to the original long URL; answers 410 for a link that has expired")
+    @GetMapping("/${shortener.prefix}/{shortCode}")
+    public void redirectToOriginalUrl(@PathVariable String shortCode, HttpServletResponse response) {
+        // Written straight to the servlet response: no ResponseEntity or HttpHeaders per redirect
+        var target = shortenerService.resolve(shortCode);
+        if (target == null) {
+            log.debug("Short code not found: {}", shortCode);
+            response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+            return;
+        }
+        if (target.isExpired(System.currentTimeMillis())) {
+            // Expired but not purged yet; not counted as a click
+            response.setStatus(HttpServletResponse.SC_GONE);
+            return;
         }
-        shortenerService.incrementUsedCount(shortCode);
-        return ResponseEntity.status(302)
-                .header("Location", originalUrl.get())
-                .build();
+        shortenerService.incrementUsedCount(target.shortUrl());
+        hotLinkTracker.record(shortCode);
+        response.setStatus(cachingPolicy.redirectStatus(target));
+        response.setHeader(HttpHeaders.LOCATION, target.location());
+        response.setHeader(HttpHeaders.CACHE_CONTROL, cachingPolicy.redirectCacheControl(target));
     }
 
-    @Operation(summary = "Get usage stats", description = "Returns statistics for a shortened URL")
+    @Operation(summary = "Get usage stats",
+            description = "Returns statistics for a shortened URL; answers If-None-Match with 304 while they are unchanged")
     @GetMapping("/stats/${shortener.prefix}/{shortCode}")
     public ResponseEntity<ShortUrlDto> getStatistics(@PathVariable String shortCode) {
         var stats = shortenerService.getStatistics(baseUrl + "/" + shortCode);
         if (stats == null) {
             return ResponseEntity.notFound().build();
         }
-        return ResponseEntity.ok().body(stats);
+        // A matching If-None-Match turns this into a 304 before the body is written
+        return ResponseEntity.ok()
+                .eTag(HttpCachingPolicy.statsETag(stats))
+                .cacheControl(cachingPolicy.statsCacheControl())
+                .body(stats);
+    }
+
+    @Operation(summary = "Get the most clicked links",
+            description = "Returns the approximate most clicked links of the last minute, hour or day from memory, "
+                    + "without touching the database")
+    @GetMapping("/stats/top")
+    public ResponseEntity<TopLinksDto> getTopLinks(@RequestParam(defaultValue = "1h") String window,
+                                                   @RequestParam(defaultValue = "10") int limit) {
+        try {
+            var hotLinks = hotLinkTracker.top(HotLinkTracker.Window.of(window), limit);
+            return ResponseEntity.ok()
+                    .cacheControl(cachingPolicy.statsCacheControl())
+                    .body(TopLinksDto.of(window, hotLinks, baseUrl));
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid top links request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Get clicks over time",
+            description = "Returns clicks per minute, hour or day for a shortened URL; defaults to the last 24 hours")
+    @GetMapping("/stats/${shortener.prefix}/{shortCode}/clicks")
+    public ResponseEntity<ClickSeriesDto> getClickSeries(@PathVariable String shortCode,
+                                                         @RequestParam(defaultValue = "hour") String granularity,
+                                                         @RequestParam(required = false) Instant from,
+                                                         @RequestParam(required = false) Instant to) {
+        var target = shortenerService.resolve(shortCode);
+        if (target == null) {
+            return ResponseEntity.notFound().build();
+        }
+        var end = to != null ? to : Instant.now();
+        var start = from != null ? from : end.minus(Duration.ofHours(24));
+        try {
+            var series = clickAnalyticsService.clickSeries(target.shortUrl(),
+                    ClickGranularity.valueOf(granularity.toUpperCase()), start, end);
+            return ResponseEntity.ok().body(series);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid click series request for {}: {}", shortCode, e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @Operation(summary = "Export all links",
+            description = "Streams every link with its counts as NDJSON or CSV in id order, optionally limited to a "
+                    + "created_at range; an interrupted export is resumed with after=<last id received>")
+    @GetMapping(value = "/export", produces = {MediaType.APPLICATION_NDJSON_VALUE, "text/csv"})
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(defaultValue = "ndjson") String format,
+                                                        @RequestParam(defaultValue = "0") long after,
+                                                        @RequestParam(required = false) Instant createdFrom,
+                                                        @RequestParam(required = false) Instant createdTo,
+                                                        @RequestParam(defaultValue = "0") long limit) {
+        ShortUrlExporter.Format exportFormat;
+        ExportQuery query;
+        try {
+            exportFormat = ShortUrlExporter.Format.valueOf(format.toUpperCase());
+            query = new ExportQuery(after, createdFrom, createdTo, limit);
+        } catch (IllegalArgumentException e) {
+            log.warn("Invalid export request: {}", e.getMessage());
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = output -> shortUrlExporter.export(exportFormat, query, output);
+        var csv = exportFormat == ShortUrlExporter.Format.CSV;
+        return ResponseEntity.ok()
+                .contentType(csv ? new MediaType("text", "csv", StandardCharsets.UTF_8) : MediaType.APPLICATION_NDJSON)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename(csv ? "short-urls.csv" : "short-urls.ndjson")
+                        .build()
+                        .toString())
+                .body(body);
     }
 
     @Schema(description = "Request to shorten a URL")
@@ -69,6 +199,23 @@ public class ShortenerController {
         @NotBlank
         @URL
         String url;
+
+        @Schema(description = "Redirect status of a new link: 301, 302, 307 or 308; defaults to shortener.redirect.status")
+        Integer redirectStatus;
+
+        @PositiveOrZero
+        @Schema(description = "Seconds browsers and CDNs may cache the redirect of a new link; 0 disables caching")
+        Integer cacheMaxAge;
+
+        @Future
+        @Schema(description = "When a new link expires; defaults to now plus shortener.expiry.default-ttl, if set")
+        Instant expiresAt;
+
+        @JsonIgnore
+        @AssertTrue(message = "redirectStatus must be 301, 302, 307 or 308")
+        public boolean isRedirectStatusSupported() {
+            return redirectStatus == null || HttpCachingPolicy.isRedirectStatus(redirectStatus);
+        }
     }
 }
 
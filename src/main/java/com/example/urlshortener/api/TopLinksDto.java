@@ -0,0 +1,21 @@
+package com.example.urlshortener.api;
+
+import com.example.urlshortener.application.HotLinkTracker;
+
+import java.util.List;
+
+/**
+ * The most clicked short URLs of a window, most clicked first. Clicks are estimates that exceed the real count
+ * by at most {@code error}.
+ */
+public record TopLinksDto(String window, List<Link> links) {
+
+    public record Link(String shortUrl, long clicks, long error) {
+    }
+
+    public static TopLinksDto of(String window, List<HotLinkTracker.HotLink> hotLinks, String baseUrl) {
+        return new TopLinksDto(window, hotLinks.stream()
+                .map(hotLink -> new Link(baseUrl + "/" + hotLink.shortCode(), hotLink.clicks(), hotLink.error()))
+                .toList());
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.urlshortener.api;
+
+import com.example.urlshortener.application.UrlImporter;
+import org.springframework.boot.actuate.endpoint.InvalidEndpointRequestException;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+
+/**
+ * Actuator endpoint ({@code /actuator/urlimport}) for bulk imports of server-side files: POST with {@code file} and
+ * optionally {@code restart} starts or resumes an import, GET returns the progress of the current or last one.
+ */
+@Component
+@Endpoint(id = "urlimport")
+public class UrlImportEndpoint {
+    private final UrlImporter urlImporter;
+
+    public UrlImportEndpoint(UrlImporter urlImporter) {
+        this.urlImporter = urlImporter;
+    }
+
+    @ReadOperation
+    public UrlImporter.Progress progress() {
+        return urlImporter.progress();
+    }
+
+    @WriteOperation
+    public UrlImporter.Progress start(String file, @Nullable Boolean restart) {
+        try {
+            return urlImporter.start(Path.of(file), Boolean.TRUE.equals(restart));
+        } catch (IllegalArgumentException e) {
+            throw new InvalidEndpointRequestException(e.getMessage(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.BulkShortenResult;
+import com.example.urlshortener.api.ShortUrlDto;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Shortens large batches of URLs read from a JSON array or NDJSON stream.
+ * Input is processed in chunks: already shortened URLs are resolved with one bulk update, codes for
+ * the rest are generated in parallel and inserted with a single {@code INSERT ... ON CONFLICT DO NOTHING},
+ * and each chunk's results are written as NDJSON lines as soon as its statements have committed,
+ * so neither the request nor the response is ever held in memory as a whole.
+ */
+@Component
+public class BulkShortenerService {
+
+    private static final Logger log = LogManager.getLogger(BulkShortenerService.class);
+    private static final int MAX_RETRIES = 5;
+    private static final byte[] NEWLINE = {'\n'};
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ShortCodeFilter shortCodeFilter;
+    private final RedirectCache redirectCache;
+    private final ShortCodeIndex shortCodeIndex;
+    private final LinkExpiry linkExpiry;
+    private final ObjectMapper objectMapper;
+    private final int chunkSize;
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+
+    public BulkShortenerService(ShortUrlPersistenceService shortUrlPersistenceService,
+                                ShortCodeGenerator shortCodeGenerator,
+                                ShortCodeFilter shortCodeFilter,
+                                RedirectCache redirectCache,
+                                ShortCodeIndex shortCodeIndex,
+                                LinkExpiry linkExpiry,
+                                ObjectMapper objectMapper,
+                                @Value("${shortener.batch.chunk-size:1000}") int chunkSize) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.shortCodeFilter = shortCodeFilter;
+        this.redirectCache = redirectCache;
+        this.shortCodeIndex = shortCodeIndex;
+        this.linkExpiry = linkExpiry;
+        this.objectMapper = objectMapper;
+        this.chunkSize = chunkSize;
+    }
+
+    /**
+     * Reads URLs from {@code input} and writes one NDJSON result line per URL to {@code output}, in input order.
+     * Each input element may be a JSON string or an object with a {@code url} field; a top-level array
+     * and newline-delimited values are both accepted.
+     */
+    public void shortenAll(InputStream input, OutputStream output) throws IOException {
+        try (var values = objectMapper.readerFor(JsonNode.class).<JsonNode>readValues(input)) {
+            var chunk = new ArrayList<String>(chunkSize);
+            while (values.hasNextValue()) {
+                chunk.add(extractUrl(values.nextValue()));
+                if (chunk.size() == chunkSize) {
+                    writeResults(shortenChunk(chunk), output);
+                    chunk.clear();
+                }
+            }
+            if (!chunk.isEmpty()) {
+                writeResults(shortenChunk(chunk), output);
+            }
+        }
+    }
+
+    List<BulkShortenResult> shortenChunk(List<String> urls) {
+        var resolved = new HashMap<String, BulkShortenResult>();
+        var valid = new LinkedHashSet<String>();
+        for (var url : urls) {
+            if (isValidUrl(url)) {
+                valid.add(url);
+            } else {
+                resolved.put(url, BulkShortenResult.failed(url, BulkShortenResult.Status.INVALID));
+            }
+        }
+        try {
+            resolveAll(valid, resolved);
+        } catch (RuntimeException e) {
+            log.warn("Failed to shorten a chunk of {} URLs", valid.size(), e);
+            for (var url : valid) {
+                resolved.putIfAbsent(url, BulkShortenResult.failed(url, BulkShortenResult.Status.FAILED));
+            }
+        }
+        var results = new ArrayList<BulkShortenResult>(urls.size());
+        for (var url : urls) {
+            results.add(resolved.get(url));
+        }
+        return results;
+    }
+
+    private void resolveAll(Set<String> urls, Map<String, BulkShortenResult> resolved) {
+        var pending = new LinkedHashSet<>(urls);
+        for (int attempt = 0; attempt < MAX_RETRIES && !pending.isEmpty(); attempt++) {
+            // URLs that already exist, including ones inserted concurrently since the last attempt
+            for (var existing : shortUrlPersistenceService.incrementRequestCounts(pending)) {
+                pending.remove(existing.getOriginalUrl());
+                resolved.put(existing.getOriginalUrl(), BulkShortenResult.existing(existing));
+            }
+            if (pending.isEmpty()) {
+                break;
+            }
+            for (var created : shortUrlPersistenceService.insertAllIgnoringConflicts(generate(pending, attempt))) {
+                pending.remove(created.getOriginalUrl());
+                shortCodeFilter.add(created.getShortUrl());
+                var shortCode = created.getShortUrl().substring(baseUrl.length() + 1);
+                redirectCache.put(shortCode, RedirectTarget.of(created));
+                if (created.isPlainRedirect()) {
+                    shortCodeIndex.put(shortCode, created.getOriginalUrl());
+                }
+                linkExpiry.schedule(created.getShortUrl(), created.getExpiresAt());
+                resolved.put(created.getOriginalUrl(), BulkShortenResult.created(created));
+            }
+            // Whatever is left either lost a race for its URL or collided on the short code; retry both
+        }
+        for (var url : pending) {
+            log.warn("Failed to generate unique short URL after retries: {}", url);
+            resolved.put(url, BulkShortenResult.failed(url, BulkShortenResult.Status.FAILED));
+        }
+    }
+
+    private List<ShortUrlDto> generate(Set<String> urls, int attempt) {
+        // Batch links get the default time to live, if any
+        var expiresAt = linkExpiry.expiresAt(null);
+        return urls.parallelStream()
+                .map(url -> new ShortUrlDto(baseUrl + "/" + shortCodeGenerator.generate(url, attempt), url, 1, 0,
+                        null, null, 0, expiresAt))
+                .toList();
+    }
+
+    private void writeResults(List<BulkShortenResult> results, OutputStream output) throws IOException {
+        for (var result : results) {
+            output.write(objectMapper.writeValueAsBytes(result));
+            output.write(NEWLINE);
+        }
+        output.flush();
+    }
+
+    private static String extractUrl(JsonNode value) {
+        if (value.isTextual()) {
+            return value.asText();
+        }
+        var url = value.get("url");
+        return url != null && url.isTextual() ? url.asText() : "";
+    }
+
+    static boolean isValidUrl(String url) {
+        try {
+            var uri = new URI(url);
+            return uri.getHost() != null
+                    && ("http".equalsIgnoreCase(uri.getScheme()) || "https".equalsIgnoreCase(uri.getScheme()));
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ClickSeriesDto;
+import com.example.urlshortener.persistence.ClickGranularity;
+import com.example.urlshortener.persistence.ClickRollupRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+
+/**
+ * Downsamples minute click rollups into hour and day buckets, enforces per-granularity retention
+ * and serves click time series. Rolling up recomputes whole buckets, so each run simply
+ * rebuilds the buckets that may still be changing.
+ */
+@Component
+public class ClickAnalyticsService {
+
+    private static final Logger log = LogManager.getLogger(ClickAnalyticsService.class);
+
+    private final ClickRollupRepository clickRollupRepository;
+    private final Clock clock;
+    private final Duration minuteRetention;
+    private final Duration hourRetention;
+    private final Duration dayRetention;
+    private final int maxPoints;
+    private final Timer rollupTimer;
+    private final Counter rollupFailures;
+
+    @Autowired
+    public ClickAnalyticsService(ClickRollupRepository clickRollupRepository,
+                                 @Value("${shortener.analytics.retention.minute:2d}") Duration minuteRetention,
+                                 @Value("${shortener.analytics.retention.hour:30d}") Duration hourRetention,
+                                 @Value("${shortener.analytics.retention.day:400d}") Duration dayRetention,
+                                 @Value("${shortener.analytics.max-points:10000}") int maxPoints,
+                                 MeterRegistry meterRegistry) {
+        this(clickRollupRepository, Clock.systemUTC(), minuteRetention, hourRetention, dayRetention, maxPoints,
+                meterRegistry);
+    }
+
+    ClickAnalyticsService(ClickRollupRepository clickRollupRepository, Clock clock, Duration minuteRetention,
+                          Duration hourRetention, Duration dayRetention, int maxPoints, MeterRegistry meterRegistry) {
+        this.clickRollupRepository = clickRollupRepository;
+        this.clock = clock;
+        this.minuteRetention = minuteRetention;
+        this.hourRetention = hourRetention;
+        this.dayRetention = dayRetention;
+        this.maxPoints = maxPoints;
+        this.rollupTimer = Timer.builder("shortener.analytics.rollup")
+                .description("Time spent downsampling click rollups and applying retention")
+                .register(meterRegistry);
+        this.rollupFailures = Counter.builder("shortener.analytics.rollup.failures")
+                .description("Click rollup maintenance runs that failed")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the current and previous hour and day buckets, then deletes rows past their retention.
+     * The previous bucket is included because minute flushes for it may arrive after it has ended.
+     */
+    @Scheduled(fixedDelayString = "${shortener.analytics.rollup-interval-ms:300000}")
+    public void rollUp() {
+        try {
+            rollupTimer.record(this::rollUpAndExpire);
+        } catch (RuntimeException e) {
+            log.warn("Click rollup maintenance failed", e);
+            rollupFailures.increment();
+        }
+    }
+
+    private void rollUpAndExpire() {
+        var now = clock.instant();
+        var hour = ClickGranularity.HOUR.bucketStart(now);
+        var day = ClickGranularity.DAY.bucketStart(now);
+        int hours = clickRollupRepository.rollUp(ClickGranularity.MINUTE, ClickGranularity.HOUR,
+                hour.minus(ClickGranularity.HOUR.bucketSize()), hour.plus(ClickGranularity.HOUR.bucketSize()));
+        int days = clickRollupRepository.rollUp(ClickGranularity.HOUR, ClickGranularity.DAY,
+                day.minus(ClickGranularity.DAY.bucketSize()), day.plus(ClickGranularity.DAY.bucketSize()));
+        int expired = clickRollupRepository.deleteOlderThan(ClickGranularity.MINUTE, now.minus(minuteRetention))
+                + clickRollupRepository.deleteOlderThan(ClickGranularity.HOUR, now.minus(hourRetention))
+                + clickRollupRepository.deleteOlderThan(ClickGranularity.DAY, now.minus(dayRetention));
+        log.debug("Rolled up {} hour and {} day buckets, expired {} rows", hours, days, expired);
+    }
+
+    /**
+     * Clicks per bucket for every bucket overlapping [from, to); buckets without clicks are reported as zero. Minute counts lag by up to one buffer flush and coarser ones by one rollup interval.
+     *
+     * @throws IllegalArgumentException if the range is empty or has more than the configured maximum of points
+     */
+    public ClickSeriesDto clickSeries(String shortUrl, ClickGranularity granularity, Instant from, Instant to) {
+        if (!to.isAfter(from)) {
+            throw new IllegalArgumentException("'from' must be before 'to'");
+        }
+        var start = granularity.bucketStart(from);
+        var end = granularity.bucketStart(to);
+        if (end.isBefore(to)) {
+            end = end.plus(granularity.bucketSize()); // include the bucket containing 'to'
+        }
+        long points = Duration.between(start, end).dividedBy(granularity.bucketSize());
+        if (points > maxPoints) {
+            throw new IllegalArgumentException("Range covers " + points + " points, at most " + maxPoints
+                    + " are allowed; use a coarser granularity");
+        }
+        var stored = clickRollupRepository.findSeries(shortUrl, granularity, start, end);
+        var series = new ArrayList<ClickSeriesDto.Point>((int) points);
+        for (var bucket = start; bucket.isBefore(end); bucket = bucket.plus(granularity.bucketSize())) {
+            series.add(new ClickSeriesDto.Point(bucket, stored.getOrDefault(bucket, 0L)));
+        }
+        return new ClickSeriesDto(shortUrl, granularity.name().toLowerCase(), series);
+    }
+}
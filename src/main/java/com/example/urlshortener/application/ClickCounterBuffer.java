@@ -0,0 +1,237 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Write-behind buffer for redirect counts.
+ * Each redirect only increments a striped in-memory counter; dirty counters are periodically
+ * flushed as one batched {@code used_count = used_count + n} update per short URL.
+ * Counters are drained with {@link LongAdder#sumThenReset()}, so increments racing with a flush
+ * are carried over to the next one instead of being lost. When the {@link ClickJournal} is enabled every
+ * click is also journaled locally, and journal segments are only deleted once their clicks have been
+ * flushed, so buffered clicks survive a crash.
+ * <p>
+ * Once more than {@code shortener.clicks.max-buffered-keys} short URLs have been added since the last drain, one
+ * early flush is scheduled; further clicks do not schedule another until it has finished.
+ */
+@Component
+public class ClickCounterBuffer {
+
+    private static final Logger log = LogManager.getLogger(ClickCounterBuffer.class);
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final ClickJournal clickJournal;
+    private final int maxBufferedKeys;
+    private final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+    // Keys added to counters since the last drain; counters kept from earlier drains hold no pending counts
+    private final AtomicInteger pendingKeys = new AtomicInteger();
+    private final AtomicBoolean earlyFlushScheduled = new AtomicBoolean();
+    // Counters removed after an idle interval; drained once more on the next flush to catch late increments
+    private List<Map.Entry<String, LongAdder>> retired = new ArrayList<>();
+    // Journal segments whose clicks are part of the counters but have not been flushed yet
+    private final List<Path> unflushedSegments = new ArrayList<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final ExecutorService earlyFlushExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        var thread = new Thread(runnable, "click-counter-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Timer flushTimer;
+    private final Counter flushedClicks;
+    private final Counter flushedKeys;
+    private final Counter flushFailures;
+    private final Counter replayedClicks;
+
+    public ClickCounterBuffer(ShortUrlPersistenceService shortUrlPersistenceService,
+                              ClickJournal clickJournal,
+                              @Value("${shortener.clicks.max-buffered-keys:50000}") int maxBufferedKeys,
+                              MeterRegistry meterRegistry) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.clickJournal = clickJournal;
+        this.maxBufferedKeys = maxBufferedKeys;
+        this.flushTimer = Timer.builder("shortener.clicks.flush")
+                .description("Time spent writing buffered click counts to the database")
+                .register(meterRegistry);
+        this.flushedClicks = Counter.builder("shortener.clicks.flushed")
+                .description("Clicks written to the database")
+                .register(meterRegistry);
+        this.flushedKeys = Counter.builder("shortener.clicks.flushed.keys")
+                .description("Short URL rows updated by click flushes")
+                .register(meterRegistry);
+        this.flushFailures = Counter.builder("shortener.clicks.flush.failures")
+                .description("Click flushes that failed and were re-buffered")
+                .register(meterRegistry);
+        this.replayedClicks = Counter.builder("shortener.clicks.journal.replayed")
+                .description("Clicks replayed from journal segments of a previous run")
+                .register(meterRegistry);
+        Gauge.builder("shortener.clicks.buffered.keys", counters, Map::size)
+                .description("Short URLs with a counter in the click buffer")
+                .register(meterRegistry);
+    }
+
+    public void record(String shortUrl) {
+        var counter = counters.get(shortUrl);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(shortUrl, key -> {
+                pendingKeys.incrementAndGet();
+                return new LongAdder();
+            });
+        }
+        counter.increment();
+        // Journaled after counting: a segment sealed by a flush only holds clicks that flush has drained
+        clickJournal.append(shortUrl);
+        if (pendingKeys.get() > maxBufferedKeys && !flushLock.isLocked()
+                && earlyFlushScheduled.compareAndSet(false, true)) {
+            scheduleEarlyFlush();
+        }
+    }
+
+    private void scheduleEarlyFlush() {
+        try {
+            earlyFlushExecutor.execute(() -> {
+                try {
+                    flush();
+                } finally {
+                    earlyFlushScheduled.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            earlyFlushScheduled.set(false); // shutting down; the shutdown flush writes the counts
+        }
+    }
+
+    /**
+     * Applies clicks journaled by a previous run that did not get to flush them.
+     * If the database is unavailable the segments are kept and replay is retried on every flush.
+     */
+    @PostConstruct
+    public void replayJournal() {
+        flushLock.lock();
+        try {
+            replayRecoveredSegments();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void replayRecoveredSegments() {
+        var segments = clickJournal.recoveredSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
+        try {
+            var clicks = clickJournal.read(segments);
+            if (!clicks.isEmpty()) {
+                shortUrlPersistenceService.addUsedCounts(clicks);
+            }
+            clickJournal.delete(segments);
+            long total = clicks.values().stream().mapToLong(Long::longValue).sum();
+            replayedClicks.increment(total);
+            log.info("Replayed {} clicks for {} short URLs from {} journal segments",
+                    total, clicks.size(), segments.size());
+        } catch (RuntimeException e) {
+            log.warn("Failed to replay {} click journal segments, retrying on the next flush", segments.size(), e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.clicks.flush-interval-ms:5000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return; // a flush is already running
+        }
+        try {
+            writeBufferedCounts();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        earlyFlushExecutor.shutdown();
+        flushLock.lock();
+        try {
+            writeBufferedCounts();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBufferedCounts() {
+        replayRecoveredSegments();
+        // Rotate before draining, so every click in the sealed segments is part of this or an earlier drain
+        unflushedSegments.addAll(clickJournal.rotate());
+        var increments = drain();
+        if (increments.isEmpty()) {
+            deleteFlushedSegments();
+            return;
+        }
+        try {
+            flushTimer.record(() -> shortUrlPersistenceService.addUsedCounts(increments));
+            deleteFlushedSegments();
+            flushedKeys.increment(increments.size());
+            flushedClicks.increment(increments.values().stream().mapToLong(Long::longValue).sum());
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} click counters, keeping them buffered", increments.size(), e);
+            flushFailures.increment();
+            increments.forEach((shortUrl, count) ->
+                    counters.computeIfAbsent(shortUrl, key -> new LongAdder()).add(count));
+        }
+    }
+
+    private void deleteFlushedSegments() {
+        clickJournal.delete(unflushedSegments);
+        unflushedSegments.clear();
+    }
+
+    private Map<String, Long> drain() {
+        var increments = new HashMap<String, Long>();
+        pendingKeys.set(0);
+        for (var entry : retired) {
+            addIfPositive(increments, entry.getKey(), entry.getValue().sumThenReset());
+        }
+        var idle = new ArrayList<Map.Entry<String, LongAdder>>();
+        for (var entry : counters.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                addIfPositive(increments, entry.getKey(), count);
+            } else if (counters.remove(entry.getKey(), entry.getValue())) {
+                idle.add(Map.entry(entry.getKey(), entry.getValue()));
+            }
+        }
+        retired = idle;
+        return increments;
+    }
+
+    private static void addIfPositive(Map<String, Long> increments, String shortUrl, long count) {
+        if (count > 0) {
+            increments.merge(shortUrl, count, Long::sum);
+        }
+    }
+}
@@ -0,0 +1,368 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Local append-only journal of redirects, so that clicks held by {@link ClickCounterBuffer} survive a crash.
+ * Clicks are written as fixed-size records into memory-mapped segment files, sized up front so that appends
+ * never remap, and forced to disk on a fixed cadence: a process crash loses nothing, an OS crash at most
+ * the last fsync interval.
+ * The buffer rotates the journal before each flush and deletes the sealed segments once the flush has
+ * committed; segments left behind by a previous process are replayed on startup. Replay may count a
+ * click twice if the process died between a flush and the deletion, never zero times. A journal holds an
+ * exclusive lock on {@value #LOCK_FILE} in its directory, so a directory in use by another process fails startup
+ * instead of having its live segments replayed twice.
+ * <p>
+ * Record layout (64 bytes, little endian): int length of the short code (written last, 0 = empty slot),
+ * int CRC32C of the remaining bytes, long epoch millis, 48 bytes UTF-8 short code. Only the code is stored, so
+ * that any well-formed code fits whatever {@code shortener.prefix} is; the prefix is added back on replay.
+ * Records of older journals hold the whole short URL and are replayed as they are.
+ */
+@Component
+public class ClickJournal {
+
+    private static final Logger log = LogManager.getLogger(ClickJournal.class);
+
+    static final int RECORD_SIZE = 64;
+    static final int MAX_CODE_BYTES = RECORD_SIZE - 16;
+    private static final String SEGMENT_PREFIX = "clicks-";
+    private static final String SEGMENT_SUFFIX = ".journal";
+    static final String LOCK_FILE = "journal.lock";
+    private static final VarHandle INT_HANDLE =
+            MethodHandles.byteBufferViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final int segmentRecords;
+    private final String prefix;
+    private final Clock clock;
+    private final AtomicLong segmentSequence = new AtomicLong();
+    // Segments written by this process that are no longer appended to but not yet handed out by rotate()
+    private final List<Segment> closed = new CopyOnWriteArrayList<>();
+    // Segments of a previous process, to be replayed before they can be deleted
+    private final List<Path> recovered = new CopyOnWriteArrayList<>();
+    private volatile Segment current;
+    private FileChannel lockChannel;
+
+    private final Counter skipped;
+    private final Counter corrupt;
+    private final Timer fsyncTimer;
+
+    @Autowired
+    public ClickJournal(@Value("${shortener.clicks.journal.enabled:false}") boolean enabled,
+                        @Value("${shortener.clicks.journal.directory:click-journal}") Path directory,
+                        @Value("${shortener.clicks.journal.segment-records:262144}") int segmentRecords,
+                        @Value("${shortener.prefix}") String prefix,
+                        MeterRegistry meterRegistry) {
+        this(enabled, directory, segmentRecords, prefix, Clock.systemUTC(), meterRegistry);
+    }
+
+    ClickJournal(boolean enabled, Path directory, int segmentRecords, String prefix, Clock clock,
+                 MeterRegistry meterRegistry) {
+        if (enabled && ShortCodeGenerator.MAX_CODE_LENGTH > MAX_CODE_BYTES) {
+            throw new IllegalStateException("Click journal records hold " + MAX_CODE_BYTES
+                    + " bytes of short code, but codes may have " + ShortCodeGenerator.MAX_CODE_LENGTH);
+        }
+        this.enabled = enabled;
+        this.directory = directory;
+        this.segmentRecords = segmentRecords;
+        this.prefix = prefix + "/";
+        this.clock = clock;
+        this.skipped = Counter.builder("shortener.clicks.journal.skipped")
+                .description("Clicks not journaled because the short code does not fit into a record")
+                .register(meterRegistry);
+        this.corrupt = Counter.builder("shortener.clicks.journal.corrupt")
+                .description("Journal records skipped on replay because of a checksum mismatch")
+                .register(meterRegistry);
+        this.fsyncTimer = Timer.builder("shortener.clicks.journal.fsync")
+                .description("Time spent forcing journal segments to disk")
+                .register(meterRegistry);
+        Gauge.builder("shortener.clicks.journal.segments", this, journal -> journal.segmentCount())
+                .description("Journal segment files on disk")
+                .register(meterRegistry);
+        if (enabled) {
+            open();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    private void open() {
+        try {
+            Files.createDirectories(directory);
+            lock();
+            try (Stream<Path> files = Files.list(directory)) {
+                files.filter(ClickJournal::isSegment).sorted().forEach(recovered::add);
+            }
+            if (!recovered.isEmpty()) {
+                log.info("Found {} click journal segments from a previous run", recovered.size());
+                // Restarted within the millisecond of a recovered segment: number the new ones after it
+                segmentSequence.set(recovered.stream().mapToLong(ClickJournal::sequenceOf).max().getAsLong() + 1);
+            }
+            current = newSegment();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open click journal in " + directory, e);
+        }
+    }
+
+    /**
+     * Appends one click. Lock-free unless the current segment is full and a new one has to be created.
+     * Short URLs without the configured prefix or with a code longer than a record holds, which the redirect path
+     * never produces, are counted as skipped.
+     */
+    public void append(String shortUrl) {
+        if (!enabled) {
+            return;
+        }
+        var bytes = shortUrl.startsWith(prefix)
+                ? shortUrl.substring(prefix.length()).getBytes(StandardCharsets.UTF_8)
+                : null;
+        if (bytes == null || bytes.length == 0 || bytes.length > MAX_CODE_BYTES) {
+            skipped.increment();
+            return;
+        }
+        long timestamp = clock.millis();
+        while (true) {
+            var segment = current;
+            int slot = segment.nextSlot.getAndIncrement();
+            if (slot < segmentRecords) {
+                segment.write(slot, timestamp, bytes);
+                return;
+            }
+            roll(segment);
+        }
+    }
+
+    private synchronized void roll(Segment full) {
+        if (current != full) {
+            return; // another thread already rolled
+        }
+        closed.add(full);
+        current = newSegment();
+    }
+
+    /**
+     * Seals the current segment if it holds any clicks and returns all sealed segments of this process.
+     * Every click appended before this call is in one of the returned segments.
+     */
+    public synchronized List<Path> rotate() {
+        if (!enabled) {
+            return List.of();
+        }
+        if (current.nextSlot.get() > 0) {
+            closed.add(current);
+            current = newSegment();
+        }
+        var sealed = new ArrayList<Segment>(closed);
+        closed.removeAll(sealed);
+        sealed.forEach(Segment::force);
+        return sealed.stream().map(segment -> segment.path).toList();
+    }
+
+    /**
+     * Segments left behind by a previous process, oldest first.
+     */
+    public List<Path> recoveredSegments() {
+        return List.copyOf(recovered);
+    }
+
+    /**
+     * Sums the clicks per short URL recorded in the given segments, skipping empty slots and torn records.
+     */
+    public Map<String, Long> read(List<Path> segments) {
+        var clicks = new HashMap<String, Long>();
+        var record = new byte[RECORD_SIZE];
+        var checksum = new CRC32C();
+        for (var path : segments) {
+            try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                var buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                        .order(ByteOrder.LITTLE_ENDIAN);
+                for (int offset = 0; offset + RECORD_SIZE <= buffer.limit(); offset += RECORD_SIZE) {
+                    int length = buffer.getInt(offset);
+                    if (length == 0) {
+                        continue; // never written, or the writer died before committing it
+                    }
+                    buffer.get(offset, record);
+                    checksum.reset();
+                    checksum.update(record, 8, RECORD_SIZE - 8);
+                    if (length > MAX_CODE_BYTES || buffer.getInt(offset + 4) != (int) checksum.getValue()) {
+                        corrupt.increment();
+                        continue;
+                    }
+                    var value = new String(record, 16, length, StandardCharsets.UTF_8);
+                    // Records of older journals hold the whole short URL
+                    clicks.merge(value.indexOf('/') >= 0 ? value : prefix + value, 1L, Long::sum);
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException("Failed to read click journal segment " + path, e);
+            }
+        }
+        return clicks;
+    }
+
+    /**
+     * Deletes segments whose clicks have been applied to the database.
+     */
+    public void delete(List<Path> segments) {
+        for (var path : segments) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("Failed to delete click journal segment {}", path, e);
+            }
+        }
+        recovered.removeAll(segments);
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.clicks.journal.fsync-interval-ms:1000}")
+    public void force() {
+        var segment = current;
+        if (enabled && segment.nextSlot.get() > 0) {
+            fsyncTimer.record(segment::force);
+            closed.forEach(Segment::force);
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (!enabled) {
+            return;
+        }
+        force();
+        if (current.nextSlot.get() == 0) {
+            delete(List.of(current.path));
+        }
+        try {
+            lockChannel.close(); // releases the lock
+        } catch (IOException e) {
+            log.warn("Failed to release click journal lock in {}", directory, e);
+        }
+    }
+
+    /**
+     * Takes the directory's lock for the lifetime of this journal; segments of a live process must never be
+     * recovered.
+     */
+    private void lock() throws IOException {
+        lockChannel = FileChannel.open(directory.resolve(LOCK_FILE), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE);
+        FileLock lock;
+        try {
+            lock = lockChannel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            lock = null; // held by another journal of this JVM
+        }
+        if (lock == null) {
+            lockChannel.close();
+            throw new IllegalStateException("Click journal directory " + directory
+                    + " is in use by another process; give each instance its own shortener.clicks.journal.directory");
+        }
+    }
+
+    private int segmentCount() {
+        if (!enabled) {
+            return 0;
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            return (int) files.filter(ClickJournal::isSegment).count();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private Segment newSegment() {
+        // Zero-padded so that lexicographic order is creation order, also across restarts
+        var name = String.format("%s%013d-%06d%s", SEGMENT_PREFIX, clock.millis(),
+                segmentSequence.getAndIncrement() % 1_000_000, SEGMENT_SUFFIX);
+        var path = directory.resolve(name);
+        try (var channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            var buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, (long) segmentRecords * RECORD_SIZE);
+            return new Segment(path, buffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to create click journal segment " + path, e);
+        }
+    }
+
+    private static long sequenceOf(Path segment) {
+        var name = segment.getFileName().toString();
+        var sequence = name.substring(name.lastIndexOf('-') + 1, name.length() - SEGMENT_SUFFIX.length());
+        try {
+            return Long.parseLong(sequence);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private static boolean isSegment(Path path) {
+        var name = path.getFileName().toString();
+        return name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX);
+    }
+
+    private static final class Segment {
+        private final Path path;
+        private final MappedByteBuffer buffer;
+        private final AtomicInteger nextSlot = new AtomicInteger();
+
+        private Segment(Path path, MappedByteBuffer buffer) {
+            this.path = path;
+            this.buffer = buffer;
+            buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        private void write(int slot, long timestamp, byte[] shortUrl) {
+            var record = new byte[RECORD_SIZE - 8];
+            for (int i = 0; i < Long.BYTES; i++) {
+                record[i] = (byte) (timestamp >>> (8 * i));
+            }
+            System.arraycopy(shortUrl, 0, record, 8, shortUrl.length);
+            var checksum = new CRC32C();
+            checksum.update(record);
+            int offset = slot * RECORD_SIZE;
+            buffer.put(offset + 8, record);
+            buffer.putInt(offset + 4, (int) checksum.getValue());
+            // The length is the commit marker: published only after the rest of the record
+            INT_HANDLE.setRelease(buffer, offset, shortUrl.length);
+        }
+
+        private void force() {
+            buffer.force();
+        }
+    }
+}
@@ -0,0 +1,158 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ClickRollupRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * In-memory per-minute click aggregation feeding the {@code click_rollups} table.
+ * A redirect only increments a counter in the window of the current minute; the scheduled flush
+ * adds the drained counts to the minute rows. Windows of past minutes are drained on two consecutive
+ * flushes so that increments racing with the minute rollover are not lost.
+ */
+@Component
+public class ClickRollupBuffer {
+
+    private static final Logger log = LogManager.getLogger(ClickRollupBuffer.class);
+    private static final long MILLIS_PER_MINUTE = 60_000;
+
+    private final ClickRollupRepository clickRollupRepository;
+    private final Clock clock;
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Counter flushFailures;
+    private volatile Window current;
+    // Windows of past minutes that have not been drained since they were replaced
+    private final Queue<Window> sealed = new ConcurrentLinkedQueue<>();
+    // Drained past windows, drained once more on the next flush to catch increments that raced with the rollover
+    private List<Window> retired = new ArrayList<>();
+
+    @Autowired
+    public ClickRollupBuffer(ClickRollupRepository clickRollupRepository, MeterRegistry meterRegistry) {
+        this(clickRollupRepository, Clock.systemUTC(), meterRegistry);
+    }
+
+    ClickRollupBuffer(ClickRollupRepository clickRollupRepository, Clock clock, MeterRegistry meterRegistry) {
+        this.clickRollupRepository = clickRollupRepository;
+        this.clock = clock;
+        this.current = new Window(clock.millis() / MILLIS_PER_MINUTE);
+        this.flushFailures = Counter.builder("shortener.analytics.flush.failures")
+                .description("Click rollup flushes that failed and were kept for the next attempt")
+                .register(meterRegistry);
+    }
+
+    public void record(String shortUrl) {
+        var counts = windowFor(clock.millis() / MILLIS_PER_MINUTE).counts;
+        var counter = counts.get(shortUrl);
+        if (counter == null) {
+            counter = counts.computeIfAbsent(shortUrl, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    private Window windowFor(long minute) {
+        var window = current;
+        if (window.minute == minute) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            if (window.minute < minute) {
+                sealed.add(window);
+                window = new Window(minute);
+                current = window;
+            }
+            return window;
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.analytics.flush-interval-ms:10000}")
+    public void flush() {
+        if (!flushLock.tryLock()) {
+            return;
+        }
+        try {
+            writeBufferedClicks();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flushLock.lock();
+        try {
+            writeBufferedClicks();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void writeBufferedClicks() {
+        var stillRetired = new ArrayList<Window>();
+        for (var window : retired) {
+            if (!write(window)) {
+                stillRetired.add(window);
+            }
+        }
+        Window window;
+        while ((window = sealed.poll()) != null) {
+            write(window);
+            stillRetired.add(window);
+        }
+        write(current);
+        retired = stillRetired;
+    }
+
+    /**
+     * Drains and persists one window's counts; returns false if they could not be written and were restored.
+     */
+    private boolean write(Window window) {
+        var clicks = new HashMap<String, Long>();
+        for (var entry : window.counts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                clicks.put(entry.getKey(), count);
+            }
+        }
+        if (clicks.isEmpty()) {
+            return true;
+        }
+        try {
+            clickRollupRepository.addMinuteClicks(Instant.ofEpochMilli(window.minute * MILLIS_PER_MINUTE), clicks);
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush {} click rollups for minute {}, keeping them buffered", clicks.size(),
+                    Instant.ofEpochMilli(window.minute * MILLIS_PER_MINUTE), e);
+            flushFailures.increment();
+            clicks.forEach((shortUrl, count) -> window.counts.computeIfAbsent(shortUrl, key -> new LongAdder()).add(count));
+            return false;
+        }
+    }
+
+    private static final class Window {
+        private final long minute;
+        private final Map<String, LongAdder> counts = new ConcurrentHashMap<>();
+
+        private Window(long minute) {
+            this.minute = minute;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.urlshortener.application;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+
+/**
+ * Derives the code from the SHA-256 hash of the URL, Base64url-encoded and truncated to 8 characters.
+ * Codes are deterministic per URL; on collision the attempt number is appended to the hashed input.
+ */
+@Component
+@ConditionalOnProperty(name = "shortener.code-generator", havingValue = "hash", matchIfMissing = true)
+public class HashShortCodeGenerator implements ShortCodeGenerator {
+
+    static final int CODE_LENGTH = 8;
+
+    @Override
+    public String name() {
+        return "hash";
+    }
+
+    @Override
+    public String generate(String originalUrl, int attempt) {
+        var input = (attempt == 0) ? originalUrl : originalUrl + attempt;
+        byte[] hash = sha256().digest(input.getBytes(StandardCharsets.UTF_8));
+        return Base64.getUrlEncoder()
+                .withoutPadding()
+                .encodeToString(hash)
+                .substring(0, CODE_LENGTH);
+    }
+
+    @Override
+    public boolean isCollisionFree() {
+        return false;
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Approximate top clicked short codes over the last minute, hour and day, in constant memory and without the
+ * database. Within the current {@value #SLICE_MILLIS} ms slice, a redirect increments a {@link LongAdder} per
+ * short code, lock-free and without allocating once the code has been seen in the slice, so a viral link does
+ * not serialize its redirects on a lock. Codes first seen after {@code shortener.hot-links.max-slice-keys}
+ * others go to striped {@link SpaceSaving} counters instead, which bounds the slice's memory.
+ * <p>
+ * When the slice ends, both are merged into one {@link SpaceSaving} summary of {@code shortener.hot-links.capacity}
+ * codes, which is added to the current bucket of each {@link Window}; each bucket keeps only its {@code capacity}
+ * highest counts. A window is the sum of its buckets plus the running slice, so it covers its length to within one
+ * bucket. Increments that race with the end of a slice are picked up when the next slice ends.
+ * <p>
+ * Counts are upper bounds; {@link HotLink#error()} is how much a count may be overestimated. With
+ * {@code shortener.hot-links.pin} set, the hottest codes of {@code pin-window} are pinned in the
+ * {@link RedirectCache} after every slice, so eviction never sends them to the database.
+ */
+@Component
+public class HotLinkTracker {
+
+    static final long SLICE_MILLIS = 10_000;
+    private static final int STRIPES = 16;
+
+    public enum Window {
+        MINUTE("1m", Duration.ofMinutes(1), 6),
+        HOUR("1h", Duration.ofHours(1), 12),
+        DAY("24h", Duration.ofDays(1), 24);
+
+        private final String label;
+        private final long bucketMillis;
+        private final int buckets;
+
+        Window(String label, Duration length, int buckets) {
+            this.label = label;
+            this.bucketMillis = length.toMillis() / buckets;
+            this.buckets = buckets;
+        }
+
+        public String label() {
+            return label;
+        }
+
+        public static Window of(String label) {
+            for (var window : values()) {
+                if (window.label.equals(label)) {
+                    return window;
+                }
+            }
+            throw new IllegalArgumentException("Unknown window " + label + ", expected 1m, 1h or 24h");
+        }
+    }
+
+    /**
+     * A short code with its estimated clicks, which exceed the real clicks by at most {@code error}.
+     */
+    public record HotLink(String shortCode, long clicks, long error) {
+    }
+
+    private final RedirectCache redirectCache;
+    private final boolean enabled;
+    private final int capacity;
+    private final int stripeCapacity;
+    private final int maxSliceKeys;
+    private final int pinCount;
+    private final Window pinWindow;
+    private final Clock clock;
+    private final Map<Window, Bucket[]> windows = new EnumMap<>(Window.class);
+    private volatile Slice live;
+    // The previous slice, drained once more when the current one ends; only touched under the monitor
+    private Slice retired;
+
+    @Autowired
+    public HotLinkTracker(RedirectCache redirectCache,
+                          @Value("${shortener.hot-links.enabled:true}") boolean enabled,
+                          @Value("${shortener.hot-links.capacity:1000}") int capacity,
+                          @Value("${shortener.hot-links.max-slice-keys:10000}") int maxSliceKeys,
+                          @Value("${shortener.hot-links.pin:100}") int pinCount,
+                          @Value("${shortener.hot-links.pin-window:1h}") String pinWindow,
+                          MeterRegistry meterRegistry) {
+        this(redirectCache, enabled, capacity, maxSliceKeys, pinCount, Window.of(pinWindow), Clock.systemUTC(),
+                meterRegistry);
+    }
+
+    HotLinkTracker(RedirectCache redirectCache, boolean enabled, int capacity, int maxSliceKeys, int pinCount,
+                   Window pinWindow, Clock clock, MeterRegistry meterRegistry) {
+        if (pinCount > capacity) {
+            throw new IllegalArgumentException("shortener.hot-links.pin must not exceed shortener.hot-links.capacity");
+        }
+        this.redirectCache = redirectCache;
+        this.enabled = enabled;
+        this.capacity = capacity;
+        this.stripeCapacity = Math.max(1, capacity / STRIPES);
+        this.maxSliceKeys = maxSliceKeys;
+        this.pinCount = pinCount;
+        this.pinWindow = pinWindow;
+        this.clock = clock;
+        for (var window : Window.values()) {
+            windows.put(window, new Bucket[window.buckets]);
+        }
+        this.live = new Slice(clock.millis() / SLICE_MILLIS, stripeCapacity);
+        Gauge.builder("shortener.hot-links.tracked", this, tracker -> tracker.live.size())
+                .description("Short codes counted in the current hot links slice")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Counts one click of the short code; called for every redirect.
+     */
+    public void record(String shortCode) {
+        if (!enabled) {
+            return;
+        }
+        var slice = live;
+        var counter = slice.counters.get(shortCode);
+        if (counter == null) {
+            if (slice.counters.size() >= maxSliceKeys) {
+                if (!slice.overflow(shortCode)) {
+                    // Sealed under our feet: the next slice was made live before this one was sealed
+                    record(shortCode);
+                }
+                return;
+            }
+            counter = slice.counters.computeIfAbsent(shortCode, key -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Up to {@code limit} short codes with the most clicks in the window, most clicked first.
+     */
+    public synchronized List<HotLink> top(Window window, int limit) {
+        if (limit <= 0 || limit > capacity) {
+            throw new IllegalArgumentException("limit must be between 1 and " + capacity + ", was " + limit);
+        }
+        long current = clock.millis() / window.bucketMillis;
+        var totals = new HashMap<String, long[]>();
+        for (var bucket : windows.get(window)) {
+            if (bucket != null && bucket.index > current - window.buckets) {
+                bucket.addTo(totals);
+            }
+        }
+        live.addTo(totals);
+        return totals.entrySet().stream()
+                .sorted(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0]).reversed())
+                .limit(limit)
+                .map(entry -> new HotLink(entry.getKey(), entry.getValue()[0], entry.getValue()[1]))
+                .toList();
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.hot-links.tick-ms:1000}")
+    public void tick() {
+        if (enabled && advance(clock.millis()) && pinCount > 0) {
+            redirectCache.pin(top(pinWindow, pinCount).stream().map(HotLink::shortCode).toList());
+        }
+    }
+
+    /**
+     * Ends the running slice once the clock has left it; returns false if it is still running.
+     */
+    synchronized boolean advance(long nowMillis) {
+        var ended = live;
+        if (nowMillis / SLICE_MILLIS == ended.index) {
+            return false;
+        }
+        live = new Slice(nowMillis / SLICE_MILLIS, stripeCapacity);
+        var summary = new SpaceSaving(capacity);
+        ended.drainOverflow(summary);
+        ended.drainCounters(summary);
+        if (retired != null) {
+            retired.drainCounters(summary);
+        }
+        retired = ended;
+        var counts = new HashMap<String, long[]>();
+        summary.addTo(counts);
+        long start = ended.index * SLICE_MILLIS;
+        for (var window : Window.values()) {
+            long index = start / window.bucketMillis;
+            var buckets = windows.get(window);
+            int position = (int) (index % buckets.length);
+            if (buckets[position] == null || buckets[position].index < index) {
+                buckets[position] = new Bucket(index);
+            } else if (buckets[position].index > index) {
+                continue; // the clock went back; the slice is older than the bucket
+            }
+            buckets[position].add(counts, capacity);
+        }
+        return true;
+    }
+
+    private static void addAll(Map<String, long[]> counts, Map<String, long[]> totals) {
+        counts.forEach((key, value) -> {
+            var total = totals.computeIfAbsent(key, k -> new long[2]);
+            total[0] += value[0];
+            total[1] += value[1];
+        });
+    }
+
+    private record Slice(long index, ConcurrentHashMap<String, LongAdder> counters, SpaceSaving[] overflow) {
+
+        Slice(long index, int stripeCapacity) {
+            this(index, new ConcurrentHashMap<>(), new SpaceSaving[STRIPES]);
+            for (int i = 0; i < STRIPES; i++) {
+                overflow[i] = new SpaceSaving(stripeCapacity);
+            }
+        }
+
+        boolean overflow(String shortCode) {
+            return overflow[(shortCode.hashCode() & Integer.MAX_VALUE) % STRIPES].offer(shortCode);
+        }
+
+        /**
+         * Adds the running counts without resetting them.
+         */
+        void addTo(Map<String, long[]> totals) {
+            counters.forEach((key, counter) -> totals.computeIfAbsent(key, k -> new long[2])[0] += counter.sum());
+            for (var counter : overflow) {
+                counter.addTo(totals);
+            }
+        }
+
+        /**
+         * Moves the counts into {@code summary}; increments racing with this are left for the next drain.
+         */
+        void drainCounters(SpaceSaving summary) {
+            counters.forEach((key, counter) -> {
+                long count = counter.sumThenReset();
+                if (count > 0) {
+                    summary.offer(key, count, 0);
+                }
+            });
+        }
+
+        /**
+         * Seals the overflow counters and merges them into {@code summary}.
+         */
+        void drainOverflow(SpaceSaving summary) {
+            var totals = new HashMap<String, long[]>();
+            for (var counter : overflow) {
+                counter.seal();
+                counter.addTo(totals);
+            }
+            totals.forEach((key, total) -> summary.offer(key, total[0], total[1]));
+        }
+
+        int size() {
+            return counters.size() + Arrays.stream(overflow).mapToInt(SpaceSaving::size).sum();
+        }
+    }
+
+    /**
+     * Summed counts of the slices of one bucket of a window, pruned to the highest {@code capacity} after each add.
+     */
+    private static final class Bucket {
+        private final long index;
+        private Map<String, long[]> counts = new HashMap<>();
+
+        Bucket(long index) {
+            this.index = index;
+        }
+
+        void add(Map<String, long[]> slice, int capacity) {
+            addAll(slice, counts);
+            if (counts.size() > capacity) {
+                var kept = new ArrayList<>(counts.entrySet());
+                kept.sort(Comparator.comparingLong((Map.Entry<String, long[]> entry) -> entry.getValue()[0]).reversed());
+                var pruned = new HashMap<String, long[]>(capacity * 4 / 3 + 1);
+                for (var entry : kept.subList(0, capacity)) {
+                    pruned.put(entry.getKey(), entry.getValue());
+                }
+                counts = pruned;
+            }
+        }
+
+        void addTo(Map<String, long[]> totals) {
+            addAll(counts, totals);
+        }
+    }
+}
@@ -0,0 +1,177 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+
+/**
+ * Link expiry: applies the default time to live to new links and deletes links once they have expired.
+ * <p>
+ * Upcoming expirations are paged in from the database, up to {@code shortener.expiry.horizon} ahead, into a
+ * {@link TimingWheel}, and links created by this process that expire within the loaded range are added to it
+ * directly. On every tick the wheel hands over the links that fell due, which are deleted in small batches, each
+ * its own short transaction, with a cap per tick, so a large backlog drains gradually instead of holding locks
+ * and producing dead tuples in one burst. Deleted links are evicted from the redirect cache; until then a cached
+ * link is answered as gone by its expiry alone. Every node purges the links it knows about and the deletes are
+ * idempotent, so running several nodes only duplicates work.
+ */
+@Component
+public class LinkExpiry {
+
+    private static final Logger log = LogManager.getLogger(LinkExpiry.class);
+    private static final int SWEEP_PAGE_SIZE = 10_000;
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final RedirectCache redirectCache;
+    private final boolean enabled;
+    private final Duration defaultTtl;
+    private final Duration horizon;
+    private final long tickMillis;
+    private final int purgeBatchSize;
+    private final int maxBatchesPerTick;
+    private final int maxScheduled;
+    private final TimingWheel<String> wheel;
+    private final Counter purged;
+    // Due links waiting for a purge batch; only touched by the scheduler thread
+    private final ArrayDeque<String> due = new ArrayDeque<>();
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+
+    // Keyset position of the last expiration loaded from the database; earlier ones are all in the wheel
+    private volatile Instant sweptExpiresAt = Instant.EPOCH;
+    private volatile long sweptId;
+
+    public LinkExpiry(ShortUrlPersistenceService shortUrlPersistenceService,
+                      RedirectCache redirectCache,
+                      @Value("${shortener.expiry.enabled:true}") boolean enabled,
+                      @Value("${shortener.expiry.default-ttl:0s}") Duration defaultTtl,
+                      @Value("${shortener.expiry.tick-ms:1000}") long tickMillis,
+                      @Value("${shortener.expiry.horizon:1h}") Duration horizon,
+                      @Value("${shortener.expiry.purge-batch-size:500}") int purgeBatchSize,
+                      @Value("${shortener.expiry.max-batches-per-tick:10}") int maxBatchesPerTick,
+                      @Value("${shortener.expiry.max-scheduled:100000}") int maxScheduled,
+                      MeterRegistry meterRegistry) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.redirectCache = redirectCache;
+        this.enabled = enabled;
+        this.defaultTtl = defaultTtl;
+        this.horizon = horizon;
+        this.tickMillis = tickMillis;
+        this.purgeBatchSize = purgeBatchSize;
+        this.maxBatchesPerTick = maxBatchesPerTick;
+        this.maxScheduled = maxScheduled;
+        this.wheel = new TimingWheel<>(tickMillis, System.currentTimeMillis());
+        if (horizon.toMillis() >= wheel.spanMillis()) {
+            throw new IllegalArgumentException("shortener.expiry.horizon must be shorter than "
+                    + Duration.ofMillis(wheel.spanMillis()) + " at this tick");
+        }
+        this.purged = Counter.builder("shortener.expiry.purged")
+                .description("Expired links deleted")
+                .register(meterRegistry);
+        Gauge.builder("shortener.expiry.scheduled", wheel, TimingWheel::size)
+                .description("Expirations held in the timing wheel")
+                .register(meterRegistry);
+    }
+
+    /**
+     * The expiry of a new link: the requested one, or the default time to live from now, or null for none.
+     * Truncated to the database's microsecond precision, so it compares equal to the stored value.
+     */
+    public Instant expiresAt(Instant requested) {
+        if (requested != null) {
+            return requested.truncatedTo(ChronoUnit.MICROS);
+        }
+        return defaultTtl.isZero() ? null : Instant.now().plus(defaultTtl).truncatedTo(ChronoUnit.MICROS);
+    }
+
+    /**
+     * Schedules a link stored by this process; one that expires beyond the loaded range is left to a later sweep.
+     */
+    public void schedule(String shortUrl, Instant expiresAt) {
+        if (enabled && expiresAt != null && !expiresAt.isAfter(sweptExpiresAt)) {
+            wheel.schedule(expiresAt.toEpochMilli(), shortUrl);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.expiry.tick-ms:1000}")
+    public void tick() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            var now = Instant.now();
+            sweep(now);
+            wheel.advance(now.toEpochMilli(), due::add);
+            purge(now);
+        } catch (RuntimeException e) {
+            log.warn("Link expiry tick failed, retrying on the next tick", e);
+        }
+    }
+
+    /**
+     * Loads expirations up to the horizon once less than half of it is left, page by page, until the wheel holds
+     * {@code max-scheduled} entries. With no backlog, also picks up links that expired without being scheduled,
+     * e.g. those created by a node that stopped before they expired: anything that was scheduled here and expired
+     * before the previous tick has been purged already.
+     */
+    void sweep(Instant now) {
+        var until = now.plus(horizon);
+        if (!sweptExpiresAt.isBefore(now.plus(horizon.dividedBy(2)))) {
+            return;
+        }
+        while (wheel.size() < maxScheduled) {
+            var page = shortUrlPersistenceService.findExpiring(sweptExpiresAt, sweptId, until, SWEEP_PAGE_SIZE);
+            for (var link : page) {
+                wheel.schedule(link.expiresAt().toEpochMilli(), link.shortUrl());
+            }
+            if (page.size() < SWEEP_PAGE_SIZE) {
+                // Everything up to the horizon is loaded; continue after it next time
+                sweptExpiresAt = until;
+                sweptId = Long.MAX_VALUE;
+                break;
+            }
+            var last = page.get(page.size() - 1);
+            sweptExpiresAt = last.expiresAt();
+            sweptId = last.id();
+        }
+        if (due.isEmpty()) {
+            due.addAll(shortUrlPersistenceService.findExpired(now.minusMillis(2 * tickMillis), purgeBatchSize));
+        }
+    }
+
+    private void purge(Instant now) {
+        var prefix = baseUrl + "/";
+        for (int batch = 0; batch < maxBatchesPerTick && !due.isEmpty(); batch++) {
+            var shortUrls = new ArrayList<String>(Math.min(purgeBatchSize, due.size()));
+            while (shortUrls.size() < purgeBatchSize && !due.isEmpty()) {
+                shortUrls.add(due.poll());
+            }
+            var deleted = shortUrlPersistenceService.deleteExpired(shortUrls, now);
+            // Evict every candidate: one deleted by another node is gone just the same, and one revived since it
+            // was scheduled has a stale target cached
+            for (var shortUrl : shortUrls) {
+                if (shortUrl.startsWith(prefix)) {
+                    redirectCache.invalidate(shortUrl.substring(prefix.length()));
+                }
+            }
+            purged.increment(deleted.size());
+            log.debug("Purged {} of {} expired links", deleted.size(), shortUrls.size());
+        }
+    }
+
+    int backlog() {
+        return due.size();
+    }
+}
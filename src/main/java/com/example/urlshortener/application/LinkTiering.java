@@ -0,0 +1,85 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * Hot/cold tiering: moves links that have not been used for {@code shortener.tiering.idle-after} (a new link counts
+ * as used when created, one that predates the archive as used at the upgrade) from {@code short_urls} to
+ * {@code short_urls_archive}, so that the unique indexes every shorten and redirect miss goes through only cover
+ * the working set.
+ * <p>
+ * The table is walked in primary key order, {@code batch-size} ids per statement and at most
+ * {@code max-batches-per-run} statements per run, continuing where the previous run stopped and starting over
+ * once the end is reached. Each batch is its own short transaction. Archived links move back on their next
+ * lookup, click or shorten (see {@link ShortUrlPersistenceService}); links with an expiry are never archived.
+ */
+@Component
+public class LinkTiering {
+
+    private static final Logger log = LogManager.getLogger(LinkTiering.class);
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final boolean enabled;
+    private final Duration idleAfter;
+    private final int batchSize;
+    private final int maxBatchesPerRun;
+    private final Counter archived;
+    // Last id looked at; only touched by the scheduler thread
+    private long position;
+
+    public LinkTiering(ShortUrlPersistenceService shortUrlPersistenceService,
+                       @Value("${shortener.tiering.enabled:true}") boolean enabled,
+                       @Value("${shortener.tiering.idle-after:365d}") Duration idleAfter,
+                       @Value("${shortener.tiering.batch-size:1000}") int batchSize,
+                       @Value("${shortener.tiering.max-batches-per-run:100}") int maxBatchesPerRun,
+                       MeterRegistry meterRegistry) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.enabled = enabled;
+        this.idleAfter = idleAfter;
+        this.batchSize = batchSize;
+        this.maxBatchesPerRun = maxBatchesPerRun;
+        this.archived = Counter.builder("shortener.tiering.archived")
+                .description("Idle links moved to short_urls_archive")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${shortener.tiering.interval-ms:60000}",
+            initialDelayString = "${shortener.tiering.interval-ms:60000}")
+    public void run() {
+        if (!enabled) {
+            return;
+        }
+        var idleSince = Instant.now().minus(idleAfter);
+        int moved = 0;
+        try {
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                var result = shortUrlPersistenceService.archiveIdle(position, idleSince, batchSize);
+                moved += result.archived();
+                archived.increment(result.archived());
+                position = result.lastId();
+                if (position == 0) {
+                    break; // end of the table, start over on the next run
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Link tiering failed after id {}, retrying on the next run", position, e);
+        }
+        if (moved > 0) {
+            log.info("Archived {} links idle since {}", moved, idleSince);
+        }
+    }
+
+    long position() {
+        return position;
+    }
+}
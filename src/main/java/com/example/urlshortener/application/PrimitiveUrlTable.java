@@ -0,0 +1,242 @@
+package com.example.urlshortener.application;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash table from packed short codes to URLs, built from primitive arrays so that the
+ * number of objects on the heap does not grow with the number of entries.
+ * Each code of up to {@link #MAX_PACKED_LENGTH} Base64url characters is packed into a {@code long}
+ * (6 bits per character plus a 4-bit length), slots are probed linearly, and each key is stored next to
+ * its value, so a hit usually costs one cache miss in the table. The value is the offset and length of
+ * the URL's UTF-8 bytes in an append-only arena of fixed-size chunks, either on the heap or in direct
+ * (off-heap) buffers.
+ * <p>
+ * A single writer at a time (puts are synchronized); lookups are lock-free. A slot's value and the URL
+ * bytes are written before its key is published with release semantics, and the table is replaced as a
+ * whole when it grows, so a reader sees either a complete entry or none. Entries are never removed.
+ */
+class PrimitiveUrlTable {
+
+    static final int MAX_PACKED_LENGTH = 10;
+    // Just under 16 MB, so that a heap chunk with its array header fills whole G1 regions
+    static final int DEFAULT_CHUNK_SIZE = (1 << 24) - 64;
+    private static final int LENGTH_BITS = 24;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    // Two longs per slot in a single array
+    private static final int MAX_CAPACITY = 1 << 29;
+    private static final double MAX_LOAD_FACTOR = 0.75;
+    private static final VarHandle SLOTS = MethodHandles.arrayElementVarHandle(long[].class);
+    // Base64url character -> 6-bit value + 1, 0 for characters outside the alphabet
+    private static final byte[] DIGITS = new byte[128];
+
+    static {
+        var alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789-_";
+        for (int i = 0; i < alphabet.length(); i++) {
+            DIGITS[alphabet.charAt(i)] = (byte) (i + 1);
+        }
+    }
+
+    private final boolean offHeap;
+    private final int chunkSize;
+    private volatile Table table;
+    private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+    // Only touched by the writer
+    private int chunkPosition;
+    private volatile int size;
+    private volatile long arenaBytes;
+
+    PrimitiveUrlTable(int expectedEntries, boolean offHeap) {
+        this(expectedEntries, offHeap, DEFAULT_CHUNK_SIZE);
+    }
+
+    PrimitiveUrlTable(int expectedEntries, boolean offHeap, int chunkSize) {
+        this.offHeap = offHeap;
+        this.chunkSize = chunkSize;
+        this.table = new Table(capacityFor(expectedEntries));
+    }
+
+    /**
+     * Packs a short code into a non-zero long, or returns 0 if it is empty, longer than
+     * {@link #MAX_PACKED_LENGTH} characters or contains a character outside the Base64url alphabet.
+     */
+    static long pack(String code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_PACKED_LENGTH) {
+            return 0;
+        }
+        long packed = length;
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            int digit = c < DIGITS.length ? DIGITS[c] - 1 : -1;
+            if (digit < 0) {
+                return 0;
+            }
+            packed |= (long) digit << (4 + 6 * i);
+        }
+        return packed;
+    }
+
+    /**
+     * Returns the URL stored for the code, or null if the code is absent or cannot be packed.
+     */
+    String get(String code) {
+        long key = pack(code);
+        if (key == 0) {
+            return null;
+        }
+        var slots = table.slots;
+        int mask = capacity(slots) - 1;
+        for (int slot = slot(key, mask); ; slot = (slot + 1) & mask) {
+            long found = (long) SLOTS.getAcquire(slots, 2 * slot);
+            if (found == key) {
+                return read(slots[2 * slot + 1]);
+            }
+            if (found == 0) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Adds a mapping. Returns false if the code cannot be packed or the URL does not fit into an arena
+     * chunk; an existing mapping for the code is kept as is, since mappings never change.
+     */
+    synchronized boolean put(String code, String url) {
+        long key = pack(code);
+        var bytes = url.getBytes(StandardCharsets.UTF_8);
+        if (key == 0 || bytes.length > Math.min(chunkSize, LENGTH_MASK)) {
+            return false;
+        }
+        if (size + 1 > table.threshold) {
+            grow();
+        }
+        var slots = table.slots;
+        int mask = capacity(slots) - 1;
+        int slot = slot(key, mask);
+        for (long found = slots[2 * slot]; found != 0; found = slots[2 * slot]) {
+            if (found == key) {
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        slots[2 * slot + 1] = append(bytes);
+        SLOTS.setRelease(slots, 2 * slot, key);
+        size++;
+        return true;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Bytes of URL data in the arena.
+     */
+    long arenaBytes() {
+        return arenaBytes;
+    }
+
+    /**
+     * Bytes reserved by the arena chunks, on or off the heap.
+     */
+    long arenaCapacity() {
+        return (long) chunks.length * chunkSize;
+    }
+
+    /**
+     * Bytes held by the slot array.
+     */
+    long tableBytes() {
+        return (long) Long.BYTES * table.slots.length;
+    }
+
+    boolean isOffHeap() {
+        return offHeap;
+    }
+
+    private long append(byte[] bytes) {
+        var current = chunks;
+        if (current.length == 0 || chunkPosition + bytes.length > chunkSize) {
+            // Entries never span chunks, so a lookup always reads from a single buffer
+            current = Arrays.copyOf(current, current.length + 1);
+            current[current.length - 1] = offHeap ? ByteBuffer.allocateDirect(chunkSize) : ByteBuffer.allocate(chunkSize);
+            chunkPosition = 0;
+        }
+        current[current.length - 1].put(chunkPosition, bytes);
+        long offset = (long) (current.length - 1) * chunkSize + chunkPosition;
+        chunkPosition += bytes.length;
+        arenaBytes += bytes.length;
+        chunks = current;
+        return offset << LENGTH_BITS | bytes.length;
+    }
+
+    private String read(long value) {
+        long offset = value >>> LENGTH_BITS;
+        int length = (int) (value & LENGTH_MASK);
+        var chunk = chunks[(int) (offset / chunkSize)];
+        int position = (int) (offset % chunkSize);
+        if (chunk.hasArray()) {
+            return new String(chunk.array(), chunk.arrayOffset() + position, length, StandardCharsets.UTF_8);
+        }
+        var bytes = new byte[length];
+        chunk.get(position, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private void grow() {
+        var old = table.slots;
+        if (capacity(old) == MAX_CAPACITY) {
+            throw new IllegalStateException("Short code index is full at " + size + " entries");
+        }
+        var grown = new Table(capacity(old) * 2);
+        int mask = capacity(grown.slots) - 1;
+        for (int i = 0; i < old.length; i += 2) {
+            long key = old[i];
+            if (key != 0) {
+                int slot = slot(key, mask);
+                while (grown.slots[2 * slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                grown.slots[2 * slot] = key;
+                grown.slots[2 * slot + 1] = old[i + 1];
+            }
+        }
+        // Readers still holding the old table see every entry added before the resize
+        table = grown;
+    }
+
+    private static int capacity(long[] slots) {
+        return slots.length >> 1;
+    }
+
+    private static int slot(long key, int mask) {
+        // MurmurHash3 finalizer: packed codes share their low (length) bits
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return (int) key & mask;
+    }
+
+    private static int capacityFor(int expectedEntries) {
+        long needed = (long) Math.ceil(Math.max(expectedEntries, 1) / MAX_LOAD_FACTOR);
+        long capacity = Long.highestOneBit(Math.max(needed - 1, 1)) << 1;
+        return (int) Math.min(Math.max(capacity, 16), MAX_CAPACITY);
+    }
+
+    private static final class Table {
+        // Key of slot i at 2 * i (0 = empty), its value at 2 * i + 1
+        private final long[] slots;
+        private final int threshold;
+
+        private Table(int capacity) {
+            this.slots = new long[2 * capacity];
+            this.threshold = (int) (capacity * MAX_LOAD_FACTOR);
+        }
+    }
+}
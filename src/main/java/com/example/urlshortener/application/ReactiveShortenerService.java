@@ -0,0 +1,209 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import com.example.urlshortener.persistence.ReactiveUrlRepository;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Non-blocking counterpart of {@link ShortenerService} for the reactive profile.
+ * Lookups and upserts go through R2DBC; redirect counts use the same in-memory click buffer,
+ * so serving a redirect never waits on a write.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveShortenerService {
+
+    private static final Logger log = LogManager.getLogger(ReactiveShortenerService.class);
+    private static final int MAX_RETRIES = 5;
+
+    private final ReactiveUrlRepository reactiveUrlRepository;
+    private final RedirectCache redirectCache;
+    private final ClickCounterBuffer clickCounterBuffer;
+    private final ClickRollupBuffer clickRollupBuffer;
+    private final ShortCodeFilter shortCodeFilter;
+    private final ShortCodeIndex shortCodeIndex;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final LinkExpiry linkExpiry;
+    private final ShortenerMetrics metrics;
+    private final SingleFlight<String, ShortUrlDto> shortens;
+    private final SingleFlight<String, Optional<ShortUrlDto>> statisticsLookups;
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+
+    public ReactiveShortenerService(ReactiveUrlRepository reactiveUrlRepository,
+                                    RedirectCache redirectCache,
+                                    ClickCounterBuffer clickCounterBuffer,
+                                    ClickRollupBuffer clickRollupBuffer,
+                                    ShortCodeFilter shortCodeFilter,
+                                    ShortCodeIndex shortCodeIndex,
+                                    ShortCodeGenerator shortCodeGenerator,
+                                    LinkExpiry linkExpiry,
+                                    ShortenerMetrics metrics) {
+        this.reactiveUrlRepository = reactiveUrlRepository;
+        this.redirectCache = redirectCache;
+        this.clickCounterBuffer = clickCounterBuffer;
+        this.clickRollupBuffer = clickRollupBuffer;
+        this.shortCodeFilter = shortCodeFilter;
+        this.shortCodeIndex = shortCodeIndex;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.linkExpiry = linkExpiry;
+        this.metrics = metrics;
+        this.shortens = metrics.singleFlight("shorten");
+        this.statisticsLookups = metrics.singleFlight("stats");
+    }
+
+    /**
+     * Same single-upsert algorithm as {@link ShortenerService#shortenUrl}.
+     */
+    public Mono<ShortUrlDto> shortenUrl(String originalUrl) {
+        return shortenUrl(originalUrl, null, null, null);
+    }
+
+    /**
+     * Same as {@link ShortenerService#shortenUrl(String, Integer, Integer, Instant)}, including the sharing of one
+     * upsert among concurrent calls for the same URL. A subscriber that cancels does not cancel the shared upsert.
+     */
+    public Mono<ShortUrlDto> shortenUrl(String originalUrl, Integer redirectStatus, Integer cacheMaxAge,
+                                        Instant expiresAt) {
+        var template = new ShortUrlDto(null, originalUrl, 1, 0, redirectStatus, cacheMaxAge, 0,
+                linkExpiry.expiresAt(expiresAt));
+        return Mono.fromFuture(() -> shortens.executeAsync(originalUrl,
+                () -> Mono.defer(() -> shortenUrl(template, 0, System.nanoTime())).toFuture(),
+                this::addSharedRequests), true);
+    }
+
+    private void addSharedRequests(ShortUrlDto stored, int requests) {
+        reactiveUrlRepository.addRequestCount(stored.getShortUrl(), requests)
+                .subscribe(null, e -> log.warn("Failed to add {} coalesced requests to {}",
+                        requests, stored.getShortUrl(), e));
+    }
+
+    private Mono<ShortUrlDto> shortenUrl(ShortUrlDto template, int attempt, long start) {
+        var originalUrl = template.getOriginalUrl();
+        if (attempt == MAX_RETRIES) {
+            metrics.shortenFailed(MAX_RETRIES, System.nanoTime() - start);
+            log.warn("Failed to generate unique short URL after retries: {}", originalUrl);
+            return Mono.error(new RuntimeException("Failed to generate unique short URL after retries"));
+        }
+        // The sequence generator occasionally blocks on nextval, so never generate on an event-loop thread
+        return Mono.fromCallable(() -> generateCode(originalUrl, attempt))
+                .subscribeOn(Schedulers.boundedElastic())
+                .flatMap(shortCode -> reactiveUrlRepository.upsert(new ShortUrlDto(baseUrl + "/" + shortCode,
+                        originalUrl, 1, 0, template.getRedirectStatus(), template.getCacheMaxAge(), 0,
+                        template.getExpiresAt())))
+                .map(result -> {
+                    var stored = result.shortUrl();
+                    if (!stored.getOriginalUrl().equals(originalUrl)) {
+                        // Two URLs with the same SHA-256 digest
+                        metrics.shortenFailed(attempt + 1, System.nanoTime() - start);
+                        throw new IllegalStateException("Digest collision for " + originalUrl);
+                    }
+                    if (result.inserted()) {
+                        shortCodeFilter.add(stored.getShortUrl());
+                        var shortCode = stored.getShortUrl().substring(baseUrl.length() + 1);
+                        redirectCache.put(shortCode, RedirectTarget.of(stored));
+                        if (stored.isPlainRedirect()) {
+                            shortCodeIndex.put(shortCode, stored.getOriginalUrl());
+                        }
+                        linkExpiry.schedule(stored.getShortUrl(), stored.getExpiresAt());
+                    } else if (template.getExpiresAt() != null
+                            && template.getExpiresAt().equals(stored.getExpiresAt())) {
+                        // An expired link revived with the new expiry; its cached target is gone or stale
+                        log.info("Expired URL shortened again: {}", originalUrl);
+                        redirectCache.put(stored.getShortUrl().substring(baseUrl.length() + 1),
+                                RedirectTarget.of(stored));
+                        linkExpiry.schedule(stored.getShortUrl(), stored.getExpiresAt());
+                    } else {
+                        log.info("URL already shortened: {}", originalUrl);
+                    }
+                    metrics.shortened(result.inserted(), attempt + 1, System.nanoTime() - start);
+                    return stored;
+                })
+                .onErrorResume(DataIntegrityViolationException.class, e -> {
+                    if (shortCodeGenerator.isCollisionFree()) {
+                        metrics.shortenFailed(attempt + 1, System.nanoTime() - start);
+                        return Mono.error(e); // not a short code collision, retrying would not help
+                    }
+                    // The generated short code is already taken by a different URL
+                    metrics.codeCollision();
+                    log.info("Short URL collision for {} on attempt {}", originalUrl, attempt);
+                    return shortenUrl(template, attempt + 1, start);
+                });
+    }
+
+    public void incrementUsedCount(String shortUrl) {
+        clickCounterBuffer.record(shortUrl);
+        clickRollupBuffer.record(shortUrl);
+    }
+
+    /**
+     * Concurrent lookups of the same short URL share one query. Unknown short URLs are negatively cached in the
+     * redirect cache, like in {@link ShortenerService#getStatistics}.
+     */
+    public Mono<ShortUrlDto> getStatistics(String shortUrl) {
+        var shortCode = shortUrl.substring(baseUrl.length() + 1);
+        if (redirectCache.isMissing(shortCode)) {
+            return Mono.empty();
+        }
+        return Mono.fromFuture(() -> statisticsLookups.executeAsync(shortUrl,
+                        () -> reactiveUrlRepository.findByShortUrl(shortUrl)
+                                .map(Optional::of)
+                                .defaultIfEmpty(Optional.empty())
+                                .toFuture(),
+                        null), true)
+                .doOnNext(stats -> {
+                    if (stats.isEmpty()) {
+                        redirectCache.putMissing(shortCode);
+                    }
+                })
+                .flatMap(Mono::justOrEmpty);
+    }
+
+    /**
+     * Resolves a short code through the redirect cache; empty if it is malformed or unknown.
+     */
+    public Mono<RedirectTarget> resolve(String shortCode) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            if (!ShortCodeGenerator.isWellFormed(shortCode)) {
+                metrics.redirectResolved(false, System.nanoTime() - start);
+                return Mono.<Optional<RedirectTarget>>just(Optional.empty());
+            }
+            return Mono.fromFuture(redirectCache.getAsync(shortCode, this::load))
+                    .doOnNext(target -> metrics.redirectResolved(target.isPresent(), System.nanoTime() - start));
+        }).flatMap(Mono::justOrEmpty);
+    }
+
+    private CompletableFuture<Optional<RedirectTarget>> load(String shortCode) {
+        var shortUrl = baseUrl + "/" + shortCode;
+        var indexed = shortCodeIndex.get(shortCode);
+        if (indexed != null) {
+            return CompletableFuture.completedFuture(Optional.of(RedirectTarget.of(shortUrl, indexed)));
+        }
+        if (!shortCodeFilter.mightContain(shortUrl)) {
+            return CompletableFuture.completedFuture(Optional.empty());
+        }
+        return reactiveUrlRepository.findByShortUrl(shortUrl)
+                .map(stored -> Optional.of(RedirectTarget.of(stored)))
+                .defaultIfEmpty(Optional.empty())
+                .toFuture();
+    }
+
+    private String generateCode(String originalUrl, int attempt) {
+        long start = System.nanoTime();
+        var code = shortCodeGenerator.generate(originalUrl, attempt);
+        metrics.codeGenerated(System.nanoTime() - start);
+        return code;
+    }
+}
@@ -0,0 +1,277 @@
+package com.example.urlshortener.application;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.Policy;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Bounded read-through cache of short code -> {@link RedirectTarget} used by the redirect path.
+ * Keys are the bare short codes as they arrive in the request path, and values carry everything a
+ * redirect needs, so a hit allocates nothing.
+ * A mapping never changes once it is created, so positive entries only leave the cache through
+ * size-based (W-TinyLFU) eviction. Unknown codes are remembered as short-lived negative entries
+ * so that repeated lookups of the same missing code do not reach the database.
+ * Loads run on the calling thread outside of any map lock, so a virtual thread blocked on the
+ * database never pins its carrier. Concurrent misses for the same code wait for a single load, counted like a
+ * {@link SingleFlight} under the {@code redirect} operation.
+ * <p>
+ * Short codes can also be {@link #pin pinned}: their targets are held in a small map outside of Caffeine that is
+ * checked first, so they are never evicted. Hits on pinned codes do not show in the cache statistics.
+ */
+@Component
+public class RedirectCache {
+
+    // Marker for a negative entry, compared by identity
+    private static final RedirectTarget MISSING = new RedirectTarget("", "");
+    // Rough per-entry overhead (node, key/value headers, frequency sketch) used when bounding by memory
+    private static final int ENTRY_OVERHEAD_BYTES = 96;
+
+    private final AsyncCache<String, RedirectTarget> cache;
+    private final Counter negativeHits;
+    private final Counter loads;
+    private final Counter coalescedLoads;
+    // Copy-on-write, replaced by pin(); read on every lookup
+    private volatile Map<String, RedirectTarget> pinned = Map.of();
+
+    public RedirectCache(@Value("${shortener.cache.max-entries:100000}") long maxEntries,
+                         @Value("${shortener.cache.max-memory-mb:0}") long maxMemoryMb,
+                         @Value("${shortener.cache.negative-ttl:30s}") Duration negativeTtl,
+                         MeterRegistry meterRegistry) {
+        var builder = Caffeine.newBuilder()
+                .expireAfter(new NegativeEntryExpiry(negativeTtl.toNanos()))
+                .recordStats();
+        if (maxMemoryMb > 0) {
+            builder.maximumWeight(maxMemoryMb * 1024 * 1024)
+                    .weigher((String key, RedirectTarget value) ->
+                            ENTRY_OVERHEAD_BYTES + key.length() + value.shortUrl().length() + value.location().length());
+        } else {
+            builder.maximumSize(maxEntries);
+        }
+        this.cache = builder.buildAsync();
+        this.negativeHits = Counter.builder("shortener.cache.negative.hits")
+                .description("Redirect lookups answered by a cached negative entry")
+                .register(meterRegistry);
+        this.loads = SingleFlight.calls(meterRegistry, "redirect", false);
+        this.coalescedLoads = SingleFlight.calls(meterRegistry, "redirect", true);
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "redirect");
+        Gauge.builder("shortener.cache.pinned", this, redirectCache -> redirectCache.pinned.size())
+                .description("Short codes pinned in the redirect cache")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns the redirect for the given short code, invoking the loader on a miss, or null if the code is unknown.
+     * Concurrent misses for the same key share a single loader invocation.
+     */
+    public RedirectTarget get(String shortCode, Function<String, Optional<RedirectTarget>> loader) {
+        var pinnedTarget = pinned.get(shortCode);
+        if (pinnedTarget != null) {
+            return pinnedTarget;
+        }
+        var cached = cache.getIfPresent(shortCode);
+        if (cached == null) {
+            var loading = new CompletableFuture<RedirectTarget>();
+            cached = cache.asMap().putIfAbsent(shortCode, loading);
+            if (cached == null) {
+                loads.increment();
+                return load(shortCode, loader, loading);
+            }
+        }
+        if (!cached.isDone()) {
+            coalescedLoads.increment();
+        }
+        var value = await(cached);
+        if (value == MISSING) {
+            negativeHits.increment();
+            return null;
+        }
+        return value;
+    }
+
+    /**
+     * Non-blocking variant of {@link #get} for the reactive stack: the loader returns a future and
+     * concurrent misses for the same key share it.
+     */
+    public CompletableFuture<Optional<RedirectTarget>> getAsync(
+            String shortCode, Function<String, CompletableFuture<Optional<RedirectTarget>>> loader) {
+        var pinnedTarget = pinned.get(shortCode);
+        if (pinnedTarget != null) {
+            return CompletableFuture.completedFuture(Optional.of(pinnedTarget));
+        }
+        var loaded = new boolean[1];
+        var future = cache.get(shortCode, (key, executor) -> {
+            loaded[0] = true;
+            loads.increment();
+            return loader.apply(key).thenApply(value -> value.orElse(MISSING));
+        });
+        if (!loaded[0] && !future.isDone()) {
+            coalescedLoads.increment();
+        }
+        return future.thenApply(value -> {
+            if (value == MISSING) {
+                if (!loaded[0]) {
+                    negativeHits.increment();
+                }
+                return Optional.empty();
+            }
+            return Optional.of(value);
+        });
+    }
+
+    private static RedirectTarget load(String shortCode, Function<String, Optional<RedirectTarget>> loader,
+                                       CompletableFuture<RedirectTarget> loading) {
+        try {
+            var value = loader.apply(shortCode).orElse(MISSING);
+            loading.complete(value);
+            return value == MISSING ? null : value;
+        } catch (RuntimeException e) {
+            // A failed future is dropped by the cache, so the next lookup retries the load
+            loading.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private static RedirectTarget await(CompletableFuture<RedirectTarget> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * Stores a freshly created mapping, replacing any negative entry for the same short code.
+     */
+    public void put(String shortCode, RedirectTarget target) {
+        cache.put(shortCode, CompletableFuture.completedFuture(target));
+        if (pinned.containsKey(shortCode)) {
+            replacePinned(shortCode, target);
+        }
+    }
+
+    /**
+     * Remembers the short code as unknown for the negative entry TTL, unless it already has an entry, e.g. after a
+     * statistics lookup found nothing.
+     */
+    public void putMissing(String shortCode) {
+        cache.asMap().putIfAbsent(shortCode, CompletableFuture.completedFuture(MISSING));
+    }
+
+    /**
+     * True if the short code is cached as unknown; read quietly, like {@link #contains}.
+     */
+    public boolean isMissing(String shortCode) {
+        return cache.synchronous().policy().getIfPresentQuietly(shortCode) == MISSING;
+    }
+
+    /**
+     * Drops the entry for the short code, e.g. once its link has been deleted, and unpins it; the next lookup
+     * loads it again.
+     */
+    public void invalidate(String shortCode) {
+        cache.synchronous().invalidate(shortCode);
+        if (pinned.containsKey(shortCode)) {
+            replacePinned(shortCode, null);
+        }
+    }
+
+    /**
+     * Pins exactly the given short codes, unpinning all others. A code that is neither pinned yet nor cached is
+     * skipped rather than loaded; it gets pinned on a later call once a redirect has cached it.
+     */
+    public synchronized void pin(Collection<String> shortCodes) {
+        var next = new HashMap<String, RedirectTarget>();
+        for (var shortCode : shortCodes) {
+            var target = pinned.get(shortCode);
+            if (target == null) {
+                // Quietly, so that pinning does not count as an access in the statistics or the eviction policy
+                target = cache.synchronous().policy().getIfPresentQuietly(shortCode);
+            }
+            if (target != null && target != MISSING) {
+                next.put(shortCode, target);
+            }
+        }
+        pinned = Map.copyOf(next);
+    }
+
+    public boolean isPinned(String shortCode) {
+        return pinned.containsKey(shortCode);
+    }
+
+    private synchronized void replacePinned(String shortCode, RedirectTarget target) {
+        if (!pinned.containsKey(shortCode)) {
+            return;
+        }
+        var next = new HashMap<>(pinned);
+        if (target != null) {
+            next.put(shortCode, target);
+        } else {
+            next.remove(shortCode);
+        }
+        pinned = Map.copyOf(next);
+    }
+
+    /**
+     * True if the short code has an entry, positive, negative or still loading; neither recorded in the
+     * statistics nor counted as an access by the eviction policy.
+     */
+    public boolean contains(String shortCode) {
+        return cache.asMap().containsKey(shortCode);
+    }
+
+    /**
+     * Up to {@code limit} positive entries, most likely to be retained first (by access frequency and recency).
+     */
+    public Map<String, RedirectTarget> hottest(int limit) {
+        return cache.synchronous().policy().eviction()
+                .map(eviction -> eviction.hottest(entries -> entries
+                        .filter(entry -> entry.getValue() != MISSING)
+                        .limit(limit)
+                        .collect(Collectors.toMap(Policy.CacheEntry::getKey, Policy.CacheEntry::getValue,
+                                (first, second) -> first, LinkedHashMap::new))))
+                .orElse(new LinkedHashMap<>());
+    }
+
+    public long estimatedSize() {
+        return cache.synchronous().estimatedSize();
+    }
+
+    private record NegativeEntryExpiry(long negativeTtlNanos) implements Expiry<String, RedirectTarget> {
+
+        @Override
+        public long expireAfterCreate(String key, RedirectTarget value, long currentTime) {
+            return value == MISSING ? negativeTtlNanos : Long.MAX_VALUE;
+        }
+
+        @Override
+        public long expireAfterUpdate(String key, RedirectTarget value, long currentTime, long currentDuration) {
+            return expireAfterCreate(key, value, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String key, RedirectTarget value, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+}
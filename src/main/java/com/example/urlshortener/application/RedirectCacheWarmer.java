@@ -0,0 +1,231 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.zip.CRC32C;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Fills the redirect cache before the application reports itself ready, so a restarted node does not serve
+ * its first minutes of traffic from the database. Runs synchronously on {@link ApplicationReadyEvent}, which
+ * Spring Boot publishes before switching the readiness state to {@code ACCEPTING_TRAFFIC}.
+ * <p>
+ * Two sources, in order: an optional snapshot of the hottest cache entries written by the previous process on
+ * shutdown (a local file, no database round trips), then the most used rows of {@code short_urls}, read in
+ * keyset pages on {@code used_count} and bounded by a time budget. Mappings never change and links are only
+ * deleted once expired, so a stale snapshot can only be less hot, never wrong; expired entries are skipped.
+ * <p>
+ * Snapshot layout: int magic, int version, UTF prefix, int count, then per entry a UTF short code, an
+ * int-length-prefixed UTF-8 redirect location, a short redirect status, a UTF {@code Cache-Control} value
+ * (0 and empty for the configured defaults) and a long expiry in epoch milliseconds (0 for none), followed by the CRC32C of everything before it.
+ */
+@Component
+public class RedirectCacheWarmer {
+
+    private static final Logger log = LogManager.getLogger(RedirectCacheWarmer.class);
+
+    private static final int SNAPSHOT_MAGIC = 0x52435348; // "RCSH"
+    private static final int SNAPSHOT_VERSION = 3;
+
+    private final RedirectCache redirectCache;
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final boolean enabled;
+    private final int entries;
+    private final int pageSize;
+    private final Duration timeout;
+    private final boolean snapshotEnabled;
+    private final Path snapshotFile;
+    private final int snapshotEntries;
+    private final Counter snapshotLoaded;
+    private final Counter databaseLoaded;
+    private final Timer warmUpTimer;
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+
+    public RedirectCacheWarmer(RedirectCache redirectCache,
+                               ShortUrlPersistenceService shortUrlPersistenceService,
+                               @Value("${shortener.warmup.enabled:true}") boolean enabled,
+                               @Value("${shortener.warmup.entries:50000}") int entries,
+                               @Value("${shortener.warmup.page-size:5000}") int pageSize,
+                               @Value("${shortener.warmup.timeout:30s}") Duration timeout,
+                               @Value("${shortener.warmup.snapshot.enabled:false}") boolean snapshotEnabled,
+                               @Value("${shortener.warmup.snapshot.file:redirect-cache.snapshot}") Path snapshotFile,
+                               @Value("${shortener.warmup.snapshot.entries:50000}") int snapshotEntries,
+                               MeterRegistry meterRegistry) {
+        this.redirectCache = redirectCache;
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.enabled = enabled;
+        this.entries = entries;
+        this.pageSize = pageSize;
+        this.timeout = timeout;
+        this.snapshotEnabled = snapshotEnabled;
+        this.snapshotFile = snapshotFile;
+        this.snapshotEntries = snapshotEntries;
+        this.snapshotLoaded = Counter.builder("shortener.cache.warmup.entries").tag("source", "snapshot")
+                .description("Redirect cache entries loaded before the application became ready")
+                .register(meterRegistry);
+        this.databaseLoaded = Counter.builder("shortener.cache.warmup.entries").tag("source", "database")
+                .description("Redirect cache entries loaded before the application became ready")
+                .register(meterRegistry);
+        this.warmUpTimer = Timer.builder("shortener.cache.warmup")
+                .description("Time spent warming the redirect cache on startup")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        if (!enabled && !snapshotEnabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        int fromSnapshot = snapshotEnabled ? loadSnapshot() : 0;
+        int fromDatabase = enabled ? loadMostUsed(start + timeout.toNanos()) : 0;
+        long elapsed = System.nanoTime() - start;
+        warmUpTimer.record(Duration.ofNanos(elapsed));
+        log.info("Redirect cache warmed with {} entries from the snapshot and {} from the database in {} ms",
+                fromSnapshot, fromDatabase, elapsed / 1_000_000);
+    }
+
+    /**
+     * Loads the most used short URLs that are not cached yet until {@code entries} rows have been read or the
+     * deadline has passed. A database failure leaves the cache partially warm rather than failing startup.
+     */
+    private int loadMostUsed(long deadlineNanos) {
+        var prefix = baseUrl + "/";
+        var loaded = new int[1];
+        long now = System.currentTimeMillis();
+        try {
+            int visited = shortUrlPersistenceService.forEachMostUsed(entries, pageSize, stored -> {
+                if (stored.getShortUrl().startsWith(prefix)) {
+                    var shortCode = stored.getShortUrl().substring(prefix.length());
+                    var target = RedirectTarget.of(stored);
+                    if (!target.isExpired(now) && !redirectCache.contains(shortCode)) {
+                        redirectCache.put(shortCode, target);
+                        loaded[0]++;
+                    }
+                }
+                return System.nanoTime() < deadlineNanos;
+            });
+            if (visited < entries && System.nanoTime() >= deadlineNanos) {
+                log.warn("Redirect cache warm-up stopped after {} of {} rows: timeout of {} exceeded",
+                        visited, entries, timeout);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Redirect cache warm-up from the database failed after {} entries", loaded[0], e);
+        }
+        databaseLoaded.increment(loaded[0]);
+        return loaded[0];
+    }
+
+    /**
+     * Loads the snapshot of the previous process, all or nothing: entries are only cached once the checksum
+     * has been verified, and a snapshot written for a different prefix is ignored.
+     */
+    int loadSnapshot() {
+        var targets = new LinkedHashMap<String, RedirectTarget>();
+        long now = System.currentTimeMillis();
+        var checksum = new CRC32C();
+        try (var in = new DataInputStream(new CheckedInputStream(
+                new BufferedInputStream(Files.newInputStream(snapshotFile)), checksum))) {
+            if (in.readInt() != SNAPSHOT_MAGIC || in.readInt() != SNAPSHOT_VERSION) {
+                log.warn("Ignoring redirect cache snapshot {}: unknown format", snapshotFile);
+                return 0;
+            }
+            var prefix = in.readUTF();
+            if (!prefix.equals(baseUrl)) {
+                log.info("Ignoring redirect cache snapshot {} written for prefix {}", snapshotFile, prefix);
+                return 0;
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                var shortCode = in.readUTF();
+                var location = new byte[in.readInt()];
+                in.readFully(location);
+                int status = in.readShort();
+                var cacheControl = in.readUTF();
+                var target = new RedirectTarget(prefix + "/" + shortCode,
+                        new String(location, StandardCharsets.UTF_8), status,
+                        cacheControl.isEmpty() ? null : cacheControl, in.readLong());
+                if (!target.isExpired(now)) {
+                    targets.put(shortCode, target);
+                }
+            }
+            long expected = checksum.getValue();
+            if (in.readLong() != expected) {
+                log.warn("Ignoring redirect cache snapshot {}: checksum mismatch", snapshotFile);
+                return 0;
+            }
+        } catch (NoSuchFileException e) {
+            return 0;
+        } catch (IOException | RuntimeException e) {
+            log.warn("Ignoring unreadable redirect cache snapshot {}", snapshotFile, e);
+            return 0;
+        }
+        targets.forEach(redirectCache::put);
+        snapshotLoaded.increment(targets.size());
+        return targets.size();
+    }
+
+    /**
+     * Writes the hottest cache entries to the snapshot file, replacing the previous one atomically.
+     */
+    @PreDestroy
+    public void writeSnapshot() {
+        if (!snapshotEnabled) {
+            return;
+        }
+        var hottest = redirectCache.hottest(snapshotEntries);
+        var temporary = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+        try {
+            var directory = snapshotFile.toAbsolutePath().getParent();
+            if (directory != null) {
+                Files.createDirectories(directory);
+            }
+            var checksum = new CRC32C();
+            try (var out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Files.newOutputStream(temporary)), checksum))) {
+                out.writeInt(SNAPSHOT_MAGIC);
+                out.writeInt(SNAPSHOT_VERSION);
+                out.writeUTF(baseUrl);
+                out.writeInt(hottest.size());
+                for (var entry : hottest.entrySet()) {
+                    var location = entry.getValue().location().getBytes(StandardCharsets.UTF_8);
+                    out.writeUTF(entry.getKey());
+                    out.writeInt(location.length);
+                    out.write(location);
+                    out.writeShort(entry.getValue().status());
+                    out.writeUTF(entry.getValue().cacheControl() != null ? entry.getValue().cacheControl() : "");
+                    out.writeLong(entry.getValue().expiresAt());
+                }
+                out.writeLong(checksum.getValue());
+            }
+            Files.move(temporary, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.info("Wrote {} redirect cache entries to {}", hottest.size(), snapshotFile);
+        } catch (IOException e) {
+            log.warn("Failed to write redirect cache snapshot {}", snapshotFile, e);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ShortUrlDto;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+
+/**
+ * A resolved redirect, built once when it enters the {@link RedirectCache} so that serving it allocates nothing:
+ * the canonical short URL under which clicks are recorded, the ready-to-send {@code Location} header value and
+ * the link's redirect policy override, if any: a status of 0 and a null {@code Cache-Control} value stand for
+ * the configured defaults. {@code expiresAt} is the link's expiry in epoch milliseconds, 0 if it never expires,
+ * so that a cached target can be checked against the clock without allocating.
+ */
+public record RedirectTarget(String shortUrl, String location, int status, String cacheControl, long expiresAt) {
+
+    public RedirectTarget(String shortUrl, String location) {
+        this(shortUrl, location, 0, null);
+    }
+
+    public RedirectTarget(String shortUrl, String location, int status, String cacheControl) {
+        this(shortUrl, location, status, cacheControl, 0);
+    }
+
+    public static RedirectTarget of(String shortUrl, String originalUrl) {
+        return new RedirectTarget(shortUrl, toLocation(originalUrl));
+    }
+
+    /**
+     * An expiring link without a max-age of its own is not cached downstream, so that it stops redirecting
+     * when it expires rather than when a cache lets go of it.
+     */
+    public static RedirectTarget of(ShortUrlDto stored) {
+        String cacheControl = null;
+        if (stored.getCacheMaxAge() != null) {
+            cacheControl = cacheControl(stored.getCacheMaxAge());
+        } else if (stored.getExpiresAt() != null) {
+            cacheControl = cacheControl(0);
+        }
+        return new RedirectTarget(stored.getShortUrl(), toLocation(stored.getOriginalUrl()),
+                stored.getRedirectStatus() != null ? stored.getRedirectStatus() : 0, cacheControl,
+                stored.getExpiresAt() != null ? stored.getExpiresAt().toEpochMilli() : 0);
+    }
+
+    public boolean isExpired(long nowMillis) {
+        return expiresAt != 0 && nowMillis >= expiresAt;
+    }
+
+    /**
+     * The {@code Cache-Control} value for a redirect that shared caches may keep for the given number of seconds;
+     * 0 forbids storing it, so that every click reaches the service and is counted.
+     */
+    public static String cacheControl(long maxAgeSeconds) {
+        return maxAgeSeconds > 0 ? "public, max-age=" + maxAgeSeconds : "no-store";
+    }
+
+    /**
+     * Header values must be ASCII, so non-ASCII characters are percent-encoded; URLs that do not parse as a URI
+     * are sent unchanged, as before.
+     */
+    static String toLocation(String originalUrl) {
+        try {
+            return new URI(originalUrl).toASCIIString();
+        } catch (URISyntaxException e) {
+            return originalUrl;
+        }
+    }
+}
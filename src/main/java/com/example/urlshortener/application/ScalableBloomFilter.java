@@ -0,0 +1,176 @@
+package com.example.urlshortener.application;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Thread-safe scalable Bloom filter (Almeida et al.): when the current segment reaches its
+ * capacity a new, twice as large segment with a tighter false-positive target is appended,
+ * so the compound false-positive rate stays below the configured bound as the data set grows.
+ * Elements can only be added, never removed.
+ */
+class ScalableBloomFilter {
+
+    private static final int GROWTH_FACTOR = 2;
+    private static final double TIGHTENING_RATIO = 0.5;
+
+    private final List<Segment> segments = new CopyOnWriteArrayList<>();
+    private final AtomicLong count = new AtomicLong();
+    private final ReentrantLock growthLock = new ReentrantLock();
+
+    ScalableBloomFilter(long initialCapacity, double falsePositiveRate) {
+        // The first segment gets half of the budget; the geometric series of later segments sums to the rest
+        segments.add(new Segment(Math.max(initialCapacity, 1), falsePositiveRate * (1 - TIGHTENING_RATIO)));
+    }
+
+    void put(String value) {
+        long hash = hash64(value);
+        currentSegment().put(hash);
+        count.incrementAndGet();
+    }
+
+    boolean mightContain(String value) {
+        long hash = hash64(value);
+        for (var segment : segments) {
+            if (segment.mightContain(hash)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    long approximateCount() {
+        return count.get();
+    }
+
+    int segmentCount() {
+        return segments.size();
+    }
+
+    long bitSize() {
+        return segments.stream().mapToLong(segment -> segment.bitSize).sum();
+    }
+
+    /**
+     * Fraction of all bits that are set.
+     */
+    double fillRatio() {
+        long setBits = 0;
+        for (var segment : segments) {
+            setBits += segment.setBits();
+        }
+        return (double) setBits / bitSize();
+    }
+
+    /**
+     * Current probability that an absent element is reported as present, derived from the actual fill of each segment.
+     */
+    double expectedFalsePositiveRate() {
+        double allSegmentsNegative = 1.0;
+        for (var segment : segments) {
+            allSegmentsNegative *= 1.0 - Math.pow(segment.fillRatio(), segment.numHashes);
+        }
+        return 1.0 - allSegmentsNegative;
+    }
+
+    private Segment currentSegment() {
+        var current = segments.get(segments.size() - 1);
+        if (current.inserted.get() < current.capacity) {
+            return current;
+        }
+        growthLock.lock();
+        try {
+            current = segments.get(segments.size() - 1);
+            if (current.inserted.get() >= current.capacity) {
+                current = new Segment(current.capacity * GROWTH_FACTOR, current.falsePositiveRate * TIGHTENING_RATIO);
+                segments.add(current);
+            }
+            return current;
+        } finally {
+            growthLock.unlock();
+        }
+    }
+
+    /**
+     * 64-bit FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer for better bit dispersion.
+     */
+    static long hash64(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Segment {
+        private final long capacity;
+        private final double falsePositiveRate;
+        private final long bitSize;
+        private final int numHashes;
+        private final AtomicLongArray bits;
+        private final AtomicLong inserted = new AtomicLong();
+
+        Segment(long capacity, double falsePositiveRate) {
+            this.capacity = capacity;
+            this.falsePositiveRate = falsePositiveRate;
+            long optimalBits = (long) Math.ceil(-capacity * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+            this.bits = new AtomicLongArray((int) Math.max(1, (optimalBits + 63) / 64));
+            this.bitSize = (long) bits.length() * 64;
+            this.numHashes = Math.max(1, (int) Math.round((double) bitSize / capacity * Math.log(2)));
+        }
+
+        void put(long hash) {
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 1; i <= numHashes; i++) {
+                long bit = index(hash + i * h2);
+                int word = (int) (bit >>> 6);
+                long mask = 1L << bit;
+                long current;
+                do {
+                    current = bits.get(word);
+                    if ((current & mask) != 0) {
+                        break;
+                    }
+                } while (!bits.compareAndSet(word, current, current | mask));
+            }
+            inserted.incrementAndGet();
+        }
+
+        boolean mightContain(long hash) {
+            long h2 = (hash >>> 32) | 1;
+            for (int i = 1; i <= numHashes; i++) {
+                long bit = index(hash + i * h2);
+                if ((bits.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        long setBits() {
+            long set = 0;
+            for (int i = 0; i < bits.length(); i++) {
+                set += Long.bitCount(bits.get(i));
+            }
+            return set;
+        }
+
+        double fillRatio() {
+            return (double) setBits() / bitSize;
+        }
+
+        private long index(long combinedHash) {
+            return (combinedHash & Long.MAX_VALUE) % bitSize;
+        }
+    }
+}
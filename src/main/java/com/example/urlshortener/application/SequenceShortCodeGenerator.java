@@ -0,0 +1,100 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Hi/lo generator: leases blocks of IDs from the {@code short_code_seq} database sequence
+ * (whose increment is the block size) and base62-encodes them. Codes are unique by construction
+ * and only a block refill costs a database round trip.
+ * Codes stay shorter than the 8-character hash codes until 62^7 IDs have been issued,
+ * so both strategies can share a table without colliding.
+ */
+@Component
+@ConditionalOnProperty(name = "shortener.code-generator", havingValue = "sequence")
+public class SequenceShortCodeGenerator implements ShortCodeGenerator {
+
+    private static final char[] BASE62 =
+            "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz".toCharArray();
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final ReentrantLock refillLock = new ReentrantLock();
+    private final Counter blockRefills;
+    private volatile Block block;
+    private long blockSize;
+
+    public SequenceShortCodeGenerator(ShortUrlPersistenceService shortUrlPersistenceService,
+                                      MeterRegistry meterRegistry) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.blockRefills = Counter.builder("shortener.codes.block.refills")
+                .description("ID blocks leased from the short code sequence")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public String name() {
+        return "sequence";
+    }
+
+    @Override
+    public String generate(String originalUrl, int attempt) {
+        return encodeBase62(nextId());
+    }
+
+    @Override
+    public boolean isCollisionFree() {
+        return true;
+    }
+
+    long nextId() {
+        while (true) {
+            var current = block;
+            if (current != null) {
+                long id = current.next.getAndIncrement();
+                if (id < current.end) {
+                    return id;
+                }
+            }
+            refill(current);
+        }
+    }
+
+    private void refill(Block exhausted) {
+        refillLock.lock();
+        try {
+            if (block != exhausted) {
+                return; // another thread already leased a new block
+            }
+            if (blockSize == 0) {
+                blockSize = shortUrlPersistenceService.codeBlockSize();
+            }
+            long start = shortUrlPersistenceService.nextCodeBlockStart();
+            block = new Block(new AtomicLong(start), start + blockSize);
+            blockRefills.increment();
+        } finally {
+            refillLock.unlock();
+        }
+    }
+
+    static String encodeBase62(long value) {
+        if (value == 0) {
+            return "0";
+        }
+        var buffer = new char[11];
+        int position = buffer.length;
+        while (value > 0) {
+            buffer[--position] = BASE62[(int) (value % 62)];
+            value /= 62;
+        }
+        return new String(buffer, position, buffer.length - position);
+    }
+
+    private record Block(AtomicLong next, long end) {
+    }
+}
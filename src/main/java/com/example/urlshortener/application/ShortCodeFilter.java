@@ -0,0 +1,196 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * In-memory Bloom filter over all issued short URLs.
+ * A negative answer is definitive, so collision probes and redirects for unknown codes can skip the database.
+ * The filter is built by streaming the table after startup and updated on every save made by this process;
+ * until the first build completes every short URL is reported as possibly present.
+ * <p>
+ * Links created by other processes are picked up by a refresh every {@code shortener.filter.refresh-interval-ms},
+ * which also drops their negative redirect cache entries: such a link answers 404 here for at most about one
+ * refresh interval after it was created.
+ */
+@Component
+public class ShortCodeFilter {
+
+    private static final Logger log = LogManager.getLogger(ShortCodeFilter.class);
+    // created_at is the start of the creating transaction, which may commit after a refresh has passed it
+    private static final Duration REFRESH_OVERLAP = Duration.ofMinutes(1);
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final RedirectCache redirectCache;
+    private final boolean enabled;
+    private final long expectedInsertions;
+    private final double falsePositiveRate;
+    private final AtomicBoolean rebuilding = new AtomicBoolean();
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Counter definitelyAbsent;
+    private final Counter refreshed;
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+
+    private volatile ScalableBloomFilter filter;
+    // Receives concurrent additions while a rebuild is streaming the table
+    private volatile ScalableBloomFilter pending;
+    private volatile Instant lastRebuild;
+    private volatile Duration lastRebuildDuration;
+    // System.nanoTime() at the start of the last rebuild or refresh; links created before are in the filter
+    private volatile long coveredSince;
+
+    public ShortCodeFilter(ShortUrlPersistenceService shortUrlPersistenceService,
+                           RedirectCache redirectCache,
+                           @Value("${shortener.filter.enabled:true}") boolean enabled,
+                           @Value("${shortener.filter.expected-insertions:1000000}") long expectedInsertions,
+                           @Value("${shortener.filter.false-positive-rate:0.01}") double falsePositiveRate,
+                           MeterRegistry meterRegistry) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.redirectCache = redirectCache;
+        this.enabled = enabled;
+        this.expectedInsertions = expectedInsertions;
+        this.falsePositiveRate = falsePositiveRate;
+        this.definitelyAbsent = Counter.builder("shortener.filter.absent")
+                .description("Short URL lookups answered as definitely absent without querying the database")
+                .register(meterRegistry);
+        this.refreshed = Counter.builder("shortener.filter.refreshed")
+                .description("Short URLs created by other processes added to the filter by a refresh")
+                .register(meterRegistry);
+        Gauge.builder("shortener.filter.false.positive.rate", this, f -> f.stats().expectedFalsePositiveRate())
+                .register(meterRegistry);
+        Gauge.builder("shortener.filter.fill.ratio", this, f -> f.stats().fillRatio())
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void buildOnStartup() {
+        if (enabled) {
+            var thread = new Thread(this::rebuild, "short-code-filter-build");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Returns false only if the short URL has certainly never been stored.
+     */
+    public boolean mightContain(String shortUrl) {
+        var current = filter;
+        if (current == null || current.mightContain(shortUrl)) {
+            return true;
+        }
+        definitelyAbsent.increment();
+        return false;
+    }
+
+    public void add(String shortUrl) {
+        var current = filter;
+        if (current != null) {
+            current.put(shortUrl);
+        }
+        var building = pending;
+        if (building != null) {
+            building.put(shortUrl);
+        }
+    }
+
+    /**
+     * Rebuilds the filter from the database and swaps it in; concurrent additions are kept.
+     * Returns false if the filter is disabled or a rebuild is already running.
+     */
+    public boolean rebuild() {
+        if (!enabled || !rebuilding.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            long start = System.nanoTime();
+            var building = new ScalableBloomFilter(expectedInsertions, falsePositiveRate);
+            pending = building;
+            shortUrlPersistenceService.forEachShortUrl(building::put);
+            filter = building;
+            coveredSince = start;
+            lastRebuild = Instant.now();
+            lastRebuildDuration = Duration.ofNanos(System.nanoTime() - start);
+            log.info("Short code filter built with {} entries in {} ms",
+                    building.approximateCount(), lastRebuildDuration.toMillis());
+            return true;
+        } catch (RuntimeException e) {
+            log.warn("Failed to build short code filter", e);
+            return false;
+        } finally {
+            pending = null;
+            rebuilding.set(false);
+        }
+    }
+
+    /**
+     * Adds the short URLs created since the previous refresh or rebuild, whichever process created them, and drops
+     * the negative redirect cache entries of those the filter did not know yet.
+     */
+    @Scheduled(fixedDelayString = "${shortener.filter.refresh-interval-ms:5000}")
+    public void refresh() {
+        if (!enabled || filter == null || !refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            long start = System.nanoTime();
+            var lookback = Duration.ofNanos(start - coveredSince).plus(REFRESH_OVERLAP);
+            int added = 0;
+            for (var shortUrl : shortUrlPersistenceService.findShortUrlsCreatedWithin(lookback)) {
+                boolean known = filter.mightContain(shortUrl);
+                // Also into a rebuild that is streaming the table, in case it has passed this row
+                add(shortUrl);
+                if (!known) {
+                    // Only once the filter has it, so that the next lookup does not cache it as missing again
+                    var shortCode = shortUrl.substring(baseUrl.length() + 1);
+                    if (redirectCache.isMissing(shortCode)) {
+                        redirectCache.invalidate(shortCode);
+                    }
+                    added++;
+                }
+            }
+            coveredSince = start;
+            refreshed.increment(added);
+        } catch (RuntimeException e) {
+            log.warn("Failed to refresh short code filter", e);
+        } finally {
+            refreshing.set(false);
+        }
+    }
+
+    public Stats stats() {
+        var current = filter;
+        if (current == null) {
+            return new Stats(enabled, false, rebuilding.get(), 0, 0, 0, 0.0, 1.0, null, null);
+        }
+        return new Stats(enabled, true, rebuilding.get(), current.approximateCount(), current.segmentCount(),
+                current.bitSize(), current.fillRatio(), current.expectedFalsePositiveRate(),
+                lastRebuild, lastRebuildDuration);
+    }
+
+    public record Stats(boolean enabled,
+                        boolean ready,
+                        boolean rebuilding,
+                        long approximateCount,
+                        int segments,
+                        long bits,
+                        double fillRatio,
+                        double expectedFalsePositiveRate,
+                        Instant lastRebuild,
+                        Duration lastRebuildDuration) {
+    }
+}
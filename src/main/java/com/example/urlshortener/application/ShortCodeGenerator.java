@@ -0,0 +1,47 @@
+package com.example.urlshortener.application;
+
+/**
+ * Strategy for turning an original URL into a short code (the part after the prefix).
+ * The active implementation is selected with {@code shortener.code-generator}.
+ */
+public interface ShortCodeGenerator {
+
+    /**
+     * Upper bound on the length of any generated code, with headroom over both strategies (8 and at most 11).
+     */
+    int MAX_CODE_LENGTH = 32;
+
+    /**
+     * Name used to tag metrics, e.g. {@code hash} or {@code sequence}.
+     */
+    String name();
+
+    /**
+     * Generates a short code for the URL. {@code attempt} is incremented after each collision.
+     */
+    String generate(String originalUrl, int attempt);
+
+    /**
+     * True if generated codes are unique by construction, so a constraint violation is never a code collision.
+     */
+    boolean isCollisionFree();
+
+    /**
+     * True if the code could have been issued: 1 to {@link #MAX_CODE_LENGTH} Base64url characters, which covers
+     * both the Base64url and the base62 alphabet. Checked in place, so malformed codes on the redirect path are
+     * rejected without allocating and without reaching the cache or the database.
+     */
+    static boolean isWellFormed(String code) {
+        int length = code.length();
+        if (length == 0 || length > MAX_CODE_LENGTH) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = code.charAt(i);
+            if (!(c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' || c >= '0' && c <= '9' || c == '-' || c == '_')) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
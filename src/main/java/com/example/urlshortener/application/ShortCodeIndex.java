@@ -0,0 +1,118 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Optional full-dataset index of short code -> original URL held in a {@link PrimitiveUrlTable}, so that a
+ * single node can resolve every link it knows without the database and at a fraction of the heap of a
+ * {@code Map<String, String>}. The table is loaded by streaming the database after startup and updated on
+ * every save made by this process.
+ * A miss is not definitive (codes saved by other nodes, codes too long to pack, or a load still in progress),
+ * so callers fall back to the database on a miss.
+ */
+@Component
+public class ShortCodeIndex {
+
+    private static final Logger log = LogManager.getLogger(ShortCodeIndex.class);
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final PrimitiveUrlTable table;
+    private final Counter hits;
+    private final Counter misses;
+    private volatile boolean ready;
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+
+    public ShortCodeIndex(ShortUrlPersistenceService shortUrlPersistenceService,
+                          @Value("${shortener.index.enabled:false}") boolean enabled,
+                          @Value("${shortener.index.off-heap:false}") boolean offHeap,
+                          @Value("${shortener.index.expected-entries:1000000}") int expectedEntries,
+                          MeterRegistry meterRegistry) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.table = enabled ? new PrimitiveUrlTable(expectedEntries, offHeap) : null;
+        this.hits = Counter.builder("shortener.index.lookups").tag("result", "hit")
+                .description("Redirect cache misses resolved by the short code index")
+                .register(meterRegistry);
+        this.misses = Counter.builder("shortener.index.lookups").tag("result", "miss")
+                .description("Redirect cache misses the short code index could not resolve")
+                .register(meterRegistry);
+        Gauge.builder("shortener.index.entries", this, index -> index.table == null ? 0 : index.table.size())
+                .register(meterRegistry);
+        Gauge.builder("shortener.index.arena.bytes", this, index -> index.table == null ? 0 : index.table.arenaCapacity())
+                .description("Bytes reserved for URL data, off the heap if shortener.index.off-heap is set")
+                .register(meterRegistry);
+        Gauge.builder("shortener.index.table.bytes", this, index -> index.table == null ? 0 : index.table.tableBytes())
+                .description("Heap bytes of the packed key and value arrays")
+                .register(meterRegistry);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadOnStartup() {
+        if (table != null) {
+            var thread = new Thread(this::load, "short-code-index-load");
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    /**
+     * Streams all mappings of this prefix into the index. Saves made while loading go into the same table,
+     * and adding a code twice keeps the first mapping, so nothing is lost or duplicated.
+     */
+    void load() {
+        try {
+            long start = System.nanoTime();
+            var prefix = baseUrl + "/";
+            var skipped = new long[1];
+            shortUrlPersistenceService.forEachMapping((shortUrl, originalUrl) -> {
+                if (!shortUrl.startsWith(prefix) || !table.put(shortUrl.substring(prefix.length()), originalUrl)) {
+                    skipped[0]++;
+                }
+            });
+            ready = true;
+            log.info("Short code index loaded with {} entries ({} skipped) in {} ms, {} MB of URL data {}",
+                    table.size(), skipped[0], (System.nanoTime() - start) / 1_000_000,
+                    table.arenaBytes() >> 20, table.isOffHeap() ? "off-heap" : "on-heap");
+        } catch (RuntimeException e) {
+            log.warn("Failed to load short code index, unresolved codes fall back to the database", e);
+        }
+    }
+
+    public boolean isEnabled() {
+        return table != null;
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Returns the original URL for the short code, or null if the index does not hold it.
+     */
+    public String get(String shortCode) {
+        if (table == null) {
+            return null;
+        }
+        var originalUrl = table.get(shortCode);
+        (originalUrl != null ? hits : misses).increment();
+        return originalUrl;
+    }
+
+    /**
+     * Adds a freshly stored mapping; codes that cannot be packed are left to the database.
+     */
+    public void put(String shortCode, String originalUrl) {
+        if (table != null) {
+            table.put(shortCode, originalUrl);
+        }
+    }
+}
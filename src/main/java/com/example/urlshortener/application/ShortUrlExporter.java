@@ -0,0 +1,153 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ExportQuery;
+import com.example.urlshortener.persistence.ExportRow;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Writes all links with their counts as NDJSON or CSV, row by row as they come off a database cursor, so an
+ * export of any size runs in constant memory. Rows are in id order and carry their id, so an interrupted export
+ * is resumed by asking for the rows after the last id received.
+ */
+@Component
+public class ShortUrlExporter {
+
+    private static final Logger log = LogManager.getLogger(ShortUrlExporter.class);
+    private static final String CSV_HEADER = "id,short_url,original_url,request_count,used_count,created_at\n";
+
+    public enum Format {
+        NDJSON, CSV
+    }
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final ObjectMapper objectMapper;
+    private final Counter exportedRows;
+    private final Timer exportTimer;
+
+    public ShortUrlExporter(ShortUrlPersistenceService shortUrlPersistenceService, ObjectMapper objectMapper,
+                            MeterRegistry meterRegistry) {
+        this.shortUrlPersistenceService = shortUrlPersistenceService;
+        this.objectMapper = objectMapper;
+        this.exportedRows = Counter.builder("shortener.export.rows")
+                .description("Rows written by exports")
+                .register(meterRegistry);
+        this.exportTimer = Timer.builder("shortener.export")
+                .description("Time to stream an export, including the client reading it")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Writes the selected rows to {@code output} and returns their number. The output is flushed but not closed.
+     */
+    public long export(Format format, ExportQuery query, OutputStream output) throws IOException {
+        long start = System.nanoTime();
+        var rows = new long[1];
+        try {
+            if (format == Format.NDJSON) {
+                writeNdjson(query, output, rows);
+            } else {
+                writeCsv(query, output, rows);
+            }
+        } catch (UncheckedIOException e) {
+            log.info("Export aborted after {} rows: {}", rows[0], e.getCause().getMessage());
+            throw e.getCause();
+        } finally {
+            exportedRows.increment(rows[0]);
+            exportTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+        return rows[0];
+    }
+
+    private void writeNdjson(ExportQuery query, OutputStream output, long[] rows) throws IOException {
+        try (var generator = objectMapper.createGenerator(output)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Lines are separated explicitly; the default separator would prefix every object after the first
+            generator.setRootValueSeparator(null);
+            shortUrlPersistenceService.exportRows(query, unchecked(row -> {
+                generator.writeStartObject();
+                generator.writeNumberField("id", row.id());
+                generator.writeStringField("shortUrl", row.shortUrl());
+                generator.writeStringField("originalUrl", row.originalUrl());
+                generator.writeNumberField("requestCount", row.requestCount());
+                generator.writeNumberField("usedCount", row.usedCount());
+                generator.writeStringField("createdAt", row.createdAt().toString());
+                generator.writeEndObject();
+                generator.writeRaw('\n');
+                rows[0]++;
+            }));
+        }
+    }
+
+    private void writeCsv(ExportQuery query, OutputStream output, long[] rows) throws IOException {
+        var writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        writer.write(CSV_HEADER);
+        shortUrlPersistenceService.exportRows(query, unchecked(row -> {
+            writer.write(Long.toString(row.id()));
+            writer.write(',');
+            writeCsvField(writer, row.shortUrl());
+            writer.write(',');
+            writeCsvField(writer, row.originalUrl());
+            writer.write(',');
+            writer.write(Integer.toString(row.requestCount()));
+            writer.write(',');
+            writer.write(Integer.toString(row.usedCount()));
+            writer.write(',');
+            writer.write(row.createdAt().toString());
+            writer.write('\n');
+            rows[0]++;
+        }));
+        writer.flush();
+    }
+
+    /**
+     * RFC 4180: fields containing a separator, quote or line break are quoted, with quotes doubled.
+     */
+    static void writeCsvField(Writer writer, String value) throws IOException {
+        boolean quote = false;
+        for (int i = 0; i < value.length() && !quote; i++) {
+            char c = value.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+
+    private static Consumer<ExportRow> unchecked(RowWriter rowWriter) {
+        return row -> {
+            try {
+                rowWriter.write(row);
+            } catch (IOException e) {
+                // Typically the client went away; surfaces through the cursor and ends the transaction
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface RowWriter {
+        void write(ExportRow row) throws IOException;
+    }
+}
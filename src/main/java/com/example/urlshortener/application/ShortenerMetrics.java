@@ -0,0 +1,107 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Meters for the shorten and redirect pipelines, shared by the servlet and reactive services.
+ * Database time per operation is recorded separately as {@code shortener.db.operation}.
+ */
+@Component
+public class ShortenerMetrics {
+
+    private final Timer codeGeneration;
+    private final Counter generatedCodes;
+    private final DistributionSummary shortenAttempts;
+    private final Counter codeCollisions;
+    private final Timer shortenCreated;
+    private final Timer shortenExisting;
+    private final Timer shortenFailed;
+    private final Timer redirectFound;
+    private final Timer redirectNotFound;
+    private final Counter notFound;
+    private final MeterRegistry meterRegistry;
+
+    public ShortenerMetrics(MeterRegistry meterRegistry, ShortCodeGenerator shortCodeGenerator) {
+        this.meterRegistry = meterRegistry;
+        this.codeGeneration = Timer.builder("shortener.codes.generation")
+                .description("Time to generate a single short code")
+                .tag("strategy", shortCodeGenerator.name())
+                .register(meterRegistry);
+        this.generatedCodes = Counter.builder("shortener.codes.generated")
+                .description("Short codes generated, including ones discarded after a collision")
+                .tag("strategy", shortCodeGenerator.name())
+                .register(meterRegistry);
+        this.shortenAttempts = DistributionSummary.builder("shortener.shorten.attempts")
+                .description("Upsert attempts needed per shortened URL; more than one means short code collisions")
+                .tag("strategy", shortCodeGenerator.name())
+                .serviceLevelObjectives(1, 2, 3, 4, 5)
+                .register(meterRegistry);
+        this.codeCollisions = Counter.builder("shortener.shorten.collisions")
+                .description("Upserts rejected by the short_url constraint (DataIntegrityViolationException) and retried")
+                .tag("strategy", shortCodeGenerator.name())
+                .register(meterRegistry);
+        this.shortenCreated = shortenTimer(meterRegistry, "created");
+        this.shortenExisting = shortenTimer(meterRegistry, "existing");
+        this.shortenFailed = shortenTimer(meterRegistry, "failed");
+        this.redirectFound = redirectTimer(meterRegistry, "found");
+        this.redirectNotFound = redirectTimer(meterRegistry, "not_found");
+        this.notFound = Counter.builder("shortener.redirect.not.found")
+                .description("Redirects answered with 404")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A single-flight group whose calls are counted under the given operation name.
+     */
+    <K, V> SingleFlight<K, V> singleFlight(String operation) {
+        return new SingleFlight<>(operation, meterRegistry);
+    }
+
+    private static Timer shortenTimer(MeterRegistry meterRegistry, String outcome) {
+        return Timer.builder("shortener.shorten")
+                .description("End-to-end time to shorten a URL, including retries")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+
+    private static Timer redirectTimer(MeterRegistry meterRegistry, String result) {
+        return Timer.builder("shortener.redirect.lookup")
+                .description("Time to resolve a short URL through the cache, the filter and the database")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    void codeGenerated(long nanos) {
+        codeGeneration.record(nanos, TimeUnit.NANOSECONDS);
+        generatedCodes.increment();
+    }
+
+    void codeCollision() {
+        codeCollisions.increment();
+    }
+
+    void shortened(boolean created, int attempts, long nanos) {
+        shortenAttempts.record(attempts);
+        (created ? shortenCreated : shortenExisting).record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void shortenFailed(int attempts, long nanos) {
+        shortenAttempts.record(attempts);
+        shortenFailed.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    void redirectResolved(boolean found, long nanos) {
+        if (found) {
+            redirectFound.record(nanos, TimeUnit.NANOSECONDS);
+        } else {
+            redirectNotFound.record(nanos, TimeUnit.NANOSECONDS);
+            notFound.increment();
+        }
+    }
+}
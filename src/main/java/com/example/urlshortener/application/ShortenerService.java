@@ -8,112 +8,192 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Component;
 
-import java.nio.charset.StandardCharsets;
-import java.security.MessageDigest;
-import java.util.Base64;
+import java.time.Instant;
 import java.util.Optional;
+import java.util.function.Function;
 
 @Component
 public class ShortenerService {
 
     private final ShortUrlPersistenceService shortUrlPersistenceService;
+    private final RedirectCache redirectCache;
+    private final ClickCounterBuffer clickCounterBuffer;
+    private final ClickRollupBuffer clickRollupBuffer;
+    private final ShortCodeFilter shortCodeFilter;
+    private final ShortCodeIndex shortCodeIndex;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final LinkExpiry linkExpiry;
+    private final ShortenerMetrics metrics;
+    private final SingleFlight<String, ShortUrlDto> shortens;
+    private final SingleFlight<String, Optional<ShortUrlDto>> statisticsLookups;
+    // Bound once, so that a cache hit does not allocate a capturing lambda
+    private final Function<String, Optional<RedirectTarget>> loader = this::load;
     @Value("${shortener.prefix}")
-    private String baseUrl = "short.ly/";
+    private String baseUrl = "short.ly";
     private static final Logger log = LogManager.getLogger(ShortenerService.class);
 
-    public ShortenerService(ShortUrlPersistenceService shortUrlPersistenceService) {
+    public ShortenerService(ShortUrlPersistenceService shortUrlPersistenceService,
+                            RedirectCache redirectCache,
+                            ClickCounterBuffer clickCounterBuffer,
+                            ClickRollupBuffer clickRollupBuffer,
+                            ShortCodeFilter shortCodeFilter,
+                            ShortCodeIndex shortCodeIndex,
+                            ShortCodeGenerator shortCodeGenerator,
+                            LinkExpiry linkExpiry,
+                            ShortenerMetrics metrics) {
         this.shortUrlPersistenceService = shortUrlPersistenceService;
-
+        this.redirectCache = redirectCache;
+        this.clickCounterBuffer = clickCounterBuffer;
+        this.clickRollupBuffer = clickRollupBuffer;
+        this.shortCodeFilter = shortCodeFilter;
+        this.shortCodeIndex = shortCodeIndex;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.linkExpiry = linkExpiry;
+        this.metrics = metrics;
+        this.shortens = metrics.singleFlight("shorten");
+        this.statisticsLookups = metrics.singleFlight("stats");
     }
 
     /**
-     * Attempts to shorten the given URL using an optimistic save-first strategy.
-     * In most cases, a new short URL is created and saved. If a unique constraint violation occurs,
-     * it means the URL was already shortened concurrently, so we fall back to retrieving the existing entry.
-     * This avoids unnecessary pre-checks and handles race conditions gracefully with minimal locking.
+     * Shortens the given URL with a single upsert per attempt: the row is inserted, or, if the URL was
+     * already shortened (possibly concurrently), the existing row's request count is incremented and
+     * returned by the same statement. Only a short code collision with a different URL makes an attempt
+     * fail; the code is then regenerated with the next attempt number. Limits the number of retries to
+     * avoid infinite loops.
+     * <p>
+     * Concurrent calls for the same URL share one upsert; the requests that joined it are added to the request
+     * count with a single update afterwards, and are answered with the count as the upsert returned it.
      */
     public ShortUrlDto shortenUrl(String originalUrl) {
-        try {
-            // Try to create and save new short URL
-            return createShortUrl(originalUrl);
-        } catch (DataIntegrityViolationException e) {
-            log.info("URL already shortened: {}", originalUrl);
-            // Likely unique constraint violation (URL already shortened)
-            // So fetch the existing entry and increment request count
-            var existingEntryOpt = shortUrlPersistenceService.findByOriginalUrl(originalUrl);
-            if (existingEntryOpt.isPresent()) {
-                ShortUrlDto existing = existingEntryOpt.get();
-                shortUrlPersistenceService.incrementRequestCount(existing.getShortUrl());
-                return new ShortUrlDto(
-                        existing.getShortUrl(),
-                        existing.getOriginalUrl(),
-                        existing.getRequestCount() + 1,
-                        existing.getUsedCount());
-            } else {
-                // Very rare case: data integrity exception but no existing record found
-                // Could throw or handle accordingly
-                log.warn("Failed to shorten URL and no existing record found: {}", originalUrl);
-                throw new RuntimeException("Failed to shorten URL and no existing record found", e);
+        return shortenUrl(originalUrl, null, null, null);
+    }
+
+    /**
+     * Like {@link #shortenUrl(String)}, storing a redirect policy override (null = configured default) and an
+     * expiry (null = configured default time to live) with a newly created link. A link's policy and expiry are
+     * fixed at creation: shortening an existing URL returns it unchanged, unless it has expired, in which case it
+     * is revived with the new expiry.
+     */
+    public ShortUrlDto shortenUrl(String originalUrl, Integer redirectStatus, Integer cacheMaxAge, Instant expiresAt) {
+        return shortens.execute(originalUrl, () -> upsert(originalUrl, redirectStatus, cacheMaxAge, expiresAt),
+                this::addSharedRequests);
+    }
+
+    private ShortUrlDto upsert(String originalUrl, Integer redirectStatus, Integer cacheMaxAge, Instant requestedExpiry) {
+        long start = System.nanoTime();
+        var expiresAt = linkExpiry.expiresAt(requestedExpiry);
+        for (int attempt = 0; attempt < MAX_RETRIES; attempt++) {
+            var shortUrl = baseUrl + "/" + generateCode(originalUrl, attempt);
+            try {
+                var result = shortUrlPersistenceService.upsert(
+                        new ShortUrlDto(shortUrl, originalUrl, 1, 0, redirectStatus, cacheMaxAge, 0, expiresAt));
+                var stored = result.shortUrl();
+                if (!stored.getOriginalUrl().equals(originalUrl)) {
+                    // Two URLs with the same SHA-256 digest
+                    metrics.shortenFailed(attempt + 1, System.nanoTime() - start);
+                    throw new IllegalStateException("Digest collision for " + originalUrl);
+                }
+                if (result.inserted()) {
+                    shortCodeFilter.add(stored.getShortUrl());
+                    var shortCode = stored.getShortUrl().substring(baseUrl.length() + 1);
+                    redirectCache.put(shortCode, RedirectTarget.of(stored));
+                    if (stored.isPlainRedirect()) {
+                        shortCodeIndex.put(shortCode, stored.getOriginalUrl());
+                    }
+                    linkExpiry.schedule(stored.getShortUrl(), stored.getExpiresAt());
+                } else if (expiresAt != null && expiresAt.equals(stored.getExpiresAt())) {
+                    // An expired link revived with the new expiry; its cached target is gone or stale
+                    log.info("Expired URL shortened again: {}", originalUrl);
+                    redirectCache.put(stored.getShortUrl().substring(baseUrl.length() + 1), RedirectTarget.of(stored));
+                    linkExpiry.schedule(stored.getShortUrl(), stored.getExpiresAt());
+                } else {
+                    log.info("URL already shortened: {}", originalUrl);
+                }
+                metrics.shortened(result.inserted(), attempt + 1, System.nanoTime() - start);
+                return stored;
+            } catch (DataIntegrityViolationException e) {
+                if (shortCodeGenerator.isCollisionFree()) {
+                    metrics.shortenFailed(attempt + 1, System.nanoTime() - start);
+                    throw e; // not a short code collision, retrying would not help
+                }
+                // The generated short code is already taken by a different URL
+                metrics.codeCollision();
+                log.info("Short URL collision for {} on attempt {}", originalUrl, attempt);
             }
         }
+        metrics.shortenFailed(MAX_RETRIES, System.nanoTime() - start);
+        log.warn("Failed to generate unique short URL after retries: {}", originalUrl);
+        throw new RuntimeException("Failed to generate unique short URL after retries");
     }
 
 
+    private void addSharedRequests(ShortUrlDto stored, int requests) {
+        try {
+            shortUrlPersistenceService.addRequestCount(stored.getShortUrl(), requests);
+        } catch (RuntimeException e) {
+            // The link itself is stored, only its request count falls short
+            log.warn("Failed to add {} coalesced requests to {}", requests, stored.getShortUrl(), e);
+        }
+    }
+
+    /**
+     * Records a redirect in the write-behind click buffer and the per-minute rollup buffer;
+     * the database is updated on their next flush.
+     */
     public void incrementUsedCount(String shortUrl) {
-        shortUrlPersistenceService.incrementUsedCount(shortUrl);
+        clickCounterBuffer.record(shortUrl);
+        clickRollupBuffer.record(shortUrl);
     }
 
+    /**
+     * Concurrent lookups of the same short URL share one query. An unknown short URL is answered from the
+     * redirect cache's negative entry, which a miss here creates as well, so repeated lookups do not reach the
+     * database.
+     */
     public ShortUrlDto getStatistics(String shortUrl) {
-        return shortUrlPersistenceService.findByShortUrl(shortUrl).orElse(null);
+        var shortCode = shortUrl.substring(baseUrl.length() + 1);
+        if (redirectCache.isMissing(shortCode)) {
+            return null;
+        }
+        var stats = statisticsLookups.execute(shortUrl, () -> shortUrlPersistenceService.findByShortUrl(shortUrl));
+        if (stats.isEmpty()) {
+            redirectCache.putMissing(shortCode);
+        }
+        return stats.orElse(null);
     }
 
-    public Optional<String> getOriginalUrl(String shortUrl) {
+    /**
+     * Resolves a short code from the redirect path; null if it is malformed or unknown.
+     * A cache hit allocates nothing: the code is validated in place and used as the cache key as is, and the
+     * target carries the canonical short URL and the prebuilt {@code Location} value. Only cache misses for
+     * codes that are neither in the short code index nor ruled out by the short code filter reach the database.
+     */
+    public RedirectTarget resolve(String shortCode) {
+        long start = System.nanoTime();
+        var target = ShortCodeGenerator.isWellFormed(shortCode) ? redirectCache.get(shortCode, loader) : null;
+        metrics.redirectResolved(target != null, System.nanoTime() - start);
+        return target;
+    }
+
+    private Optional<RedirectTarget> load(String shortCode) {
+        var shortUrl = baseUrl + "/" + shortCode;
+        var indexed = shortCodeIndex.get(shortCode);
+        if (indexed != null) {
+            return Optional.of(RedirectTarget.of(shortUrl, indexed));
+        }
+        if (!shortCodeFilter.mightContain(shortUrl)) {
+            return Optional.empty();
+        }
         return shortUrlPersistenceService.findByShortUrl(shortUrl)
-                .map(ShortUrlDto::getOriginalUrl);
+                .map(RedirectTarget::of);
     }
 
     private static final int MAX_RETRIES = 5;
 
-    /**
-     * Generates a short URL for the given original URL using SHA-256 hashing.
-     * If a collision occurs (i.e., the generated short URL already exists), retries with a modified input.
-     * Limits the number of retries to avoid infinite loops.
-     * This approach ensures unique short URLs while remaining deterministic and safe under concurrent access.
-     */
-    private ShortUrlDto createShortUrl(String originalUrl) {
-        try {
-            var digest = MessageDigest.getInstance("SHA-256");
-            String shortUrl;
-            int attempt = 0;
-            String encodedUrl;
-
-            do {
-                var input = (attempt == 0) ? originalUrl : originalUrl + attempt;
-                byte[] hash = digest.digest(input.getBytes(StandardCharsets.UTF_8));
-                encodedUrl = Base64.getUrlEncoder()
-                        .withoutPadding()
-                        .encodeToString(hash)
-                        .substring(0, 8);
-                shortUrl = baseUrl + "/" + encodedUrl;
-
-                if (shortUrlPersistenceService.findByShortUrl(shortUrl).isEmpty()) {
-                    break; // unique shortUrl found
-                }
-                attempt++;
-            } while (attempt < MAX_RETRIES);
-
-            if (attempt == MAX_RETRIES) {
-                log.warn("Failed to generate unique short URL after retries: {}", originalUrl);
-                throw new RuntimeException("Failed to generate unique short URL after retries");
-            }
-
-            var shortUrlDto = new ShortUrlDto(shortUrl, originalUrl, 1, 0);
-            return shortUrlPersistenceService.save(shortUrlDto);
-        } catch (DataIntegrityViolationException e) {
-            throw e;
-        } catch (Exception e) {
-            log.warn("Could not generate short code: {}", originalUrl);
-            throw new RuntimeException("Could not generate short code", e);
-        }
+    private String generateCode(String originalUrl, int attempt) {
+        long start = System.nanoTime();
+        var code = shortCodeGenerator.generate(originalUrl, attempt);
+        metrics.codeGenerated(System.nanoTime() - start);
+        return code;
     }
 }
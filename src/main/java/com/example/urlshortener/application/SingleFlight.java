@@ -0,0 +1,136 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Collapses concurrent calls for the same key into one: the first caller, the leader, runs the operation, and
+ * every caller that arrives while it is in flight waits for and shares its result or exception. The key is
+ * released as soon as the operation completes, so nothing is cached beyond the lifetime of a call.
+ * <p>
+ * Counted as {@code shortener.singleflight.calls}, tagged with the operation and whether the call was coalesced.
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentHashMap<K, Flight<V>> flights = new ConcurrentHashMap<>();
+    private final Counter leaders;
+    private final Counter followers;
+
+    public SingleFlight(String operation, MeterRegistry meterRegistry) {
+        this.leaders = calls(meterRegistry, operation, false);
+        this.followers = calls(meterRegistry, operation, true);
+    }
+
+    static Counter calls(MeterRegistry meterRegistry, String operation, boolean coalesced) {
+        return Counter.builder("shortener.singleflight.calls")
+                .description("Calls that ran an operation, or shared the result of an identical call in flight")
+                .tag("operation", operation)
+                .tag("coalesced", Boolean.toString(coalesced))
+                .register(meterRegistry);
+    }
+
+    public V execute(K key, Supplier<V> operation) {
+        return execute(key, operation, null);
+    }
+
+    /**
+     * Runs the operation, or joins the call in flight for the same key. Once no further caller can join,
+     * the leader passes its result and the number of callers that shared it to {@code onShared}, if there were any.
+     */
+    public V execute(K key, Supplier<V> operation, ObjIntConsumer<V> onShared) {
+        var candidate = new Flight<V>();
+        var flight = join(key, candidate);
+        if (flight != candidate) {
+            return await(flight.result);
+        }
+        V value;
+        try {
+            value = operation.get();
+        } catch (RuntimeException | Error e) {
+            flights.remove(key, flight);
+            flight.result.completeExceptionally(e);
+            throw e;
+        }
+        close(key, flight, value, onShared);
+        return value;
+    }
+
+    /**
+     * Non-blocking variant of {@link #execute(Object, Supplier, ObjIntConsumer)}: the operation returns a future,
+     * and callers that join get a future completed with the same outcome.
+     */
+    public CompletableFuture<V> executeAsync(K key, Supplier<CompletableFuture<V>> operation,
+                                             ObjIntConsumer<V> onShared) {
+        var candidate = new Flight<V>();
+        var flight = join(key, candidate);
+        if (flight != candidate) {
+            return flight.result;
+        }
+        CompletableFuture<V> running;
+        try {
+            running = operation.get();
+        } catch (RuntimeException e) {
+            running = CompletableFuture.failedFuture(e);
+        }
+        running.whenComplete((value, failure) -> {
+            if (failure != null) {
+                flights.remove(key, flight);
+                flight.result.completeExceptionally(failure);
+            } else {
+                close(key, flight, value, onShared);
+            }
+        });
+        return flight.result;
+    }
+
+    private Flight<V> join(K key, Flight<V> candidate) {
+        var flight = flights.compute(key, (k, inFlight) -> {
+            if (inFlight == null) {
+                return candidate;
+            }
+            inFlight.followers++;
+            return inFlight;
+        });
+        (flight == candidate ? leaders : followers).increment();
+        return flight;
+    }
+
+    private void close(K key, Flight<V> flight, V value, ObjIntConsumer<V> onShared) {
+        // Removal takes the same lock as joining, so the follower count is final from here on
+        flights.remove(key, flight);
+        flight.result.complete(value);
+        if (onShared != null && flight.followers > 0) {
+            onShared.accept(value, flight.followers);
+        }
+    }
+
+    int inFlight() {
+        return flights.size();
+    }
+
+    private static <V> V await(CompletableFuture<V> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Flight<V> {
+        private final CompletableFuture<V> result = new CompletableFuture<>();
+        // Only changed inside ConcurrentHashMap.compute for this key
+        private volatile int followers;
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.urlshortener.application;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Space-Saving heavy hitters counter: tracks at most {@code capacity} keys. A key that is not tracked while all
+ * counters are taken replaces the key with the smallest count and inherits that count as its error, so counts
+ * are never underestimated and overestimated by at most {@code error}, which is at most N / capacity after N
+ * offers. Every key seen more than N / capacity times is guaranteed to be tracked.
+ * <p>
+ * Counters are kept in an indexed min-heap, so an offer is O(log capacity) and allocates only when a new key
+ * enters the map. Thread-safe (all methods are synchronized). Once {@link #seal() sealed}, offers are refused,
+ * so that a writer racing with a rotation can move on to the next counter instead of being lost.
+ */
+final class SpaceSaving {
+
+    private final Node[] heap;
+    private final Map<String, Node> nodes;
+    private int size;
+    private boolean sealed;
+
+    SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive, was " + capacity);
+        }
+        this.heap = new Node[capacity];
+        this.nodes = new HashMap<>(capacity * 4 / 3 + 1);
+    }
+
+    /**
+     * Counts one occurrence of {@code key}; returns false, counting nothing, once sealed.
+     */
+    boolean offer(String key) {
+        return offer(key, 1, 0);
+    }
+
+    /**
+     * Counts {@code count} occurrences of {@code key} that may already be overestimated by {@code error}, e.g. the
+     * totals of another counter being merged into this one; returns false, counting nothing, once sealed.
+     */
+    synchronized boolean offer(String key, long count, long error) {
+        if (sealed) {
+            return false;
+        }
+        var node = nodes.get(key);
+        if (node == null) {
+            if (size < heap.length) {
+                node = new Node(key, size);
+                heap[size++] = node;
+                nodes.put(key, node);
+                siftUp(node.index);
+            } else {
+                // Take over the smallest counter
+                node = heap[0];
+                nodes.remove(node.key);
+                node.key = key;
+                node.error = node.count;
+                nodes.put(key, node);
+            }
+        }
+        node.count += count;
+        node.error += error;
+        siftDown(node.index);
+        return true;
+    }
+
+    synchronized void seal() {
+        sealed = true;
+    }
+
+    /**
+     * Adds the count and error of every tracked key to {@code totals}, as {@code {count, error}} pairs.
+     */
+    synchronized void addTo(Map<String, long[]> totals) {
+        for (int i = 0; i < size; i++) {
+            var node = heap[i];
+            var total = totals.computeIfAbsent(node.key, key -> new long[2]);
+            total[0] += node.count;
+            total[1] += node.error;
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    private void siftUp(int index) {
+        var node = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) >>> 1;
+            if (heap[parent].count <= node.count) {
+                break;
+            }
+            move(heap[parent], index);
+            index = parent;
+        }
+        move(node, index);
+    }
+
+    private void siftDown(int index) {
+        var node = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) {
+                break;
+            }
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) {
+                child++;
+            }
+            if (node.count <= heap[child].count) {
+                break;
+            }
+            move(heap[child], index);
+            index = child;
+        }
+        move(node, index);
+    }
+
+    private void move(Node node, int index) {
+        heap[index] = node;
+        node.index = index;
+    }
+
+    private static final class Node {
+        private String key;
+        private long count;
+        private long error;
+        private int index;
+
+        private Node(String key, int index) {
+            this.key = key;
+            this.index = index;
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.urlshortener.application;
+
+import java.util.ArrayDeque;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: {@value #LEVELS} wheels of {@value #SLOTS} slots, where a slot of level n spans
+ * 64<sup>n</sup> ticks. An entry is put into the lowest level whose current window contains its deadline, and is
+ * moved one level down each time the wheel reaches the slot it sits in, so scheduling is O(1) and each entry is
+ * touched at most once per level however far ahead it is due, instead of a priority queue's O(log n) per entry.
+ * <p>
+ * Deadlines are rounded up to whole ticks, so an entry never fires early; entries due further ahead than
+ * {@link #spanMillis()} are refused. Thread-safe (all methods are synchronized); the expiry callback runs
+ * under the lock and must not call back into the wheel.
+ */
+final class TimingWheel<T> {
+
+    private static final int BITS = 6;
+    private static final int SLOTS = 1 << BITS;
+    private static final int LEVELS = 4;
+
+    private final long tickMillis;
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<Entry<T>>[][] wheels = new ArrayDeque[LEVELS][SLOTS];
+    private long currentTick;
+    private int size;
+
+    TimingWheel(long tickMillis, long nowMillis) {
+        if (tickMillis <= 0) {
+            throw new IllegalArgumentException("tick must be positive, was " + tickMillis);
+        }
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    long spanMillis() {
+        return tickMillis << (BITS * LEVELS);
+    }
+
+    /**
+     * Schedules {@code item} to expire at the first tick at or after {@code deadlineMillis}; a deadline that has
+     * passed expires on the next tick. Returns false if the deadline is beyond the span of the wheel.
+     */
+    synchronized boolean schedule(long deadlineMillis, T item) {
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        if (!place(new Entry<>(tick, item))) {
+            return false;
+        }
+        size++;
+        return true;
+    }
+
+    /**
+     * Advances the wheel to {@code nowMillis}, passing every entry that became due to {@code expired},
+     * in deadline order across ticks.
+     */
+    synchronized void advance(long nowMillis, Consumer<T> expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            if (size == 0) {
+                currentTick = targetTick;
+                return;
+            }
+            currentTick++;
+            // Higher levels first, so entries cascading down into this tick's level-0 slot still expire now
+            for (int level = LEVELS - 1; level > 0; level--) {
+                int shift = BITS * level;
+                if ((currentTick & ((1L << shift) - 1)) == 0) {
+                    var cascading = take(level, (int) ((currentTick >>> shift) & (SLOTS - 1)));
+                    if (cascading != null) {
+                        for (var entry : cascading) {
+                            place(entry);
+                        }
+                    }
+                }
+            }
+            var due = take(0, (int) (currentTick & (SLOTS - 1)));
+            if (due != null) {
+                size -= due.size();
+                for (var entry : due) {
+                    expired.accept(entry.item());
+                }
+            }
+        }
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    /**
+     * The window of level n is the 64 slots from the current one; level 0 also takes an entry due this tick,
+     * which only happens while cascading.
+     */
+    private boolean place(Entry<T> entry) {
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = BITS * level;
+            if ((entry.tick() >>> shift) - (currentTick >>> shift) < SLOTS) {
+                int slot = (int) ((entry.tick() >>> shift) & (SLOTS - 1));
+                var bucket = wheels[level][slot];
+                if (bucket == null) {
+                    bucket = wheels[level][slot] = new ArrayDeque<>();
+                }
+                bucket.add(entry);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private ArrayDeque<Entry<T>> take(int level, int slot) {
+        var bucket = wheels[level][slot];
+        if (bucket == null || bucket.isEmpty()) {
+            return null;
+        }
+        wheels[level][slot] = null;
+        return bucket;
+    }
+
+    private record Entry<T>(long tick, T item) {
+    }
+}
@@ -0,0 +1,342 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlImportRepository;
+import com.example.urlshortener.persistence.ShortUrlImportRepository.ImportRow;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Imports links from a CSV or NDJSON file on the server, e.g. when migrating from another shortener. Each line holds
+ * an original URL and optionally a legacy short code, which is kept as is; URLs without one get a generated code.
+ * <p>
+ * The file is read in chunks. Codes for the next chunk are generated on the fork/join pool while the current one
+ * is loaded into the database by {@link ShortUrlImportRepository}, which commits each chunk together with the
+ * import's checkpoint: restarting an interrupted import of the same file skips the lines already committed.
+ * One import runs at a time, on its own thread; its progress is reported by {@link #progress()}.
+ */
+@Component
+public class UrlImporter {
+
+    private static final Logger log = LogManager.getLogger(UrlImporter.class);
+
+    public enum State {
+        IDLE, RUNNING, COMPLETED, FAILED
+    }
+
+    public record Progress(String source, State state, long linesDone, long inserted, long existing, long rejected,
+                           double rowsPerSecond, Instant startedAt, Instant finishedAt, String error) {
+    }
+
+    private final ShortUrlImportRepository importRepository;
+    private final ShortCodeGenerator shortCodeGenerator;
+    private final ShortCodeFilter shortCodeFilter;
+    private final ObjectMapper objectMapper;
+    private final Path importDirectory;
+    private final int chunkSize;
+    private final Counter insertedRows;
+    private final Counter existingRows;
+    private final Counter rejectedRows;
+    private final Timer chunkTimer;
+    @Value("${shortener.prefix}")
+    private String baseUrl = "short.ly";
+
+    private volatile Progress progress = new Progress(null, State.IDLE, 0, 0, 0, 0, 0, null, null, null);
+    // Lines read by this run, as opposed to lines skipped because an earlier run committed them
+    private volatile long linesThisRun;
+    private volatile long runStartNanos;
+
+    public UrlImporter(ShortUrlImportRepository importRepository,
+                       ShortCodeGenerator shortCodeGenerator,
+                       ShortCodeFilter shortCodeFilter,
+                       ObjectMapper objectMapper,
+                       @Value("${shortener.import.directory:imports}") Path importDirectory,
+                       @Value("${shortener.import.chunk-size:10000}") int chunkSize,
+                       MeterRegistry meterRegistry) {
+        this.importRepository = importRepository;
+        this.shortCodeGenerator = shortCodeGenerator;
+        this.shortCodeFilter = shortCodeFilter;
+        this.objectMapper = objectMapper;
+        this.importDirectory = importDirectory;
+        this.chunkSize = chunkSize;
+        this.insertedRows = importedRows(meterRegistry, "inserted");
+        this.existingRows = importedRows(meterRegistry, "existing");
+        this.rejectedRows = importedRows(meterRegistry, "rejected");
+        this.chunkTimer = Timer.builder("shortener.import.chunk")
+                .description("Time to stage and merge one chunk of an import")
+                .register(meterRegistry);
+        Gauge.builder("shortener.import.rows.per.second", this, importer -> importer.progress().rowsPerSecond())
+                .description("Input lines processed per second by the running import")
+                .register(meterRegistry);
+    }
+
+    private static Counter importedRows(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("shortener.import.rows")
+                .description("Imported input lines by outcome")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Starts importing {@code file} in the background, continuing from its checkpoint unless {@code restart} is set.
+     * Returns the progress of the import already running, if there is one. The file is resolved against
+     * {@code shortener.import.directory}; files outside of it are refused.
+     */
+    public synchronized Progress start(Path file, boolean restart) {
+        if (progress.state() == State.RUNNING) {
+            return progress();
+        }
+        var resolved = resolve(file);
+        var source = resolved.toString();
+        var checkpoint = importRepository.begin(source, restart);
+        linesThisRun = 0;
+        runStartNanos = System.nanoTime();
+        progress = new Progress(source, checkpoint.completedAt() != null ? State.COMPLETED : State.RUNNING,
+                checkpoint.linesDone(), checkpoint.inserted(), checkpoint.existing(), checkpoint.rejected(), 0,
+                checkpoint.startedAt(), checkpoint.completedAt(), null);
+        if (progress.state() == State.RUNNING) {
+            var initial = progress;
+            var thread = new Thread(() -> run(resolved, initial), "url-import");
+            thread.setDaemon(true);
+            thread.start();
+        } else {
+            log.info("Import of {} already completed at {}, pass restart to run it again", source,
+                    checkpoint.completedAt());
+        }
+        return progress;
+    }
+
+    /**
+     * The real path of {@code file} in the import directory. Real paths, so that neither ".." nor a symbolic
+     * link leads out of it; every file that cannot be imported gets the same message.
+     */
+    private Path resolve(Path file) {
+        try {
+            var directory = importDirectory.toRealPath();
+            var resolved = directory.resolve(file).toRealPath();
+            if (resolved.startsWith(directory) && Files.isRegularFile(resolved) && Files.isReadable(resolved)) {
+                return resolved;
+            }
+        } catch (IOException e) {
+            // not found, same as outside the directory
+        }
+        throw new IllegalArgumentException("Cannot read " + file + " in the import directory");
+    }
+
+    public Progress progress() {
+        var current = progress;
+        if (current.state() != State.RUNNING) {
+            return current;
+        }
+        double seconds = (System.nanoTime() - runStartNanos) / 1e9;
+        return new Progress(current.source(), current.state(), current.linesDone(), current.inserted(),
+                current.existing(), current.rejected(), seconds > 0 ? linesThisRun / seconds : 0,
+                current.startedAt(), null, null);
+    }
+
+    void run(Path file, Progress initial) {
+        var source = initial.source();
+        progress = initial;
+        log.info("Importing {} from line {}", source, initial.linesDone() + 1);
+        try (var reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (long line = 0; line < initial.linesDone(); line++) {
+                if (reader.readLine() == null) {
+                    break;
+                }
+            }
+            var csv = !isNdjson(file);
+            long lineNumber = initial.linesDone();
+            CompletableFuture<Chunk> current = null;
+            while (true) {
+                var lines = readChunk(reader);
+                if (lines.isEmpty()) {
+                    break;
+                }
+                long firstLine = lineNumber + 1;
+                lineNumber += lines.size();
+                var next = CompletableFuture.supplyAsync(() -> prepare(lines, firstLine, csv));
+                if (current != null) {
+                    merge(source, current.join());
+                }
+                current = next;
+            }
+            if (current != null) {
+                merge(source, current.join());
+            }
+            importRepository.complete(source);
+            var done = progress;
+            progress = new Progress(source, State.COMPLETED, done.linesDone(), done.inserted(), done.existing(),
+                    done.rejected(), progress().rowsPerSecond(), done.startedAt(), Instant.now(), null);
+            log.info("Import of {} completed: {} inserted, {} existing, {} rejected", source, done.inserted(),
+                    done.existing(), done.rejected());
+        } catch (IOException | RuntimeException e) {
+            log.warn("Import of {} failed after line {}, start it again to resume", source, progress.linesDone(), e);
+            var failed = progress;
+            progress = new Progress(source, State.FAILED, failed.linesDone(), failed.inserted(), failed.existing(),
+                    failed.rejected(), 0, failed.startedAt(), Instant.now(), Objects.toString(e.getMessage(), e.toString()));
+        }
+    }
+
+    private List<String> readChunk(BufferedReader reader) throws IOException {
+        var lines = new ArrayList<String>(chunkSize);
+        String line;
+        while (lines.size() < chunkSize && (line = reader.readLine()) != null) {
+            lines.add(line);
+        }
+        return lines;
+    }
+
+    /**
+     * Parses a chunk and generates the missing codes in parallel. Unparseable lines, invalid URLs and unusable
+     * legacy codes are counted as invalid; blank lines and a CSV header are skipped.
+     */
+    Chunk prepare(List<String> lines, long firstLine, boolean csv) {
+        var rows = new ArrayList<ImportRow>(lines.size());
+        long invalid = 0;
+        for (int i = 0; i < lines.size(); i++) {
+            var line = lines.get(i);
+            if (line.isBlank() || (csv && firstLine + i == 1 && isCsvHeader(line))) {
+                continue;
+            }
+            var row = csv ? parseCsv(line) : parseNdjson(line);
+            if (row == null) {
+                log.debug("Rejected line {}", firstLine + i);
+                invalid++;
+            } else {
+                rows.add(row);
+            }
+        }
+        var generated = rows.parallelStream()
+                .map(row -> row.shortUrl() != null ? row
+                        : new ImportRow(row.originalUrl(), baseUrl + "/" + shortCodeGenerator.generate(row.originalUrl(), 0), true))
+                .toList();
+        return new Chunk(generated, firstLine + lines.size() - 1, invalid);
+    }
+
+    private void merge(String source, Chunk chunk) {
+        var sample = Timer.start();
+        var result = importRepository.importChunk(source, chunk.lastLine(), chunk.rows(), chunk.invalid(),
+                (originalUrl, attempt) -> baseUrl + "/" + shortCodeGenerator.generate(originalUrl, attempt));
+        sample.stop(chunkTimer);
+        result.inserted().forEach(shortCodeFilter::add);
+        for (var rejected : result.rejected()) {
+            log.debug("Rejected {}: {} belongs to another URL", rejected.originalUrl(), rejected.shortUrl());
+        }
+        long rejected = result.rejected().size() + chunk.invalid();
+        insertedRows.increment(result.inserted().size());
+        existingRows.increment(result.existing());
+        rejectedRows.increment(rejected);
+        var before = progress;
+        linesThisRun += chunk.lastLine() - before.linesDone();
+        progress = new Progress(source, State.RUNNING, chunk.lastLine(), before.inserted() + result.inserted().size(),
+                before.existing() + result.existing(), before.rejected() + rejected, 0, before.startedAt(), null, null);
+    }
+
+    private ImportRow parseCsv(String line) {
+        var fields = parseCsvLine(line);
+        return fields == null ? null : toRow(fields.get(0), fields.size() > 1 ? fields.get(1) : null);
+    }
+
+    private ImportRow parseNdjson(String line) {
+        try {
+            var value = objectMapper.readTree(line);
+            if (value.isTextual()) {
+                return toRow(value.asText(), null);
+            }
+            return toRow(text(value, "url"), text(value, "code"));
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private static String text(JsonNode value, String field) {
+        var node = value.get(field);
+        return node != null && node.isTextual() ? node.asText() : null;
+    }
+
+    /**
+     * A legacy code may be given bare or as a full short URL of this prefix. Codes the redirect path would
+     * reject as malformed (see {@link ShortCodeGenerator#isWellFormed}) are rejected here, so that every
+     * imported link redirects.
+     */
+    private ImportRow toRow(String originalUrl, String code) {
+        if (originalUrl == null || !BulkShortenerService.isValidUrl(originalUrl.strip())) {
+            return null;
+        }
+        if (code == null || code.isBlank()) {
+            return new ImportRow(originalUrl.strip(), null, false);
+        }
+        var prefix = baseUrl + "/";
+        var shortCode = code.strip().startsWith(prefix) ? code.strip().substring(prefix.length()) : code.strip();
+        if (!ShortCodeGenerator.isWellFormed(shortCode)) {
+            return null;
+        }
+        return new ImportRow(originalUrl.strip(), prefix + shortCode, false);
+    }
+
+    private static boolean isCsvHeader(String line) {
+        var fields = parseCsvLine(line);
+        return fields != null && ("url".equalsIgnoreCase(fields.get(0)) || "original_url".equalsIgnoreCase(fields.get(0)));
+    }
+
+    /**
+     * Splits one RFC 4180 line into its fields, or returns null if a quoted field is not closed. URLs contain no
+     * line breaks, so records never span lines.
+     */
+    static List<String> parseCsvLine(String line) {
+        var fields = new ArrayList<String>(2);
+        var field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            return null;
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private static boolean isNdjson(Path file) {
+        var name = file.getFileName().toString().toLowerCase();
+        return name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json");
+    }
+
+    record Chunk(List<ImportRow> rows, long lastLine, long invalid) {
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.urlshortener.persistence;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket size of a click rollup row; each level is downsampled from the one below it.
+ */
+public enum ClickGranularity {
+    MINUTE(ChronoUnit.MINUTES),
+    HOUR(ChronoUnit.HOURS),
+    DAY(ChronoUnit.DAYS);
+
+    private final ChronoUnit unit;
+
+    ClickGranularity(ChronoUnit unit) {
+        this.unit = unit;
+    }
+
+    public Duration bucketSize() {
+        return unit.getDuration();
+    }
+
+    /**
+     * Start of the (UTC) bucket containing the given instant.
+     */
+    public Instant bucketStart(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    String dbValue() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,89 @@
+package com.example.urlshortener.persistence;
+
+import jakarta.transaction.Transactional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Repository
+public class ClickRollupRepository {
+
+    private static final String ADD_MINUTE_CLICKS_SQL = """
+            INSERT INTO click_rollups (short_url, granularity, bucket_start, clicks)
+            SELECT short_url, 'minute', ?, clicks FROM unnest(?::varchar[], ?::bigint[]) AS t(short_url, clicks)
+            ON CONFLICT (short_url, granularity, bucket_start) DO UPDATE SET clicks = click_rollups.clicks + EXCLUDED.clicks""";
+
+    // Recomputes whole target buckets from the level below, so re-running it over the same range is idempotent
+    private static final String ROLL_UP_SQL = """
+            INSERT INTO click_rollups (short_url, granularity, bucket_start, clicks)
+            SELECT short_url, ?, date_trunc(?, bucket_start, 'UTC') AS bucket, sum(clicks)
+            FROM click_rollups
+            WHERE granularity = ? AND bucket_start >= ? AND bucket_start < ?
+            GROUP BY short_url, bucket
+            ON CONFLICT (short_url, granularity, bucket_start) DO UPDATE SET clicks = EXCLUDED.clicks""";
+
+    private static final String DELETE_OLDER_THAN_SQL =
+            "DELETE FROM click_rollups WHERE granularity = ? AND bucket_start < ?";
+
+    private static final String FIND_SERIES_SQL = """
+            SELECT bucket_start, clicks FROM click_rollups
+            WHERE short_url = ? AND granularity = ? AND bucket_start >= ? AND bucket_start < ?
+            ORDER BY bucket_start""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ClickRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Adds the given counts to the minute buckets starting at {@code minute}, one statement for all short URLs.
+     */
+    @Transactional
+    public void addMinuteClicks(Instant minute, Map<String, Long> clicksByShortUrl) {
+        var shortUrls = clicksByShortUrl.keySet().toArray(String[]::new);
+        var clicks = new Long[shortUrls.length];
+        for (int i = 0; i < shortUrls.length; i++) {
+            clicks[i] = clicksByShortUrl.get(shortUrls[i]);
+        }
+        jdbcTemplate.update(connection -> {
+            var statement = connection.prepareStatement(ADD_MINUTE_CLICKS_SQL);
+            statement.setTimestamp(1, Timestamp.from(minute));
+            statement.setArray(2, connection.createArrayOf("varchar", shortUrls));
+            statement.setArray(3, connection.createArrayOf("int8", clicks));
+            return statement;
+        });
+    }
+
+    /**
+     * Rebuilds the {@code target} buckets in [from, to) from the rows one level below. Returns the rows written.
+     */
+    @Transactional
+    public int rollUp(ClickGranularity source, ClickGranularity target, Instant from, Instant to) {
+        var unit = target.dbValue();
+        return jdbcTemplate.update(ROLL_UP_SQL, unit, unit, source.dbValue(),
+                Timestamp.from(from), Timestamp.from(to));
+    }
+
+    @Transactional
+    public int deleteOlderThan(ClickGranularity granularity, Instant cutoff) {
+        return jdbcTemplate.update(DELETE_OLDER_THAN_SQL, granularity.dbValue(), Timestamp.from(cutoff));
+    }
+
+    /**
+     * Stored clicks per bucket in [from, to), in time order; buckets without clicks are absent.
+     */
+    public Map<Instant, Long> findSeries(String shortUrl, ClickGranularity granularity, Instant from, Instant to) {
+        var series = new LinkedHashMap<Instant, Long>();
+        jdbcTemplate.query(FIND_SERIES_SQL,
+                (RowCallbackHandler) resultSet ->
+                        series.put(resultSet.getTimestamp("bucket_start").toInstant(), resultSet.getLong("clicks")),
+                shortUrl, granularity.dbValue(), Timestamp.from(from), Timestamp.from(to));
+        return series;
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.urlshortener.persistence;
+
+import java.time.Instant;
+
+/**
+ * A link with an expiry, as paged through by the expiry scheduler in (expiresAt, id) order.
+ */
+public record ExpiringLink(long id, String shortUrl, Instant expiresAt) {
+}
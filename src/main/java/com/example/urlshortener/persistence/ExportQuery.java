@@ -0,0 +1,20 @@
+package com.example.urlshortener.persistence;
+
+import java.time.Instant;
+
+/**
+ * Selects the rows of an export, in id order: ids after {@code afterId} (the resumption token, 0 to start from
+ * the beginning), created within [{@code createdFrom}, {@code createdTo}) where given, and at most {@code limit}
+ * rows, 0 meaning all of them.
+ */
+public record ExportQuery(long afterId, Instant createdFrom, Instant createdTo, long limit) {
+
+    public ExportQuery {
+        if (afterId < 0 || limit < 0) {
+            throw new IllegalArgumentException("'after' and 'limit' must not be negative");
+        }
+        if (createdFrom != null && createdTo != null && !createdFrom.isBefore(createdTo)) {
+            throw new IllegalArgumentException("'createdFrom' must be before 'createdTo'");
+        }
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.urlshortener.persistence;
+
+import java.time.Instant;
+
+/**
+ * One row of a {@code short_urls} export; {@code id} is the token to resume an interrupted export after.
+ */
+public record ExportRow(long id, String shortUrl, String originalUrl, int requestCount, int usedCount,
+                        Instant createdAt) {
+}
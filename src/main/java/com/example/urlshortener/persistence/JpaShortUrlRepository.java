@@ -8,14 +8,23 @@ import org.springframework.data.jpa.repository.Query;
 import java.util.Optional;
 
 public interface JpaShortUrlRepository extends JpaRepository<ShortUrlEntity, Long> {
-    Optional<ShortUrlEntity> findByOriginalUrl(String originalUrl);
+    Optional<ShortUrlEntity> findByOriginalUrlSha256(byte[] originalUrlSha256);
+
+    /**
+     * Looks the URL up through the unique digest index and verifies the full URL on match.
+     */
+    default Optional<ShortUrlEntity> findByOriginalUrl(String originalUrl) {
+        return findByOriginalUrlSha256(UrlDigest.sha256(originalUrl))
+                .filter(entity -> entity.getOriginalUrl().equals(originalUrl));
+    }
+
     Optional<ShortUrlEntity> findByShortUrl(String shortUrl);
     @Modifying
     @Transactional
-    @Query("UPDATE ShortUrlEntity s SET s.requestCount = s.requestCount + 1 WHERE s.shortUrl = :shortCode")
+    @Query("UPDATE ShortUrlEntity s SET s.requestCount = s.requestCount + 1, s.version = s.version + 1 WHERE s.shortUrl = :shortCode")
     void incrementRequestCount(String shortCode);
     @Modifying
     @Transactional
-    @Query("UPDATE ShortUrlEntity s SET s.usedCount = s.usedCount + 1 WHERE s.shortUrl = :shortCode")
+    @Query("UPDATE ShortUrlEntity s SET s.usedCount = s.usedCount + 1, s.version = s.version + 1 WHERE s.shortUrl = :shortCode")
     void incrementUsedCount(String shortCode);
 }
@@ -0,0 +1,156 @@
+package com.example.urlshortener.persistence;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.r2dbc.spi.Parameters;
+import io.r2dbc.spi.R2dbcType;
+import io.r2dbc.spi.Readable;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+
+@Repository
+@Profile("reactive")
+public class R2dbcShortUrlRepository implements ReactiveUrlRepository {
+
+    private static final String FIND_BY_SHORT_URL_SQL = """
+            SELECT short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                   expires_at
+            FROM short_urls WHERE short_url = :shortUrl""";
+
+    // Same as the JDBC adapter's: the archive is only scanned if short_urls has no row
+    private static final String FIND_IN_EITHER_TIER_SQL = """
+            SELECT short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                   expires_at, false AS archived
+            FROM short_urls WHERE short_url = :shortUrl
+            UNION ALL
+            SELECT short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                   NULL, true
+            FROM short_urls_archive WHERE short_url = :shortUrl
+            LIMIT 1""";
+
+    private static final String UPSERT_SQL = """
+            INSERT INTO short_urls (short_url, original_url, original_url_sha256, request_count, used_count,
+                                    redirect_status, redirect_max_age, expires_at)
+            SELECT CAST(:shortUrl AS varchar), CAST(:originalUrl AS text), CAST(:originalUrlSha256 AS bytea),
+                   CAST(:requestCount AS int), CAST(:usedCount AS int), CAST(:redirectStatus AS smallint),
+                   CAST(:redirectMaxAge AS int), CAST(:expiresAt AS timestamptz)
+            WHERE NOT EXISTS (SELECT 1 FROM short_urls_archive
+                              WHERE short_url = :shortUrl OR original_url_sha256 = :originalUrlSha256)
+            ON CONFLICT (original_url_sha256) DO UPDATE
+                SET request_count = short_urls.request_count + 1, version = short_urls.version + 1,
+                    expires_at = CASE WHEN short_urls.expires_at <= now() THEN EXCLUDED.expires_at
+                                      ELSE short_urls.expires_at END
+            RETURNING short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                      expires_at, (xmax = 0) AS inserted""";
+
+    // Same as the JDBC adapter's: archived links are moved back once a lookup or an upsert has found them archived
+    private static final String PROMOTE_SQL = """
+            WITH promoted AS (DELETE FROM short_urls_archive
+                              WHERE short_url = :shortUrl OR original_url_sha256 = :originalUrlSha256
+                              RETURNING %1$s)
+            INSERT INTO short_urls (%1$s, last_used_at)
+            SELECT %1$s, now() FROM promoted
+            RETURNING short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                      expires_at""".formatted(ShortUrlRepositoryAdapter.ARCHIVE_COLUMNS);
+
+    private static final String ADD_REQUEST_COUNT_SQL = """
+            UPDATE short_urls SET request_count = request_count + :increment, version = version + 1
+            WHERE short_url = :shortUrl""";
+
+    private final DatabaseClient databaseClient;
+    private final Timer findByShortUrlTimer;
+    private final Timer upsertTimer;
+
+    public R2dbcShortUrlRepository(DatabaseClient databaseClient, MeterRegistry meterRegistry) {
+        this.databaseClient = databaseClient;
+        this.findByShortUrlTimer = ShortUrlPersistenceService.operationTimer(meterRegistry, "findByShortUrl");
+        this.upsertTimer = ShortUrlPersistenceService.operationTimer(meterRegistry, "upsert");
+    }
+
+    /**
+     * Looks into the archive in the same statement and moves the link back only if it is archived; a lookup that
+     * finds it moved back concurrently reads it again.
+     */
+    @Override
+    public Mono<ShortUrlDto> findByShortUrl(String shortUrl) {
+        var find = databaseClient.sql(FIND_IN_EITHER_TIER_SQL)
+                .bind("shortUrl", shortUrl)
+                .map(row -> new StoredLink(toDto(row), Boolean.TRUE.equals(row.get("archived", Boolean.class))))
+                .one();
+        var findAgain = databaseClient.sql(FIND_BY_SHORT_URL_SQL)
+                .bind("shortUrl", shortUrl)
+                .map(R2dbcShortUrlRepository::toDto)
+                .one();
+        return timed(findByShortUrlTimer, find.flatMap(found -> found.archived()
+                ? promote(shortUrl, null).switchIfEmpty(findAgain)
+                : Mono.just(found.shortUrl())));
+    }
+
+    private Mono<ShortUrlDto> promote(String shortUrl, byte[] originalUrlSha256) {
+        return databaseClient.sql(PROMOTE_SQL)
+                .bind("shortUrl", shortUrl)
+                .bind("originalUrlSha256", Parameters.in(R2dbcType.VARBINARY, originalUrlSha256))
+                .map(R2dbcShortUrlRepository::toDto)
+                .all()
+                .collectList()
+                .flatMap(promoted -> Mono.justOrEmpty(promoted.stream()
+                        .filter(dto -> dto.getShortUrl().equals(shortUrl))
+                        .findFirst()));
+    }
+
+    /**
+     * Writes nothing if the URL or the short code is archived; the archived link is then moved back and the
+     * upsert runs again.
+     */
+    @Override
+    public Mono<UpsertResult> upsert(ShortUrlDto shortUrl) {
+        var digest = UrlDigest.sha256(shortUrl.getOriginalUrl());
+        var upsert = databaseClient.sql(UPSERT_SQL)
+                .bind("shortUrl", shortUrl.getShortUrl())
+                .bind("originalUrl", shortUrl.getOriginalUrl())
+                .bind("originalUrlSha256", digest)
+                .bind("requestCount", shortUrl.getRequestCount())
+                .bind("usedCount", shortUrl.getUsedCount())
+                .bind("redirectStatus", Parameters.in(R2dbcType.INTEGER, shortUrl.getRedirectStatus()))
+                .bind("redirectMaxAge", Parameters.in(R2dbcType.INTEGER, shortUrl.getCacheMaxAge()))
+                .bind("expiresAt", Parameters.in(R2dbcType.TIMESTAMP_WITH_TIME_ZONE, shortUrl.getExpiresAt()))
+                .map(row -> new UpsertResult(toDto(row), Boolean.TRUE.equals(row.get("inserted", Boolean.class))))
+                .one();
+        return timed(upsertTimer, upsert.switchIfEmpty(Mono.defer(() -> promote(shortUrl.getShortUrl(), digest)
+                .then(upsert)
+                .switchIfEmpty(Mono.error(() -> new IllegalStateException(
+                        "Archived link not moved back for " + shortUrl.getOriginalUrl()))))));
+    }
+
+    @Override
+    public Mono<Void> addRequestCount(String shortUrl, int increment) {
+        return databaseClient.sql(ADD_REQUEST_COUNT_SQL)
+                .bind("increment", increment)
+                .bind("shortUrl", shortUrl)
+                .then();
+    }
+
+    private static <T> Mono<T> timed(Timer timer, Mono<T> operation) {
+        return Mono.defer(() -> {
+            var sample = Timer.start();
+            return operation.doFinally(signal -> sample.stop(timer));
+        });
+    }
+
+    private static ShortUrlDto toDto(Readable row) {
+        return new ShortUrlDto(
+                row.get("short_url", String.class),
+                row.get("original_url", String.class),
+                row.get("request_count", Integer.class),
+                row.get("used_count", Integer.class),
+                row.get("redirect_status", Integer.class),
+                row.get("redirect_max_age", Integer.class),
+                row.get("version", Long.class),
+                row.get("expires_at", Instant.class));
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.urlshortener.persistence;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of the {@link UrlRepository} operations used by the reactive stack.
+ */
+public interface ReactiveUrlRepository {
+    Mono<ShortUrlDto> findByShortUrl(String shortUrl);
+    Mono<UpsertResult> upsert(ShortUrlDto shortUrl);
+    Mono<Void> addRequestCount(String shortUrl, int increment);
+}
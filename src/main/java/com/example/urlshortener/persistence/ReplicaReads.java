@@ -0,0 +1,63 @@
+package com.example.urlshortener.persistence;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Decides which reads of {@link ShortUrlPersistenceService} may be served by a read replica
+ * (see {@link RoutingDataSource}); without configured replicas every read goes to the single data source.
+ * Short URLs written by this process within the read-your-writes window are read from the primary, and a
+ * lookup that a replica answers with "absent" is confirmed on the primary, so replication lag can delay a
+ * statistic but never turn an existing short URL into a 404.
+ */
+@Component
+public class ReplicaReads {
+
+    private static final long MAX_TRACKED_WRITES = 100_000;
+
+    private final boolean enabled;
+    private final Cache<String, Boolean> recentWrites;
+
+    public ReplicaReads(@Value("${shortener.datasource.replica-urls:}") List<String> replicaUrls,
+                        @Value("${shortener.datasource.read-your-writes-window:10s}") Duration window) {
+        this.enabled = !replicaUrls.isEmpty();
+        this.recentWrites = Caffeine.newBuilder()
+                .expireAfterWrite(window)
+                .maximumSize(MAX_TRACKED_WRITES)
+                .build();
+    }
+
+    /**
+     * Looks up a single short URL, on a replica unless this process wrote it recently.
+     */
+    public <T> Optional<T> find(String shortUrl, Supplier<Optional<T>> lookup) {
+        if (!enabled || recentWrites.getIfPresent(shortUrl) != null) {
+            return lookup.get();
+        }
+        var found = RoutingDataSource.onReplica(lookup);
+        return found.isPresent() ? found : lookup.get();
+    }
+
+    /**
+     * Runs a read that tolerates replication lag on a replica.
+     */
+    public <T> T read(Supplier<T> operation) {
+        return enabled ? RoutingDataSource.onReplica(operation) : operation.get();
+    }
+
+    /**
+     * Records that the short URL was just created or changed on the primary.
+     */
+    public void written(String shortUrl) {
+        if (enabled) {
+            recentWrites.put(shortUrl, Boolean.TRUE);
+        }
+    }
+}
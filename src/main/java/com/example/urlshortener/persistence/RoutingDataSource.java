@@ -0,0 +1,188 @@
+package com.example.urlshortener.persistence;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+
+/**
+ * DataSource that hands out primary connections, except inside {@link #onReplica} where it hands out
+ * connections of a healthy read replica, round-robin. The route is decided when a connection is acquired,
+ * so code already holding a primary connection (an open transaction) keeps reading from the primary.
+ * <p>
+ * Replicas are health-checked on a fixed cadence: a replica is taken out of rotation when it cannot be
+ * reached or replays WAL more than {@code maxLag} behind, and put back once it recovers. A replica whose
+ * connection attempt fails is taken out immediately and the next one (ultimately the primary) is tried,
+ * so a replica outage costs reads nothing but latency.
+ */
+public class RoutingDataSource extends AbstractDataSource {
+
+    private static final Logger log = LogManager.getLogger(RoutingDataSource.class);
+
+    // 0 on the primary and on a replica that has replayed everything it received
+    private static final String REPLICA_LAG_SQL = """
+            SELECT CASE WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0
+                        ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()), 0) END""";
+    private static final ThreadLocal<Boolean> REPLICA_READ = new ThreadLocal<>();
+
+    private final DataSource primary;
+    private final List<Replica> replicas;
+    private final Duration maxLag;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+    private final Counter replicaFailures;
+
+    public RoutingDataSource(DataSource primary, List<DataSource> replicas, Duration maxLag,
+                             MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.maxLag = maxLag;
+        this.replicas = IntStream.range(0, replicas.size())
+                .mapToObj(i -> new Replica("replica-" + i, replicas.get(i)))
+                .toList();
+        this.primaryConnections = Counter.builder("shortener.db.connections").tag("target", "primary")
+                .description("Connections handed out by the routing data source")
+                .register(meterRegistry);
+        this.replicaConnections = Counter.builder("shortener.db.connections").tag("target", "replica")
+                .description("Connections handed out by the routing data source")
+                .register(meterRegistry);
+        this.replicaFailures = Counter.builder("shortener.db.replica.failures")
+                .description("Replica connection attempts that failed and fell back to another data source")
+                .register(meterRegistry);
+        for (var replica : this.replicas) {
+            Gauge.builder("shortener.db.replica.healthy", replica, r -> r.healthy ? 1 : 0)
+                    .tag("replica", replica.name)
+                    .register(meterRegistry);
+            Gauge.builder("shortener.db.replica.lag", replica, r -> r.lagSeconds)
+                    .tag("replica", replica.name)
+                    .baseUnit("seconds")
+                    .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Runs the operation with connections acquired from a read replica. Nested calls and calls inside an
+     * existing transaction behave as documented on the class.
+     */
+    public static <T> T onReplica(Supplier<T> operation) {
+        if (REPLICA_READ.get() != null) {
+            return operation.get();
+        }
+        REPLICA_READ.set(Boolean.TRUE);
+        try {
+            return operation.get();
+        } finally {
+            REPLICA_READ.remove();
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (REPLICA_READ.get() != null) {
+            for (int attempt = 0; attempt < replicas.size(); attempt++) {
+                var replica = replicas.get(Math.floorMod(next.getAndIncrement(), replicas.size()));
+                if (!replica.healthy) {
+                    continue;
+                }
+                try {
+                    var connection = replica.dataSource.getConnection();
+                    replicaConnections.increment();
+                    return connection;
+                } catch (SQLException e) {
+                    replicaFailures.increment();
+                    replica.markUnhealthy(e.getMessage());
+                }
+            }
+        }
+        primaryConnections.increment();
+        return primary.getConnection();
+    }
+
+    /**
+     * Connects to the primary with explicit credentials; replicas are only reached with their pools' own.
+     */
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        primaryConnections.increment();
+        return primary.getConnection(username, password);
+    }
+
+    /**
+     * Probes every replica and updates its place in the rotation.
+     */
+    @Scheduled(fixedDelayString = "${shortener.datasource.replica-health-interval-ms:5000}")
+    public void checkReplicas() {
+        for (var replica : replicas) {
+            try (var connection = replica.dataSource.getConnection();
+                 var statement = connection.createStatement();
+                 var resultSet = statement.executeQuery(REPLICA_LAG_SQL)) {
+                resultSet.next();
+                replica.lagSeconds = resultSet.getDouble(1);
+                if (replica.lagSeconds > maxLag.toMillis() / 1000.0) {
+                    replica.markUnhealthy("replication lag of " + replica.lagSeconds + " s");
+                } else {
+                    replica.markHealthy();
+                }
+            } catch (SQLException e) {
+                replica.markUnhealthy(e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Closes the replica pools; the primary pool is a bean of its own.
+     */
+    public void close() {
+        for (var replica : replicas) {
+            if (replica.dataSource instanceof AutoCloseable closeable) {
+                try {
+                    closeable.close();
+                } catch (Exception e) {
+                    log.warn("Failed to close read replica {}", replica.name, e);
+                }
+            }
+        }
+    }
+
+    int healthyReplicas() {
+        return (int) replicas.stream().filter(replica -> replica.healthy).count();
+    }
+
+    private static final class Replica {
+        private final String name;
+        private final DataSource dataSource;
+        private volatile boolean healthy = true;
+        private volatile double lagSeconds;
+
+        private Replica(String name, DataSource dataSource) {
+            this.name = name;
+            this.dataSource = dataSource;
+        }
+
+        private void markUnhealthy(String reason) {
+            if (healthy) {
+                healthy = false;
+                log.warn("Taking read replica {} out of rotation: {}", name, reason);
+            }
+        }
+
+        private void markHealthy() {
+            if (!healthy) {
+                healthy = true;
+                log.info("Read replica {} is back in rotation", name);
+            }
+        }
+    }
+}
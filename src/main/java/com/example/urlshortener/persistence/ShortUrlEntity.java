@@ -1,16 +1,21 @@
 package com.example.urlshortener.persistence;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
 import jakarta.persistence.Table;
 import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
 
+import java.time.Instant;
+
 @Entity
 @Table(name = "short_urls", uniqueConstraints = {
-        @UniqueConstraint(columnNames = "originalUrl"),
+        @UniqueConstraint(columnNames = "original_url_sha256"),
         @UniqueConstraint(columnNames = "shortUrl")
 })
 
@@ -22,9 +27,27 @@ public class ShortUrlEntity {
 
     private String originalUrl;
 
+    @Column(name = "original_url_sha256", nullable = false, length = 32)
+    private byte[] originalUrlSha256;
+
     private String shortUrl;
 
     private int requestCount;
 
     private int usedCount;
+
+    private Integer redirectStatus;
+
+    private Integer redirectMaxAge;
+
+    // Bumped by the counter updates, not a JPA optimistic lock
+    private long version;
+
+    private Instant expiresAt;
+
+    @PrePersist
+    @PreUpdate
+    void computeOriginalUrlSha256() {
+        originalUrlSha256 = UrlDigest.sha256(originalUrl);
+    }
 }
@@ -0,0 +1,196 @@
+package com.example.urlshortener.persistence;
+
+import jakarta.transaction.Transactional;
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.BiFunction;
+
+/**
+ * Bulk import of links: each chunk is loaded with {@code COPY} into a session-local staging table and merged into
+ * {@code short_urls} with one {@code INSERT ... SELECT}, in the same transaction that advances the import's
+ * checkpoint in {@code url_imports}. A chunk is therefore either fully merged and counted or not at all, and a
+ * restarted import continues after the last committed line.
+ */
+@Repository
+public class ShortUrlImportRepository {
+
+    private static final int MAX_ATTEMPTS = 5;
+
+    // Temporary, so imports on other connections never see each other's rows, and emptied by every commit
+    private static final String CREATE_STAGING_SQL = """
+            CREATE TEMP TABLE IF NOT EXISTS short_url_import_staging (
+                original_url TEXT         NOT NULL,
+                short_url    VARCHAR(255) NOT NULL,
+                generated    BOOLEAN      NOT NULL
+            ) ON COMMIT DELETE ROWS""";
+
+    private static final String COPY_STAGING_SQL =
+            "COPY short_url_import_staging (original_url, short_url, generated) FROM STDIN (FORMAT csv)";
+
+    private static final String TRUNCATE_STAGING_SQL = "TRUNCATE short_url_import_staging";
+
+    // Archived links with a staged short code or URL are moved back first, so the merge sees them as taken
+    private static final String PROMOTE_STAGED_SQL = """
+            WITH matches AS (
+                     SELECT a.id FROM short_url_import_staging s
+                     JOIN short_urls_archive a ON a.short_url = s.short_url
+                     UNION
+                     SELECT a.id FROM short_url_import_staging s
+                     JOIN short_urls_archive a ON a.original_url_sha256 = sha256(convert_to(s.original_url, 'UTF8'))),
+                 promoted AS (DELETE FROM short_urls_archive a USING matches m WHERE a.id = m.id
+                              RETURNING a.*)
+            INSERT INTO short_urls (%1$s, last_used_at)
+            SELECT %1$s, now() FROM promoted""".formatted(ShortUrlRepositoryAdapter.ARCHIVE_COLUMNS);
+
+    // Existing URLs and taken short codes are both skipped; the first occurrence in a chunk wins
+    private static final String MERGE_SQL = """
+            INSERT INTO short_urls (short_url, original_url, original_url_sha256, request_count, used_count)
+            SELECT short_url, original_url, sha256(convert_to(original_url, 'UTF8')), 1, 0
+            FROM short_url_import_staging
+            ON CONFLICT DO NOTHING
+            RETURNING short_url""";
+
+    // A staged URL that is still missing after the merge lost its short code to a different URL
+    private static final String UNMERGED_SQL = """
+            SELECT s.original_url, s.short_url, s.generated FROM short_url_import_staging s
+            WHERE NOT EXISTS (SELECT 1 FROM short_urls u
+                              WHERE u.original_url_sha256 = sha256(convert_to(s.original_url, 'UTF8')))""";
+
+    private static final String FIND_CHECKPOINT_SQL = """
+            SELECT source, lines_done, inserted, existing, rejected, started_at, completed_at
+            FROM url_imports WHERE source = ?""";
+
+    private static final String BEGIN_SQL = "INSERT INTO url_imports (source) VALUES (?) ON CONFLICT (source) DO NOTHING";
+
+    private static final String RESTART_SQL = """
+            INSERT INTO url_imports (source) VALUES (?)
+            ON CONFLICT (source) DO UPDATE SET lines_done = 0, inserted = 0, existing = 0, rejected = 0,
+                started_at = now(), updated_at = now(), completed_at = NULL""";
+
+    private static final String ADVANCE_SQL = """
+            UPDATE url_imports SET lines_done = ?, inserted = inserted + ?, existing = existing + ?,
+                rejected = rejected + ?, updated_at = now()
+            WHERE source = ?""";
+
+    private static final String COMPLETE_SQL = "UPDATE url_imports SET completed_at = now(), updated_at = now() WHERE source = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public ShortUrlImportRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * A link to import: a legacy short URL that must be kept as is, or one the import generated and may replace.
+     */
+    public record ImportRow(String originalUrl, String shortUrl, boolean generated) {
+    }
+
+    public record Checkpoint(String source, long linesDone, long inserted, long existing, long rejected,
+                             Instant startedAt, Instant completedAt) {
+    }
+
+    /**
+     * Outcome of one chunk: the short URLs created, the URLs that already had one, and the rows that could not be
+     * imported because their legacy short URL, or every generated one, belongs to a different URL.
+     */
+    public record ChunkResult(List<String> inserted, long existing, List<ImportRow> rejected) {
+    }
+
+    /**
+     * Returns the checkpoint to continue from, creating it for a new source; {@code restart} resets it.
+     */
+    @Transactional
+    public Checkpoint begin(String source, boolean restart) {
+        jdbcTemplate.update(restart ? RESTART_SQL : BEGIN_SQL, source);
+        return findCheckpoint(source).orElseThrow();
+    }
+
+    public Optional<Checkpoint> findCheckpoint(String source) {
+        return jdbcTemplate.query(FIND_CHECKPOINT_SQL, (rs, rowNum) -> new Checkpoint(
+                        rs.getString("source"),
+                        rs.getLong("lines_done"),
+                        rs.getLong("inserted"),
+                        rs.getLong("existing"),
+                        rs.getLong("rejected"),
+                        rs.getTimestamp("started_at").toInstant(),
+                        rs.getTimestamp("completed_at") != null ? rs.getTimestamp("completed_at").toInstant() : null),
+                source).stream().findFirst();
+    }
+
+    /**
+     * Merges {@code rows} and moves the checkpoint to {@code linesDone}, adding {@code invalid} rows rejected
+     * before staging to its count. Generated short URLs that collide are replaced with
+     * {@code recode.apply(originalUrl, attempt)} and merged again, up to {@value #MAX_ATTEMPTS} attempts in all.
+     */
+    @Transactional
+    public ChunkResult importChunk(String source, long linesDone, List<ImportRow> rows, long invalid,
+                                   BiFunction<String, Integer, String> recode) {
+        var inserted = new ArrayList<String>(rows.size());
+        var rejected = new ArrayList<ImportRow>();
+        long existing = 0;
+        jdbcTemplate.execute(CREATE_STAGING_SQL);
+        var pending = rows;
+        for (int attempt = 1; !pending.isEmpty(); attempt++) {
+            stage(pending);
+            jdbcTemplate.update(PROMOTE_STAGED_SQL);
+            var merged = jdbcTemplate.queryForList(MERGE_SQL, String.class);
+            inserted.addAll(merged);
+            var unmerged = jdbcTemplate.query(UNMERGED_SQL, (rs, rowNum) -> new ImportRow(
+                    rs.getString("original_url"), rs.getString("short_url"), rs.getBoolean("generated")));
+            existing += pending.size() - merged.size() - unmerged.size();
+            var retry = new ArrayList<ImportRow>();
+            for (var row : unmerged) {
+                if (row.generated() && attempt < MAX_ATTEMPTS) {
+                    retry.add(new ImportRow(row.originalUrl(), recode.apply(row.originalUrl(), attempt), true));
+                } else {
+                    rejected.add(row);
+                }
+            }
+            pending = retry;
+            if (!pending.isEmpty()) {
+                jdbcTemplate.execute(TRUNCATE_STAGING_SQL);
+            }
+        }
+        jdbcTemplate.update(ADVANCE_SQL, linesDone, inserted.size(), existing, rejected.size() + invalid, source);
+        return new ChunkResult(inserted, existing, rejected);
+    }
+
+    @Transactional
+    public void complete(String source) {
+        jdbcTemplate.update(COMPLETE_SQL, source);
+    }
+
+    private void stage(List<ImportRow> rows) {
+        var csv = new StringBuilder(rows.size() * 96);
+        for (var row : rows) {
+            appendCsvField(csv, row.originalUrl()).append(',');
+            appendCsvField(csv, row.shortUrl()).append(',').append(row.generated() ? 't' : 'f').append('\n');
+        }
+        var bytes = csv.toString().getBytes(StandardCharsets.UTF_8);
+        // The transaction's connection, so the rows land in the staging table this transaction merges
+        jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            var copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING_SQL);
+            try {
+                copyIn.writeToCopy(bytes, 0, bytes.length);
+                return copyIn.endCopy();
+            } finally {
+                if (copyIn.isActive()) {
+                    copyIn.cancelCopy();
+                }
+            }
+        });
+    }
+
+    private static StringBuilder appendCsvField(StringBuilder csv, String value) {
+        return csv.append('"').append(value.replace("\"", "\"\"")).append('"');
+    }
+}
@@ -1,36 +1,153 @@
 package com.example.urlshortener.persistence;
 
 import com.example.urlshortener.api.ShortUrlDto;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.transaction.Transactional;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Component
 public class ShortUrlPersistenceService {
     private final ShortUrlRepositoryAdapter repositoryAdapter;
+    private final ReplicaReads replicaReads;
+    private final Timer findByShortUrlTimer;
+    private final Timer upsertTimer;
+    private final Timer addUsedCountsTimer;
+    private final Timer nextCodeBlockTimer;
+    private final Timer incrementRequestCountsTimer;
+    private final Timer insertAllTimer;
+    private final Timer deleteExpiredTimer;
+    private final Timer archiveIdleTimer;
+    private final Timer promoteTimer;
+    private final Counter promoted;
+    // jakarta.transaction.Transactional has no read-only flag
+    private final TransactionTemplate readOnlyTransaction;
 
-    public ShortUrlPersistenceService(ShortUrlRepositoryAdapter repositoryAdapter) {
+    public ShortUrlPersistenceService(ShortUrlRepositoryAdapter repositoryAdapter, ReplicaReads replicaReads,
+                                      PlatformTransactionManager transactionManager, MeterRegistry meterRegistry) {
         this.repositoryAdapter = repositoryAdapter;
+        this.replicaReads = replicaReads;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.findByShortUrlTimer = operationTimer(meterRegistry, "findByShortUrl");
+        this.upsertTimer = operationTimer(meterRegistry, "upsert");
+        this.addUsedCountsTimer = operationTimer(meterRegistry, "addUsedCounts");
+        this.nextCodeBlockTimer = operationTimer(meterRegistry, "nextCodeBlockStart");
+        this.incrementRequestCountsTimer = operationTimer(meterRegistry, "incrementRequestCounts");
+        this.insertAllTimer = operationTimer(meterRegistry, "insertAllIgnoringConflicts");
+        this.deleteExpiredTimer = operationTimer(meterRegistry, "deleteExpired");
+        this.archiveIdleTimer = operationTimer(meterRegistry, "archiveIdle");
+        this.promoteTimer = operationTimer(meterRegistry, "promote");
+        this.promoted = Counter.builder("shortener.tiering.promoted")
+                .description("Archived links moved back to short_urls")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Timer for one repository operation; the reactive repository registers the same meters.
+     */
+    public static Timer operationTimer(MeterRegistry meterRegistry, String operation) {
+        return Timer.builder("shortener.db.operation")
+                .description("Time spent in a database operation")
+                .tag("operation", operation)
+                .register(meterRegistry);
     }
 
     public Optional<ShortUrlDto> findByOriginalUrl(String originalUrl) {
         return repositoryAdapter.findByOriginalUrl(originalUrl);
     }
 
+    /**
+     * Served by a read replica when one is configured, see {@link ReplicaReads}. The same statement looks into the
+     * archive if {@code short_urls} has no row; only a short URL found there is moved back, on the primary, so
+     * looking up an unknown short URL never writes.
+     */
     public Optional<ShortUrlDto> findByShortUrl(String shortUrl) {
-        return repositoryAdapter.findByShortUrl(shortUrl);
+        return findByShortUrlTimer.record(() ->
+                replicaReads.find(shortUrl, () -> repositoryAdapter.findInEitherTier(shortUrl))
+                        .flatMap(found -> found.archived() ? promote(shortUrl) : Optional.of(found.shortUrl())));
+    }
+
+    private Optional<ShortUrlDto> promote(String shortUrl) {
+        var restored = promoteTimer.record(() -> repositoryAdapter.promote(shortUrl));
+        if (restored.isEmpty()) {
+            // Not archived, or just moved back by a concurrent lookup, which has committed by now
+            return repositoryAdapter.findByShortUrl(shortUrl);
+        }
+        promoted.increment();
+        replicaReads.written(shortUrl);
+        return restored;
+    }
+
+    /**
+     * Moves back the archived links a write skipped, so that its retry sees them as existing rows.
+     */
+    private List<String> promoteAll(Collection<String> shortUrls, Collection<String> originalUrls) {
+        var restored = promoteTimer.record(() -> repositoryAdapter.promoteAll(shortUrls, originalUrls));
+        promoted.increment(restored.size());
+        restored.forEach(replicaReads::written);
+        return restored;
     }
 
     public ShortUrlDto save(ShortUrlDto entity) {
-        return repositoryAdapter.save(entity);
+        var saved = repositoryAdapter.save(entity);
+        replicaReads.written(saved.getShortUrl());
+        return saved;
+    }
+
+    /**
+     * One statement unless the URL or the short code is archived: then the upsert writes nothing, the archived
+     * link is moved back and the upsert runs again.
+     */
+    @Transactional
+    public UpsertResult upsert(ShortUrlDto shortUrl) {
+        var result = upsertTimer.record(() -> repositoryAdapter.upsert(shortUrl));
+        if (result.isEmpty()) {
+            promoteAll(List.of(shortUrl.getShortUrl()), List.of(shortUrl.getOriginalUrl()));
+            result = upsertTimer.record(() -> repositoryAdapter.upsert(shortUrl));
+        }
+        var upserted = result.orElseThrow(() ->
+                new IllegalStateException("Archived link not moved back for " + shortUrl.getOriginalUrl()));
+        replicaReads.written(upserted.shortUrl().getShortUrl());
+        return upserted;
     }
 
     @Transactional
     public void incrementUsedCount(String shortUrl) {
-        repositoryAdapter.findByShortUrl(shortUrl).ifPresent(entity -> {
-            entity.setUsedCount(entity.getUsedCount() + 1);
-            repositoryAdapter.save(entity);
+        repositoryAdapter.incrementUsedCount(shortUrl);
+    }
+
+    /**
+     * Applies buffered click counts in a single transaction, one batched update per short URL. Clicks on links
+     * archived since they were cached move them back.
+     */
+    @Transactional
+    public void addUsedCounts(Map<String, Long> incrementsByShortUrl) {
+        addUsedCountsTimer.record(() -> {
+            var missed = repositoryAdapter.addUsedCounts(incrementsByShortUrl);
+            if (!missed.isEmpty()) {
+                var retries = new HashMap<String, Long>();
+                promoteAll(missed, List.of()).forEach(shortUrl ->
+                        retries.put(shortUrl, incrementsByShortUrl.get(shortUrl)));
+                if (!retries.isEmpty()) {
+                    repositoryAdapter.addUsedCounts(retries);
+                }
+            }
         });
     }
 
@@ -38,4 +155,113 @@ public class ShortUrlPersistenceService {
     public void incrementRequestCount(String originalUrl) {
         repositoryAdapter.incrementRequestCount(originalUrl);
     }
+
+    @Transactional
+    public void addRequestCount(String shortUrl, int increment) {
+        repositoryAdapter.addRequestCount(shortUrl, increment);
+        replicaReads.written(shortUrl);
+    }
+
+    /**
+     * Always read from the primary: the short code filter built from it must not miss a short URL that a
+     * lagging replica has not replayed yet.
+     */
+    @Transactional
+    public void forEachShortUrl(Consumer<String> consumer) {
+        repositoryAdapter.forEachShortUrl(consumer);
+    }
+
+    /**
+     * Read from the primary, like {@link #forEachShortUrl}, which it keeps the short code filter current for.
+     */
+    public List<String> findShortUrlsCreatedWithin(Duration lookback) {
+        return repositoryAdapter.findShortUrlsCreatedWithin(lookback);
+    }
+
+    @Transactional
+    public void forEachMapping(BiConsumer<String, String> consumer) {
+        repositoryAdapter.forEachMapping(consumer);
+    }
+
+    /**
+     * Streams an export in one read-only transaction, which the PostgreSQL driver needs to honour the fetch size.
+     * Served by a read replica when one is configured; a replica may cancel a long export to replay WAL, in which
+     * case the client resumes after the last id it received.
+     */
+    public void exportRows(ExportQuery query, Consumer<ExportRow> consumer) {
+        replicaReads.read(() -> readOnlyTransaction.execute(status -> {
+            repositoryAdapter.exportRows(query, consumer);
+            return null;
+        }));
+    }
+
+    /**
+     * Served by a read replica when one is configured: a slightly stale ranking is good enough for warm-up.
+     */
+    public int forEachMostUsed(int limit, int pageSize, Predicate<ShortUrlDto> consumer) {
+        return replicaReads.read(() -> repositoryAdapter.forEachMostUsed(limit, pageSize, consumer));
+    }
+
+    public long nextCodeBlockStart() {
+        return nextCodeBlockTimer.record(repositoryAdapter::nextCodeBlockStart);
+    }
+
+    public long codeBlockSize() {
+        return repositoryAdapter.codeBlockSize();
+    }
+
+    /**
+     * Only counts URLs in {@code short_urls}; archived ones are moved back by {@link #insertAllIgnoringConflicts}
+     * and found by the next call.
+     */
+    @Transactional
+    public List<ShortUrlDto> incrementRequestCounts(Collection<String> originalUrls) {
+        var existing = incrementRequestCountsTimer.record(() -> repositoryAdapter.incrementRequestCounts(originalUrls));
+        existing.forEach(shortUrl -> replicaReads.written(shortUrl.getShortUrl()));
+        return existing;
+    }
+
+    /**
+     * Rows skipped because of a conflict may have been skipped because their short code or URL is archived; those
+     * archived links are moved back, so that the caller's retry finds the URL or generates another code.
+     */
+    @Transactional
+    public List<ShortUrlDto> insertAllIgnoringConflicts(List<ShortUrlDto> shortUrls) {
+        var inserted = insertAllTimer.record(() -> repositoryAdapter.insertAllIgnoringConflicts(shortUrls));
+        inserted.forEach(shortUrl -> replicaReads.written(shortUrl.getShortUrl()));
+        if (inserted.size() < shortUrls.size()) {
+            var insertedUrls = inserted.stream().map(ShortUrlDto::getShortUrl).collect(Collectors.toSet());
+            var skipped = shortUrls.stream().filter(shortUrl -> !insertedUrls.contains(shortUrl.getShortUrl())).toList();
+            promoteAll(skipped.stream().map(ShortUrlDto::getShortUrl).toList(),
+                    skipped.stream().map(ShortUrlDto::getOriginalUrl).toList());
+        }
+        return inserted;
+    }
+
+    /**
+     * Read from the primary, like every other read the expiry scheduler bases deletes on.
+     */
+    public List<ExpiringLink> findExpiring(Instant afterExpiresAt, long afterId, Instant until, int limit) {
+        return repositoryAdapter.findExpiring(afterExpiresAt, afterId, until, limit);
+    }
+
+    public List<String> findExpired(Instant now, int limit) {
+        return repositoryAdapter.findExpired(now, limit);
+    }
+
+    /**
+     * One short transaction per call, so a purge never holds many row locks for long.
+     */
+    @Transactional
+    public List<String> deleteExpired(Collection<String> shortUrls, Instant now) {
+        return deleteExpiredTimer.record(() -> repositoryAdapter.deleteExpired(shortUrls, now));
+    }
+
+    /**
+     * One short transaction per batch, like {@link #deleteExpired}.
+     */
+    @Transactional
+    public TieringBatch archiveIdle(long afterId, Instant idleSince, int limit) {
+        return archiveIdleTimer.record(() -> repositoryAdapter.archiveIdle(afterId, idleSince, limit));
+    }
 }
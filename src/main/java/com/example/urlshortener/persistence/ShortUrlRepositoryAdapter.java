@@ -2,31 +2,184 @@ package com.example.urlshortener.persistence;
 
 import com.example.urlshortener.api.ShortUrlDto;
 import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 @Repository
 @RequiredArgsConstructor
 public class ShortUrlRepositoryAdapter implements UrlRepository {
 
+    private static final String ADD_USED_COUNT_SQL = "UPDATE short_urls SET used_count = used_count + ?, "
+            + "version = version + 1, last_used_at = now() WHERE short_url = ?";
+
+    private static final String ADD_REQUEST_COUNT_SQL =
+            "UPDATE short_urls SET request_count = request_count + ?, version = version + 1 WHERE short_url = ?";
+
+    private static final String SELECT_ALL_SHORT_URLS_SQL =
+            "SELECT short_url FROM short_urls UNION ALL SELECT short_url FROM short_urls_archive";
+    // Measured against the database clock, which also set created_at
+    private static final String SELECT_CREATED_WITHIN_SQL =
+            "SELECT short_url FROM short_urls WHERE created_at >= LOCALTIMESTAMP - ? * INTERVAL '1 millisecond'";
+    private static final String SELECT_ALL_MAPPINGS_SQL = """
+            SELECT short_url, original_url FROM short_urls
+            WHERE redirect_status IS NULL AND redirect_max_age IS NULL AND expires_at IS NULL""";
+    private static final int STREAM_FETCH_SIZE = 10_000;
+    private static final String SELECT_MOST_USED_SQL = """
+            SELECT id, short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                   expires_at
+            FROM short_urls
+            ORDER BY used_count DESC, id DESC LIMIT ?""";
+    private static final String SELECT_MOST_USED_AFTER_SQL = """
+            SELECT id, short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                   expires_at
+            FROM short_urls
+            WHERE (used_count, id) < (?, ?)
+            ORDER BY used_count DESC, id DESC LIMIT ?""";
+    // Both tiers; the id condition and order are pushed into each, so their primary keys are merged in order
+    private static final String EXPORT_SQL = """
+            SELECT id, short_url, original_url, request_count, used_count, created_at FROM (
+                SELECT id, short_url, original_url, request_count, used_count, created_at FROM short_urls
+                UNION ALL
+                SELECT id, short_url, original_url, request_count, used_count, created_at FROM short_urls_archive
+            ) links
+            WHERE id > ?""";
+    private static final String NEXT_CODE_BLOCK_SQL = "SELECT nextval('short_code_seq')";
+    private static final String CODE_BLOCK_SIZE_SQL =
+            "SELECT increment_by FROM pg_sequences WHERE schemaname = current_schema() AND sequencename = 'short_code_seq'";
+
+    private static final String INCREMENT_REQUEST_COUNTS_SQL = """
+            UPDATE short_urls SET request_count = request_count + 1, version = version + 1
+            WHERE original_url_sha256 = ANY(?)
+            RETURNING short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                      expires_at""";
+    private static final String INSERT_IGNORING_CONFLICTS_SQL = """
+            INSERT INTO short_urls (short_url, original_url, original_url_sha256, request_count, used_count, expires_at)
+            SELECT * FROM unnest(?::text[], ?::text[], ?::bytea[], ?::int[], ?::int[], ?::timestamptz[])
+                AS v (short_url, original_url, original_url_sha256, request_count, used_count, expires_at)
+            WHERE NOT EXISTS (SELECT 1 FROM short_urls_archive a
+                              WHERE a.short_url = v.short_url OR a.original_url_sha256 = v.original_url_sha256)
+            ON CONFLICT DO NOTHING
+            RETURNING short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                      expires_at""";
+
+    // Shortening a URL whose link has expired but not been purged yet revives it with the requested expiry.
+    // Inserts nothing and returns no row if the URL or the short code is archived.
+    private static final String UPSERT_SQL = """
+            INSERT INTO short_urls (short_url, original_url, original_url_sha256, request_count, used_count,
+                                    redirect_status, redirect_max_age, expires_at)
+            SELECT ?::varchar, ?::text, ?::bytea, ?::int, ?::int, ?::smallint, ?::int, ?::timestamptz
+            WHERE NOT EXISTS (SELECT 1 FROM short_urls_archive WHERE short_url = ? OR original_url_sha256 = ?)
+            ON CONFLICT (original_url_sha256) DO UPDATE
+                SET request_count = short_urls.request_count + 1, version = short_urls.version + 1,
+                    expires_at = CASE WHEN short_urls.expires_at <= now() THEN EXCLUDED.expires_at
+                                      ELSE short_urls.expires_at END
+            RETURNING short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                      expires_at, (xmax = 0) AS inserted""";
+
+    // One round trip for both tiers: the archive is only scanned if short_urls has no row
+    private static final String FIND_IN_EITHER_TIER_SQL = """
+            SELECT short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                   expires_at, false AS archived
+            FROM short_urls WHERE short_url = ?
+            UNION ALL
+            SELECT short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                   NULL, true
+            FROM short_urls_archive WHERE short_url = ?
+            LIMIT 1""";
+
+    private static final String FIND_EXPIRING_SQL = """
+            SELECT id, short_url, expires_at FROM short_urls
+            WHERE expires_at IS NOT NULL AND (expires_at, id) > (?, ?) AND expires_at <= ?
+            ORDER BY expires_at, id LIMIT ?""";
+    private static final String FIND_EXPIRED_SQL =
+            "SELECT short_url FROM short_urls WHERE expires_at <= ? ORDER BY expires_at LIMIT ?";
+    // Re-checks the expiry, so a link revived since it was scheduled survives
+    private static final String DELETE_EXPIRED_SQL =
+            "DELETE FROM short_urls WHERE short_url = ANY(?) AND expires_at <= ? RETURNING short_url";
+
+    // Shared with the import, which moves archived links back in bulk
+    static final String ARCHIVE_COLUMNS = """
+            id, short_url, original_url, original_url_sha256, request_count, used_count, created_at,
+            redirect_status, redirect_max_age, version""";
+
+    // Moves the idle links among the next batch of ids to the archive in one statement; links with an expiry
+    // stay, their purge only looks at short_urls
+    private static final String ARCHIVE_IDLE_SQL = """
+            WITH batch AS (SELECT id FROM short_urls WHERE id > ? ORDER BY id LIMIT ?),
+                 moved AS (DELETE FROM short_urls u USING batch b
+                           WHERE u.id = b.id AND u.expires_at IS NULL AND u.last_used_at < ?
+                           RETURNING u.*),
+                 archived AS (INSERT INTO short_urls_archive (%1$s, last_used_at)
+                              SELECT %1$s, last_used_at FROM moved
+                              RETURNING id)
+            SELECT (SELECT max(id) FROM batch) AS last_id, (SELECT count(*) FROM archived) AS archived""".formatted(ARCHIVE_COLUMNS);
+
+    // Moves archived links back, marked as just used so the next tiering pass leaves them alone. A concurrent
+    // promotion of the same row blocks on its delete and then finds nothing.
+    private static final String PROMOTE_SQL = """
+            WITH promoted AS (DELETE FROM short_urls_archive WHERE %2$s RETURNING %1$s)
+            INSERT INTO short_urls (%1$s, last_used_at)
+            SELECT %1$s, now() FROM promoted
+            RETURNING short_url, original_url, request_count, used_count, redirect_status, redirect_max_age, version,
+                      expires_at""";
+    private static final String PROMOTE_BY_SHORT_URL_SQL = PROMOTE_SQL.formatted(ARCHIVE_COLUMNS, "short_url = ?");
+    private static final String PROMOTE_ALL_SQL = PROMOTE_SQL.formatted(ARCHIVE_COLUMNS,
+            "short_url = ANY(?) OR original_url_sha256 = ANY(?)");
+
+    private static final RowMapper<ShortUrlDto> SHORT_URL_ROW_MAPPER = (resultSet, rowNum) -> new ShortUrlDto(
+            resultSet.getString("short_url"),
+            resultSet.getString("original_url"),
+            resultSet.getInt("request_count"),
+            resultSet.getInt("used_count"),
+            resultSet.getObject("redirect_status", Integer.class),
+            resultSet.getObject("redirect_max_age", Integer.class),
+            resultSet.getLong("version"),
+            toInstant(resultSet.getTimestamp("expires_at")));
+
+    private static final RowMapper<MostUsedRow> MOST_USED_ROW_MAPPER = (resultSet, rowNum) -> new MostUsedRow(
+            resultSet.getInt("id"),
+            SHORT_URL_ROW_MAPPER.mapRow(resultSet, rowNum));
+
     private final JpaShortUrlRepository jpaRepository;
+    private final JdbcTemplate jdbcTemplate;
 
-    private ShortUrlDto mapToDomain(ShortUrlEntity entity) {
+    ShortUrlDto mapToDomain(ShortUrlEntity entity) {
         return new ShortUrlDto(
                 entity.getShortUrl(),
                 entity.getOriginalUrl(),
                 entity.getRequestCount(),
-                entity.getUsedCount()
+                entity.getUsedCount(),
+                entity.getRedirectStatus(),
+                entity.getRedirectMaxAge(),
+                entity.getVersion(),
+                entity.getExpiresAt()
         );
     }
 
-    private ShortUrlEntity mapToEntity(ShortUrlDto domain) {
+    ShortUrlEntity mapToEntity(ShortUrlDto domain) {
         var entity = new ShortUrlEntity();
         entity.setShortUrl(domain.getShortUrl());
         entity.setOriginalUrl(domain.getOriginalUrl());
         entity.setRequestCount(domain.getRequestCount());
         entity.setUsedCount(domain.getUsedCount());
+        entity.setRedirectStatus(domain.getRedirectStatus());
+        entity.setRedirectMaxAge(domain.getCacheMaxAge());
+        entity.setExpiresAt(domain.getExpiresAt());
         return entity;
     }
 
@@ -40,6 +193,17 @@ public class ShortUrlRepositoryAdapter implements UrlRepository {
         return jpaRepository.findByShortUrl(shortUrl).map(this::mapToDomain);
     }
 
+    /**
+     * Looks the short URL up in {@code short_urls} and, only if it is not there, in the archive, in one statement.
+     */
+    @Override
+    public Optional<StoredLink> findInEitherTier(String shortUrl) {
+        return jdbcTemplate.query(FIND_IN_EITHER_TIER_SQL, (resultSet, rowNum) -> new StoredLink(
+                        SHORT_URL_ROW_MAPPER.mapRow(resultSet, rowNum),
+                        resultSet.getBoolean("archived")),
+                shortUrl, shortUrl).stream().findFirst();
+    }
+
     @Override
     public ShortUrlDto save(ShortUrlDto shortUrl) {
         var entity = mapToEntity(shortUrl);
@@ -47,14 +211,299 @@ public class ShortUrlRepositoryAdapter implements UrlRepository {
         return mapToDomain(entity);
     }
 
+    /**
+     * Inserts the short URL or, if its original URL is already stored, increments that row's request count.
+     * A conflict on the short code itself is not handled and surfaces as a DataIntegrityViolationException.
+     * Empty if the original URL or the short code is archived; nothing is written then.
+     */
+    @Override
+    public Optional<UpsertResult> upsert(ShortUrlDto shortUrl) {
+        var digest = UrlDigest.sha256(shortUrl.getOriginalUrl());
+        return jdbcTemplate.query(UPSERT_SQL, (resultSet, rowNum) -> new UpsertResult(
+                        SHORT_URL_ROW_MAPPER.mapRow(resultSet, rowNum),
+                        resultSet.getBoolean("inserted")),
+                shortUrl.getShortUrl(),
+                shortUrl.getOriginalUrl(),
+                digest,
+                shortUrl.getRequestCount(),
+                shortUrl.getUsedCount(),
+                shortUrl.getRedirectStatus(),
+                shortUrl.getCacheMaxAge(),
+                toTimestamp(shortUrl.getExpiresAt()),
+                shortUrl.getShortUrl(),
+                digest).stream().findFirst();
+    }
+
     @Override
     public void incrementRequestCount(String shortUrl) {
         jpaRepository.incrementRequestCount(shortUrl);
     }
 
+    @Override
+    public void addRequestCount(String shortUrl, int increment) {
+        jdbcTemplate.update(ADD_REQUEST_COUNT_SQL, increment, shortUrl);
+    }
+
     @Override
     public void incrementUsedCount(String shortUrl) {
         jpaRepository.incrementUsedCount(shortUrl);
     }
-}
 
+    /**
+     * Returns the short URLs that matched no row: archived or deleted since they were clicked.
+     */
+    @Override
+    public List<String> addUsedCounts(Map<String, Long> incrementsByShortUrl) {
+        var batchArgs = new ArrayList<Object[]>(incrementsByShortUrl.size());
+        incrementsByShortUrl.forEach((shortUrl, increment) -> batchArgs.add(new Object[]{increment, shortUrl}));
+        var updated = jdbcTemplate.batchUpdate(ADD_USED_COUNT_SQL, batchArgs);
+        var missed = new ArrayList<String>();
+        for (int i = 0; i < updated.length; i++) {
+            if (updated[i] == 0) {
+                missed.add((String) batchArgs.get(i)[1]);
+            }
+        }
+        return missed;
+    }
+
+    /**
+     * Streams every stored short URL through a server-side cursor without materializing entities.
+     * Must run inside a transaction, otherwise the PostgreSQL driver ignores the fetch size.
+     */
+    @Override
+    public void forEachShortUrl(Consumer<String> consumer) {
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_ALL_SHORT_URLS_SQL);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(resultSet.getString(1)));
+    }
+
+    /**
+     * Short URLs created within {@code lookback} of now.
+     */
+    @Override
+    public List<String> findShortUrlsCreatedWithin(Duration lookback) {
+        return jdbcTemplate.queryForList(SELECT_CREATED_WITHIN_SQL, String.class, lookback.toMillis());
+    }
+
+    /**
+     * Streams every stored short URL with its original URL, like {@link #forEachShortUrl}, leaving out links
+     * with a redirect policy override: a bare URL cannot serve them.
+     */
+    @Override
+    public void forEachMapping(BiConsumer<String, String> consumer) {
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(SELECT_ALL_MAPPINGS_SQL);
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(resultSet.getString(1), resultSet.getString(2)));
+    }
+
+    /**
+     * Streams the rows selected by the query in id order through a server-side cursor, like
+     * {@link #forEachShortUrl}: the primary key index yields them in order, so nothing is sorted or buffered.
+     */
+    @Override
+    public void exportRows(ExportQuery query, Consumer<ExportRow> consumer) {
+        var sql = new StringBuilder(EXPORT_SQL);
+        var args = new ArrayList<Object>();
+        args.add(query.afterId());
+        if (query.createdFrom() != null) {
+            sql.append(" AND created_at >= ?");
+            args.add(Timestamp.from(query.createdFrom()));
+        }
+        if (query.createdTo() != null) {
+            sql.append(" AND created_at < ?");
+            args.add(Timestamp.from(query.createdTo()));
+        }
+        sql.append(" ORDER BY id");
+        if (query.limit() > 0) {
+            sql.append(" LIMIT ?");
+            args.add(query.limit());
+        }
+        jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(sql.toString());
+            statement.setFetchSize(STREAM_FETCH_SIZE);
+            for (int i = 0; i < args.size(); i++) {
+                statement.setObject(i + 1, args.get(i));
+            }
+            return statement;
+        }, (RowCallbackHandler) resultSet -> consumer.accept(new ExportRow(
+                resultSet.getLong("id"),
+                resultSet.getString("short_url"),
+                resultSet.getString("original_url"),
+                resultSet.getInt("request_count"),
+                resultSet.getInt("used_count"),
+                resultSet.getTimestamp("created_at").toInstant())));
+    }
+
+    /**
+     * Visits up to {@code limit} short URLs, most used first, one keyset page of
+     * {@code pageSize} rows per query, so no transaction or cursor is held open between pages. The consumer
+     * returns false to stop early. Returns the number of rows visited.
+     */
+    @Override
+    public int forEachMostUsed(int limit, int pageSize, Predicate<ShortUrlDto> consumer) {
+        int visited = 0;
+        MostUsedRow last = null;
+        while (visited < limit) {
+            int size = Math.min(pageSize, limit - visited);
+            var page = last == null
+                    ? jdbcTemplate.query(SELECT_MOST_USED_SQL, MOST_USED_ROW_MAPPER, size)
+                    : jdbcTemplate.query(SELECT_MOST_USED_AFTER_SQL, MOST_USED_ROW_MAPPER,
+                            last.shortUrl().getUsedCount(), last.id(), size);
+            for (var row : page) {
+                visited++;
+                if (!consumer.test(row.shortUrl())) {
+                    return visited;
+                }
+            }
+            if (page.size() < size) {
+                break;
+            }
+            last = page.get(page.size() - 1);
+        }
+        return visited;
+    }
+
+    @Override
+    public long nextCodeBlockStart() {
+        return jdbcTemplate.queryForObject(NEXT_CODE_BLOCK_SQL, Long.class);
+    }
+
+    @Override
+    public long codeBlockSize() {
+        return jdbcTemplate.queryForObject(CODE_BLOCK_SIZE_SQL, Long.class);
+    }
+
+    /**
+     * Increments the request count of every already stored URL in one statement and returns the updated rows.
+     */
+    @Override
+    public List<ShortUrlDto> incrementRequestCounts(Collection<String> originalUrls) {
+        var digests = originalUrls.stream().map(UrlDigest::sha256).toArray(byte[][]::new);
+        var updated = jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(INCREMENT_REQUEST_COUNTS_SQL);
+            statement.setArray(1, connection.createArrayOf("bytea", digests));
+            return statement;
+        }, SHORT_URL_ROW_MAPPER);
+        // Guard against digest collisions by verifying the full URL
+        var requested = new HashSet<>(originalUrls);
+        updated.removeIf(dto -> !requested.contains(dto.getOriginalUrl()));
+        return updated;
+    }
+
+    /**
+     * Inserts all rows in a single statement, skipping rows that violate a unique constraint or whose short code
+     * or original URL is archived. Returns only the rows that were actually inserted.
+     */
+    @Override
+    public List<ShortUrlDto> insertAllIgnoringConflicts(List<ShortUrlDto> shortUrls) {
+        int size = shortUrls.size();
+        var codes = new String[size];
+        var originalUrls = new String[size];
+        var digests = new byte[size][];
+        var requestCounts = new Integer[size];
+        var usedCounts = new Integer[size];
+        var expiresAt = new Timestamp[size];
+        for (int i = 0; i < size; i++) {
+            var shortUrl = shortUrls.get(i);
+            codes[i] = shortUrl.getShortUrl();
+            originalUrls[i] = shortUrl.getOriginalUrl();
+            digests[i] = UrlDigest.sha256(shortUrl.getOriginalUrl());
+            requestCounts[i] = shortUrl.getRequestCount();
+            usedCounts[i] = shortUrl.getUsedCount();
+            expiresAt[i] = toTimestamp(shortUrl.getExpiresAt());
+        }
+        return jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(INSERT_IGNORING_CONFLICTS_SQL);
+            statement.setArray(1, connection.createArrayOf("text", codes));
+            statement.setArray(2, connection.createArrayOf("text", originalUrls));
+            statement.setArray(3, connection.createArrayOf("bytea", digests));
+            statement.setArray(4, connection.createArrayOf("int4", requestCounts));
+            statement.setArray(5, connection.createArrayOf("int4", usedCounts));
+            statement.setArray(6, connection.createArrayOf("timestamptz", expiresAt));
+            return statement;
+        }, SHORT_URL_ROW_MAPPER);
+    }
+
+    /**
+     * Up to {@code limit} links expiring in ({@code after}, {@code until}], in (expiresAt, id) order after the
+     * given keyset position.
+     */
+    @Override
+    public List<ExpiringLink> findExpiring(Instant afterExpiresAt, long afterId, Instant until, int limit) {
+        return jdbcTemplate.query(FIND_EXPIRING_SQL, (resultSet, rowNum) -> new ExpiringLink(
+                        resultSet.getLong("id"),
+                        resultSet.getString("short_url"),
+                        resultSet.getTimestamp("expires_at").toInstant()),
+                Timestamp.from(afterExpiresAt), afterId, Timestamp.from(until), limit);
+    }
+
+    @Override
+    public List<String> findExpired(Instant now, int limit) {
+        return jdbcTemplate.queryForList(FIND_EXPIRED_SQL, String.class, Timestamp.from(now), limit);
+    }
+
+    /**
+     * Deletes those of the given links that have expired by {@code now} and returns their short URLs.
+     */
+    @Override
+    public List<String> deleteExpired(Collection<String> shortUrls, Instant now) {
+        var candidates = shortUrls.toArray(String[]::new);
+        return jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(DELETE_EXPIRED_SQL);
+            statement.setArray(1, connection.createArrayOf("varchar", candidates));
+            statement.setTimestamp(2, Timestamp.from(now));
+            return statement;
+        }, (resultSet, rowNum) -> resultSet.getString(1));
+    }
+
+    /**
+     * Archives the idle links among the {@code limit} ids after {@code afterId}. The returned last id is 0 once
+     * the end of the table is reached.
+     */
+    @Override
+    public TieringBatch archiveIdle(long afterId, Instant idleSince, int limit) {
+        return jdbcTemplate.queryForObject(ARCHIVE_IDLE_SQL, (resultSet, rowNum) -> new TieringBatch(
+                        resultSet.getLong("last_id"),
+                        resultSet.getInt("archived")),
+                afterId, limit, Timestamp.from(idleSince));
+    }
+
+    /**
+     * Moves an archived link back to {@code short_urls} and returns it; empty if it is not archived.
+     */
+    @Override
+    public Optional<ShortUrlDto> promote(String shortUrl) {
+        return jdbcTemplate.query(PROMOTE_BY_SHORT_URL_SQL, SHORT_URL_ROW_MAPPER, shortUrl).stream().findFirst();
+    }
+
+    /**
+     * Moves back every archived link with one of the given short URLs or original URLs, so that a retried write
+     * sees them as conflicts, and returns their short URLs.
+     */
+    @Override
+    public List<String> promoteAll(Collection<String> shortUrls, Collection<String> originalUrls) {
+        var codes = shortUrls.toArray(String[]::new);
+        var digests = originalUrls.stream().map(UrlDigest::sha256).toArray(byte[][]::new);
+        return jdbcTemplate.query(connection -> {
+            var statement = connection.prepareStatement(PROMOTE_ALL_SQL);
+            statement.setArray(1, connection.createArrayOf("varchar", codes));
+            statement.setArray(2, connection.createArrayOf("bytea", digests));
+            return statement;
+        }, (resultSet, rowNum) -> resultSet.getString("short_url"));
+    }
+
+    private static Timestamp toTimestamp(Instant instant) {
+        return instant != null ? Timestamp.from(instant) : null;
+    }
+
+    private static Instant toInstant(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toInstant() : null;
+    }
+
+    private record MostUsedRow(int id, ShortUrlDto shortUrl) {
+    }
+}
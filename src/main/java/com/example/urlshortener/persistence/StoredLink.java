@@ -0,0 +1,9 @@
+package com.example.urlshortener.persistence;
+
+import com.example.urlshortener.api.ShortUrlDto;
+
+/**
+ * Row returned by {@link UrlRepository#findInEitherTier}: the short URL and whether it was found in the archive.
+ */
+public record StoredLink(ShortUrlDto shortUrl, boolean archived) {
+}
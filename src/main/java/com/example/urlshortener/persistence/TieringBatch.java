@@ -0,0 +1,8 @@
+package com.example.urlshortener.persistence;
+
+/**
+ * The outcome of one tiering batch: the last id it looked at (0 at the end of the table) and how many of its
+ * links were archived.
+ */
+public record TieringBatch(long lastId, int archived) {
+}
@@ -0,0 +1,9 @@
+package com.example.urlshortener.persistence;
+
+import com.example.urlshortener.api.ShortUrlDto;
+
+/**
+ * Row returned by {@link UrlRepository#upsert}: the stored short URL and whether this call inserted it.
+ */
+public record UpsertResult(ShortUrlDto shortUrl, boolean inserted) {
+}
@@ -0,0 +1,23 @@
+package com.example.urlshortener.persistence;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * SHA-256 of an original URL as stored in {@code short_urls.original_url_sha256}.
+ * Must match the {@code sha256(convert_to(original_url, 'UTF8'))} backfill in the V3 migration.
+ */
+public final class UrlDigest {
+
+    private UrlDigest() {
+    }
+
+    public static byte[] sha256(String originalUrl) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(originalUrl.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
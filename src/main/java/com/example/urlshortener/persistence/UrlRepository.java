@@ -2,12 +2,39 @@ package com.example.urlshortener.persistence;
 
 import com.example.urlshortener.api.ShortUrlDto;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public interface UrlRepository {
     Optional<ShortUrlDto> findByOriginalUrl(String originalUrl);
     Optional<ShortUrlDto> findByShortUrl(String shortCode);
+    Optional<StoredLink> findInEitherTier(String shortUrl);
     ShortUrlDto save(ShortUrlDto shortUrl);
+    Optional<UpsertResult> upsert(ShortUrlDto shortUrl);
     void incrementRequestCount(String shortCode);
+    void addRequestCount(String shortUrl, int increment);
     void incrementUsedCount(String shortCode);
+    List<String> addUsedCounts(Map<String, Long> incrementsByShortUrl);
+    void forEachShortUrl(Consumer<String> consumer);
+    List<String> findShortUrlsCreatedWithin(Duration lookback);
+    void forEachMapping(BiConsumer<String, String> consumer);
+    void exportRows(ExportQuery query, Consumer<ExportRow> consumer);
+    int forEachMostUsed(int limit, int pageSize, Predicate<ShortUrlDto> consumer);
+    long nextCodeBlockStart();
+    long codeBlockSize();
+    List<ShortUrlDto> incrementRequestCounts(Collection<String> originalUrls);
+    List<ShortUrlDto> insertAllIgnoringConflicts(List<ShortUrlDto> shortUrls);
+    List<ExpiringLink> findExpiring(Instant afterExpiresAt, long afterId, Instant until, int limit);
+    List<String> findExpired(Instant now, int limit);
+    List<String> deleteExpired(Collection<String> shortUrls, Instant now);
+    TieringBatch archiveIdle(long afterId, Instant idleSince, int limit);
+    Optional<ShortUrlDto> promote(String shortUrl);
+    List<String> promoteAll(Collection<String> shortUrls, Collection<String> originalUrls);
 }
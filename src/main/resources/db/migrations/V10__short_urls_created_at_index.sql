@@ -0,0 +1,2 @@
+-- The short code filter refresh reads the links created in the last few seconds
+CREATE INDEX short_urls_created_at_idx ON short_urls (created_at);
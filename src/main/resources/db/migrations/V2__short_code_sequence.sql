@@ -0,0 +1,2 @@
+-- Hi/lo source for the sequence short code generator; the increment is the block size leased per call
+CREATE SEQUENCE short_code_seq START WITH 1 INCREMENT BY 1000;
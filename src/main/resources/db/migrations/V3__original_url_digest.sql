@@ -0,0 +1,10 @@
+-- Deduplicate on a fixed 32-byte SHA-256 of the original URL instead of indexing the full TEXT value
+ALTER TABLE short_urls ADD COLUMN original_url_sha256 BYTEA;
+
+UPDATE short_urls SET original_url_sha256 = sha256(convert_to(original_url, 'UTF8'));
+
+ALTER TABLE short_urls
+    ALTER COLUMN original_url_sha256 SET NOT NULL,
+    ADD CONSTRAINT short_urls_original_url_sha256_length CHECK (octet_length(original_url_sha256) = 32),
+    ADD CONSTRAINT short_urls_original_url_sha256_key UNIQUE (original_url_sha256),
+    DROP CONSTRAINT short_urls_original_url_key;
@@ -0,0 +1,11 @@
+-- Click counts per short URL and time bucket; minute rows are downsampled into hour and day rows
+CREATE TABLE click_rollups (
+    short_url    VARCHAR(255) NOT NULL,
+    granularity  VARCHAR(6)   NOT NULL CHECK (granularity IN ('minute', 'hour', 'day')),
+    bucket_start TIMESTAMPTZ  NOT NULL,
+    clicks       BIGINT       NOT NULL,
+    PRIMARY KEY (short_url, granularity, bucket_start)
+);
+
+-- Downsampling and retention scan by granularity and time
+CREATE INDEX click_rollups_granularity_bucket_start_idx ON click_rollups (granularity, bucket_start);
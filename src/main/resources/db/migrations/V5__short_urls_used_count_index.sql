@@ -0,0 +1,2 @@
+-- Keyset pagination over the most used short URLs (cache warm-up), scanned backwards
+CREATE INDEX short_urls_used_count_id_idx ON short_urls (used_count, id);
@@ -0,0 +1,6 @@
+-- Per-link redirect policy overrides (NULL = the configured default) and a row version for stats ETags,
+-- bumped by every statement that changes a row
+ALTER TABLE short_urls
+    ADD COLUMN redirect_status  SMALLINT CHECK (redirect_status IN (301, 302, 307, 308)),
+    ADD COLUMN redirect_max_age INTEGER CHECK (redirect_max_age >= 0),
+    ADD COLUMN version          BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,11 @@
+-- Progress of bulk imports per source file, committed together with each merged chunk so an import can resume
+CREATE TABLE url_imports (
+    source       TEXT PRIMARY KEY,
+    lines_done   BIGINT      NOT NULL DEFAULT 0,
+    inserted     BIGINT      NOT NULL DEFAULT 0,
+    existing     BIGINT      NOT NULL DEFAULT 0,
+    rejected     BIGINT      NOT NULL DEFAULT 0,
+    started_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+    updated_at   TIMESTAMPTZ NOT NULL DEFAULT now(),
+    completed_at TIMESTAMPTZ
+);
@@ -0,0 +1,5 @@
+-- Optional expiry per link (NULL = never); expired rows are purged in batches by the expiry scheduler,
+-- which pages through upcoming expirations in (expires_at, id) order
+ALTER TABLE short_urls ADD COLUMN expires_at TIMESTAMPTZ;
+
+CREATE INDEX short_urls_expires_at_id_idx ON short_urls (expires_at, id) WHERE expires_at IS NOT NULL;
@@ -0,0 +1,25 @@
+-- Cold tier: links without clicks for shortener.tiering.idle-after are moved here in batches, so the unique
+-- indexes of short_urls only cover the working set, and moved back on their next lookup, click or shorten.
+-- A link is in exactly one of the two tables: a write that would conflict with an archived row skips it, moves
+-- that row back and runs again, so the unique constraints of short_urls still apply across both.
+--
+-- Existing links count as used now: a constant default is applied without rewriting the table, and the first
+-- tiering pass after the upgrade must not archive links that are clicked every second just because they were
+-- created long ago. New links count as used when they are created.
+ALTER TABLE short_urls ADD COLUMN last_used_at TIMESTAMPTZ NOT NULL DEFAULT now();
+
+-- Rows are only ever inserted and deleted, never updated
+CREATE TABLE short_urls_archive (
+    id                  INTEGER      PRIMARY KEY,
+    short_url           VARCHAR(255) NOT NULL UNIQUE,
+    original_url        TEXT         NOT NULL,
+    original_url_sha256 BYTEA        NOT NULL UNIQUE,
+    request_count       INTEGER      NOT NULL,
+    used_count          INTEGER      NOT NULL,
+    created_at          TIMESTAMP    NOT NULL,
+    redirect_status     SMALLINT,
+    redirect_max_age    INTEGER,
+    version             BIGINT       NOT NULL,
+    last_used_at        TIMESTAMPTZ  NOT NULL,
+    archived_at         TIMESTAMPTZ  NOT NULL DEFAULT now()
+) WITH (fillfactor = 100);
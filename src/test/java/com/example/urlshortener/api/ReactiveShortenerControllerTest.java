@@ -0,0 +1,140 @@
+package com.example.urlshortener.api;
+
+import com.example.urlshortener.application.HotLinkTracker;
+import com.example.urlshortener.application.ReactiveShortenerService;
+import com.example.urlshortener.application.RedirectTarget;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@WebFluxTest(ReactiveShortenerController.class)
+@ActiveProfiles("reactive")
+@Import(HttpCachingPolicy.class)
+class ReactiveShortenerControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ReactiveShortenerService shortenerService;
+
+    @MockBean
+    private HotLinkTracker hotLinkTracker;
+
+    @Test
+    void shortenUrl_returns_shortened_url() {
+        Mockito.when(shortenerService.shortenUrl("https://example.com", null, null, null))
+                .thenReturn(Mono.just(new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 0)));
+
+        webTestClient.post().uri("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("""
+                        {
+                          "url": "https://example.com"
+                        }
+                        """)
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.shortUrl").isEqualTo("short.ly/abc123")
+                .jsonPath("$.requestCount").isEqualTo(1);
+    }
+
+    @Test
+    void shortenUrl_rejects_invalid_url() {
+        webTestClient.post().uri("/shorten")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("{\"url\": \"not a url\"}")
+                .exchange()
+                .expectStatus().isBadRequest();
+    }
+
+    @Test
+    void redirect_returns_302_and_records_click() {
+        Mockito.when(shortenerService.resolve("abc123"))
+                .thenReturn(Mono.just(new RedirectTarget("short.ly/abc123", "https://example.com")));
+
+        webTestClient.get().uri("/short.ly/abc123")
+                .exchange()
+                .expectStatus().isFound()
+                .expectHeader().valueEquals("Location", "https://example.com")
+                .expectHeader().valueEquals("Cache-Control", "no-store");
+
+        verify(shortenerService).incrementUsedCount("short.ly/abc123");
+    }
+
+    @Test
+    void redirect_returns_410_for_expired_link() {
+        Mockito.when(shortenerService.resolve("abc123")).thenReturn(Mono.just(new RedirectTarget("short.ly/abc123",
+                "https://example.com", 0, "no-store", System.currentTimeMillis() - 1000)));
+
+        webTestClient.get().uri("/short.ly/abc123")
+                .exchange()
+                .expectStatus().isEqualTo(410);
+
+        verify(shortenerService, never()).incrementUsedCount(anyString());
+    }
+
+    @Test
+    void redirect_returns_404_for_unknown_code() {
+        Mockito.when(shortenerService.resolve("missing")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/short.ly/missing")
+                .exchange()
+                .expectStatus().isNotFound();
+
+        verify(shortenerService, never()).incrementUsedCount(anyString());
+    }
+
+    @Test
+    void stats_returns_304_while_version_is_unchanged() {
+        Mockito.when(shortenerService.getStatistics("short.ly/abc123"))
+                .thenReturn(Mono.just(new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 5, null, null, 7)));
+
+        webTestClient.get().uri("/stats/short.ly/abc123")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().valueEquals("ETag", "\"7\"");
+        webTestClient.get().uri("/stats/short.ly/abc123")
+                .header("If-None-Match", "\"7\"")
+                .exchange()
+                .expectStatus().isNotModified()
+                .expectBody().isEmpty();
+    }
+
+    @Test
+    void stats_returns_404_for_unknown_code() {
+        Mockito.when(shortenerService.getStatistics("short.ly/missing")).thenReturn(Mono.empty());
+
+        webTestClient.get().uri("/stats/short.ly/missing")
+                .exchange()
+                .expectStatus().isNotFound();
+    }
+
+    @Test
+    void getTopLinks_returns_hot_links_without_the_database() {
+        Mockito.when(hotLinkTracker.top(HotLinkTracker.Window.HOUR, 10))
+                .thenReturn(List.of(new HotLinkTracker.HotLink("abc123", 42, 0)));
+
+        webTestClient.get().uri("/stats/top")
+                .exchange()
+                .expectStatus().isOk()
+                .expectBody()
+                .jsonPath("$.window").isEqualTo("1h")
+                .jsonPath("$.links[0].shortUrl").isEqualTo("short.ly/abc123")
+                .jsonPath("$.links[0].clicks").isEqualTo(42);
+    }
+}
@@ -1,26 +1,47 @@
 package com.example.urlshortener.api;
 
+import com.example.urlshortener.application.BulkShortenerService;
+import com.example.urlshortener.application.ClickAnalyticsService;
+import com.example.urlshortener.application.HotLinkTracker;
+import com.example.urlshortener.application.RedirectTarget;
+import com.example.urlshortener.application.ShortUrlExporter;
 import com.example.urlshortener.application.ShortenerService;
+import com.example.urlshortener.persistence.ClickGranularity;
+import com.example.urlshortener.persistence.ExportQuery;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mockito;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Instant;
+import java.util.List;
+import java.nio.charset.StandardCharsets;
 import java.util.Objects;
 import java.util.Optional;
 
+import static org.hamcrest.Matchers.containsString;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ShortenerController.class)
+@Import(HttpCachingPolicy.class)
 class ShortenerControllerTest {
 
     @Autowired
@@ -29,11 +50,23 @@ class ShortenerControllerTest {
     @MockBean
     private ShortenerService shortenerService;
 
+    @MockBean
+    private BulkShortenerService bulkShortenerService;
+
+    @MockBean
+    private ClickAnalyticsService clickAnalyticsService;
+
+    @MockBean
+    private ShortUrlExporter shortUrlExporter;
+
+    @MockBean
+    private HotLinkTracker hotLinkTracker;
+
 
     @Test
     void shortenUrl_returns_shortened_url_and_stats() throws Exception {
         ShortUrlDto mockResponse = new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 0);
-        Mockito.when(shortenerService.shortenUrl(anyString())).thenReturn(mockResponse);
+        Mockito.when(shortenerService.shortenUrl(anyString(), any(), any(), any())).thenReturn(mockResponse);
 
         mockMvc.perform(post("/shorten")
                         .contentType(MediaType.APPLICATION_JSON)
@@ -49,6 +82,49 @@ class ShortenerControllerTest {
                 .andExpect(jsonPath("$.requestCount").value(1));
     }
 
+    @Test
+    void shortenUrl_passes_redirect_policy_override_and_rejects_unsupported_status() throws Exception {
+        Mockito.when(shortenerService.shortenUrl("https://example.com", 301, 86400, null)).thenReturn(
+                new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 0, 301, 86400, 0));
+
+        mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"url": "https://example.com", "redirectStatus": 301, "cacheMaxAge": 86400}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.redirectStatus").value(301))
+                .andExpect(jsonPath("$.cacheMaxAge").value(86400))
+                .andExpect(jsonPath("$.version").doesNotExist());
+        mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"url": "https://example.com", "redirectStatus": 303}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    void shortenUrl_passes_expiry_and_rejects_one_in_the_past() throws Exception {
+        var expiresAt = Instant.parse("2100-01-01T00:00:00Z");
+        Mockito.when(shortenerService.shortenUrl("https://example.com", null, null, expiresAt)).thenReturn(
+                new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 0, null, null, 0, expiresAt));
+
+        mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"url": "https://example.com", "expiresAt": "2100-01-01T00:00:00Z"}
+                                """))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.expiresAt").value("2100-01-01T00:00:00Z"));
+        mockMvc.perform(post("/shorten")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("""
+                                {"url": "https://example.com", "expiresAt": "2000-01-01T00:00:00Z"}
+                                """))
+                .andExpect(status().isBadRequest());
+    }
+
     @Test
     void shouldReturn400WhenUrlIsMissing() throws Exception {
         mockMvc.perform(post("/shorten")
@@ -81,9 +157,62 @@ class ShortenerControllerTest {
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    void shortenBatch_streams_ndjson_results() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(1);
+            output.write("{\"originalUrl\":\"https://example.com\",\"shortUrl\":\"short.ly/abc123\",\"status\":\"created\"}\n"
+                    .getBytes(StandardCharsets.UTF_8));
+            return null;
+        }).when(bulkShortenerService).shortenAll(any(InputStream.class), any(OutputStream.class));
+
+        var asyncResult = mockMvc.perform(post("/shorten/batch")
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .content("\"https://example.com\"\n"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string(containsString("\"status\":\"created\"")));
+    }
+
+    @Test
+    void export_streams_csv_from_the_requested_position() throws Exception {
+        var query = new ExportQuery(42, Instant.parse("2024-01-01T00:00:00Z"), null, 0);
+        Mockito.doAnswer(invocation -> {
+            OutputStream output = invocation.getArgument(2);
+            output.write("id,short_url\n43,short.ly/abc123\n".getBytes(StandardCharsets.UTF_8));
+            return 1L;
+        }).when(shortUrlExporter).export(eq(ShortUrlExporter.Format.CSV), eq(query), any(OutputStream.class));
+
+        var asyncResult = mockMvc.perform(get("/export?format=csv&after=42&createdFrom=2024-01-01T00:00:00Z"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(asyncResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith("text/csv"))
+                .andExpect(header().string("Content-Disposition", containsString("short-urls.csv")))
+                .andExpect(content().string(containsString("43,short.ly/abc123")));
+    }
+
+    @Test
+    void export_returns_400_for_unknown_format_or_invalid_range() throws Exception {
+        mockMvc.perform(get("/export?format=xml"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/export?createdFrom=2024-02-01T00:00:00Z&createdTo=2024-01-01T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/export?after=-1"))
+                .andExpect(status().isBadRequest());
+        verify(shortUrlExporter, never()).export(any(), any(), any());
+    }
+
     @Test
     void redirectToOriginalUrl() throws Exception {
-        Mockito.when(shortenerService.getOriginalUrl(anyString())).thenReturn(Optional.of("https://example.com"));
+        Mockito.when(shortenerService.resolve(anyString()))
+                .thenReturn(new RedirectTarget("short.ly/abc123", "https://example.com"));
 
         mockMvc.perform(get("/short.ly/abc123"))
                 .andExpect(status().is3xxRedirection())
@@ -92,12 +221,58 @@ class ShortenerControllerTest {
                     assert Objects.equals(location, "https://example.com");
                 });
 
-        verify(shortenerService).incrementUsedCount("abc123");
+        verify(shortenerService).incrementUsedCount("short.ly/abc123");
+        verify(hotLinkTracker).record("abc123");
+    }
+
+    @Test
+    void redirectToOriginalUrl_applies_default_policy_or_link_override() throws Exception {
+        Mockito.when(shortenerService.resolve("abc123"))
+                .thenReturn(new RedirectTarget("short.ly/abc123", "https://example.com"));
+        Mockito.when(shortenerService.resolve("def456"))
+                .thenReturn(new RedirectTarget("short.ly/def456", "https://example.org", 308, "public, max-age=600"));
+
+        mockMvc.perform(get("/short.ly/abc123"))
+                .andExpect(status().isFound())
+                .andExpect(header().string("Cache-Control", "no-store"));
+        mockMvc.perform(get("/short.ly/def456"))
+                .andExpect(status().isPermanentRedirect())
+                .andExpect(header().string("Location", "https://example.org"))
+                .andExpect(header().string("Cache-Control", "public, max-age=600"));
+    }
+
+    @Test
+    void redirectToOriginalUrl_returns410_without_counting_when_expired() throws Exception {
+        Mockito.when(shortenerService.resolve("abc123")).thenReturn(new RedirectTarget("short.ly/abc123",
+                "https://example.com", 0, "no-store", System.currentTimeMillis() - 1000));
+
+        mockMvc.perform(get("/short.ly/abc123"))
+                .andExpect(status().isGone())
+                .andExpect(header().doesNotExist("Location"));
+
+        verify(shortenerService, never()).incrementUsedCount(anyString());
+        verify(hotLinkTracker, never()).record(anyString());
+    }
+
+    @Test
+    void getTopLinks_returns_hot_links_of_the_window_and_rejects_unknown_window() throws Exception {
+        Mockito.when(hotLinkTracker.top(HotLinkTracker.Window.MINUTE, 2)).thenReturn(List.of(
+                new HotLinkTracker.HotLink("abc123", 42, 0), new HotLinkTracker.HotLink("def456", 7, 3)));
+
+        mockMvc.perform(get("/stats/top").param("window", "1m").param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.window").value("1m"))
+                .andExpect(jsonPath("$.links[0].shortUrl").value("short.ly/abc123"))
+                .andExpect(jsonPath("$.links[0].clicks").value(42))
+                .andExpect(jsonPath("$.links[1].shortUrl").value("short.ly/def456"))
+                .andExpect(jsonPath("$.links[1].error").value(3));
+        mockMvc.perform(get("/stats/top").param("window", "1w"))
+                .andExpect(status().isBadRequest());
     }
 
     @Test
     void redirectToOriginalUrl_returns404_when_no_originalUrl() throws Exception {
-        Mockito.when(shortenerService.getOriginalUrl(anyString())).thenReturn(Optional.empty());
+        Mockito.when(shortenerService.resolve(anyString())).thenReturn(null);
 
         mockMvc.perform(get("/short.ly/abc123"))
                 .andExpect(status().isNotFound());
@@ -117,4 +292,63 @@ class ShortenerControllerTest {
                 .andExpect(jsonPath("$.usedCount").value(0))
                 .andExpect(jsonPath("$.requestCount").value(1));
     }
-}
\ No newline at end of file
+
+    @Test
+    void getStatistics_returns_304_while_version_is_unchanged() throws Exception {
+        Mockito.when(shortenerService.getStatistics("short.ly/abc123"))
+                .thenReturn(new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 5, null, null, 7));
+
+        mockMvc.perform(get("/stats/short.ly/abc123"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"7\""))
+                .andExpect(header().string("Cache-Control", "no-cache"));
+        mockMvc.perform(get("/stats/short.ly/abc123").header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+        mockMvc.perform(get("/stats/short.ly/abc123").header("If-None-Match", "\"6\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.usedCount").value(5));
+    }
+
+    @Test
+    void getClickSeries_returns_points_for_requested_range() throws Exception {
+        var from = Instant.parse("2024-05-01T00:00:00Z");
+        var to = Instant.parse("2024-05-02T00:00:00Z");
+        Mockito.when(shortenerService.resolve("abc123"))
+                .thenReturn(new RedirectTarget("short.ly/abc123", "https://example.com"));
+        Mockito.when(clickAnalyticsService.clickSeries("short.ly/abc123", ClickGranularity.DAY, from, to))
+                .thenReturn(new ClickSeriesDto("short.ly/abc123", "day", List.of(new ClickSeriesDto.Point(from, 42))));
+
+        mockMvc.perform(get("/stats/short.ly/abc123/clicks")
+                        .param("granularity", "day")
+                        .param("from", "2024-05-01T00:00:00Z")
+                        .param("to", "2024-05-02T00:00:00Z"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.granularity").value("day"))
+                .andExpect(jsonPath("$.points[0].start").value("2024-05-01T00:00:00Z"))
+                .andExpect(jsonPath("$.points[0].clicks").value(42));
+    }
+
+    @Test
+    void getClickSeries_returns_404_for_unknown_short_code() throws Exception {
+        Mockito.when(shortenerService.resolve(anyString())).thenReturn(null);
+
+        mockMvc.perform(get("/stats/short.ly/missing/clicks"))
+                .andExpect(status().isNotFound());
+
+        verify(clickAnalyticsService, never()).clickSeries(anyString(), any(), any(), any());
+    }
+
+    @Test
+    void getClickSeries_returns_400_for_unknown_granularity_or_invalid_range() throws Exception {
+        Mockito.when(shortenerService.resolve(anyString()))
+                .thenReturn(new RedirectTarget("short.ly/abc123", "https://example.com"));
+        Mockito.when(clickAnalyticsService.clickSeries(eq("short.ly/abc123"), any(), any(), any()))
+                .thenThrow(new IllegalArgumentException("'from' must be before 'to'"));
+
+        mockMvc.perform(get("/stats/short.ly/abc123/clicks").param("granularity", "week"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/stats/short.ly/abc123/clicks").param("from", "2024-05-02T00:00:00Z"))
+                .andExpect(status().isBadRequest());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BulkShortenerServiceTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ShortUrlPersistenceService shortUrlPersistenceService;
+    private BulkShortenerService bulkShortenerService;
+
+    @BeforeEach
+    void setUp() {
+        shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+        var meterRegistry = new SimpleMeterRegistry();
+        var redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), meterRegistry);
+        bulkShortenerService = new BulkShortenerService(
+                shortUrlPersistenceService,
+                new HashShortCodeGenerator(),
+                new ShortCodeFilter(shortUrlPersistenceService, redirectCache, false, 1000, 0.01, meterRegistry),
+                redirectCache,
+                new ShortCodeIndex(shortUrlPersistenceService, false, false, 1, meterRegistry),
+                mock(LinkExpiry.class),
+                objectMapper,
+                2);
+    }
+
+    @Test
+    void shortenAll_ShouldAcceptJsonArray_AndStreamOneLinePerUrl() throws Exception {
+        when(shortUrlPersistenceService.incrementRequestCounts(anyCollection())).thenReturn(List.of());
+        when(shortUrlPersistenceService.insertAllIgnoringConflicts(anyList()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<ShortUrlDto>>getArgument(0)));
+
+        var lines = shortenAll("""
+                ["https://example.com/a", {"url": "https://example.com/b"}, "not-a-url"]
+                """);
+
+        assertEquals(3, lines.size());
+        assertEquals("created", lines.get(0).get("status").asText());
+        assertEquals("https://example.com/a", lines.get(0).get("originalUrl").asText());
+        assertTrue(lines.get(0).get("shortUrl").asText().startsWith("short.ly/"));
+        assertEquals("created", lines.get(1).get("status").asText());
+        assertEquals("invalid", lines.get(2).get("status").asText());
+        // chunk size is 2, so the invalid URL forms its own chunk and never reaches the database
+        verify(shortUrlPersistenceService, times(1)).insertAllIgnoringConflicts(anyList());
+    }
+
+    @Test
+    void shortenAll_ShouldAcceptNdjson_AndReportExistingUrls() throws Exception {
+        var existing = new ShortUrlDto("short.ly/abc123", "https://example.com/a", 2, 7);
+        when(shortUrlPersistenceService.incrementRequestCounts(anyCollection())).thenAnswer(invocation ->
+                invocation.<Collection<String>>getArgument(0).contains("https://example.com/a")
+                        ? List.of(existing) : List.of());
+        when(shortUrlPersistenceService.insertAllIgnoringConflicts(anyList()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<ShortUrlDto>>getArgument(0)));
+
+        var lines = shortenAll("""
+                "https://example.com/a"
+                {"url": "https://example.com/b"}
+                """);
+
+        assertEquals("existing", lines.get(0).get("status").asText());
+        assertEquals("short.ly/abc123", lines.get(0).get("shortUrl").asText());
+        assertEquals("created", lines.get(1).get("status").asText());
+    }
+
+    @Test
+    void shortenAll_ShouldRetryWithNextAttempt_WhenShortCodeCollides() throws Exception {
+        var generator = new HashShortCodeGenerator();
+        when(shortUrlPersistenceService.incrementRequestCounts(anyCollection())).thenReturn(List.of());
+        when(shortUrlPersistenceService.insertAllIgnoringConflicts(anyList()))
+                .thenReturn(List.of())
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<List<ShortUrlDto>>getArgument(0)));
+
+        var lines = shortenAll("[\"https://example.com/a\"]");
+
+        assertEquals("created", lines.get(0).get("status").asText());
+        assertEquals("short.ly/" + generator.generate("https://example.com/a", 1), lines.get(0).get("shortUrl").asText());
+        verify(shortUrlPersistenceService, times(2)).insertAllIgnoringConflicts(anyList());
+    }
+
+    @Test
+    void shortenAll_ShouldReportAFixedReason_WhenTheDatabaseFails() throws Exception {
+        when(shortUrlPersistenceService.incrementRequestCounts(anyCollection()))
+                .thenThrow(new IllegalStateException("connection to db-primary.internal:5432 refused"));
+
+        var lines = shortenAll("[\"https://example.com/a\"]");
+
+        assertEquals("failed", lines.get(0).get("status").asText());
+        assertEquals("Failed to shorten URL", lines.get(0).get("error").asText());
+    }
+
+    private List<JsonNode> shortenAll(String body) throws Exception {
+        var output = new ByteArrayOutputStream();
+        bulkShortenerService.shortenAll(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), output);
+        var lines = new ArrayList<JsonNode>();
+        for (var line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            lines.add(objectMapper.readTree(line));
+        }
+        return lines;
+    }
+}
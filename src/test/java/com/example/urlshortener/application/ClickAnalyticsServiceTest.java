@@ -0,0 +1,73 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ClickSeriesDto;
+import com.example.urlshortener.persistence.ClickGranularity;
+import com.example.urlshortener.persistence.ClickRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClickAnalyticsServiceTest {
+
+    private static final Instant NOW = Instant.parse("2024-05-01T10:25:30Z");
+
+    private ClickRollupRepository clickRollupRepository;
+    private ClickAnalyticsService clickAnalyticsService;
+
+    @BeforeEach
+    void setUp() {
+        clickRollupRepository = mock(ClickRollupRepository.class);
+        clickAnalyticsService = new ClickAnalyticsService(clickRollupRepository, Clock.fixed(NOW, ZoneOffset.UTC),
+                Duration.ofDays(2), Duration.ofDays(30), Duration.ofDays(400), 100, new SimpleMeterRegistry());
+    }
+
+    @Test
+    void clickSeries_ShouldZeroFillBuckets_AndIncludeTheCurrentOne() {
+        var from = Instant.parse("2024-05-01T08:00:00Z");
+        var end = Instant.parse("2024-05-01T11:00:00Z");
+        when(clickRollupRepository.findSeries("short.ly/abc123", ClickGranularity.HOUR, from, end))
+                .thenReturn(Map.of(Instant.parse("2024-05-01T09:00:00Z"), 7L));
+
+        var series = clickAnalyticsService.clickSeries("short.ly/abc123", ClickGranularity.HOUR, from, NOW);
+
+        assertEquals("hour", series.granularity());
+        assertEquals(List.of(
+                new ClickSeriesDto.Point(from, 0),
+                new ClickSeriesDto.Point(Instant.parse("2024-05-01T09:00:00Z"), 7),
+                new ClickSeriesDto.Point(Instant.parse("2024-05-01T10:00:00Z"), 0)), series.points());
+    }
+
+    @Test
+    void clickSeries_ShouldRejectEmptyAndOversizedRanges() {
+        assertThrows(IllegalArgumentException.class,
+                () -> clickAnalyticsService.clickSeries("short.ly/abc123", ClickGranularity.HOUR, NOW, NOW));
+        assertThrows(IllegalArgumentException.class, () -> clickAnalyticsService.clickSeries("short.ly/abc123",
+                ClickGranularity.MINUTE, NOW.minus(Duration.ofHours(2)), NOW));
+    }
+
+    @Test
+    void rollUp_ShouldRebuildCurrentAndPreviousBuckets_AndApplyRetention() {
+        clickAnalyticsService.rollUp();
+
+        verify(clickRollupRepository).rollUp(ClickGranularity.MINUTE, ClickGranularity.HOUR,
+                Instant.parse("2024-05-01T09:00:00Z"), Instant.parse("2024-05-01T11:00:00Z"));
+        verify(clickRollupRepository).rollUp(ClickGranularity.HOUR, ClickGranularity.DAY,
+                Instant.parse("2024-04-30T00:00:00Z"), Instant.parse("2024-05-02T00:00:00Z"));
+        verify(clickRollupRepository).deleteOlderThan(ClickGranularity.MINUTE, NOW.minus(Duration.ofDays(2)));
+        verify(clickRollupRepository).deleteOlderThan(ClickGranularity.HOUR, NOW.minus(Duration.ofDays(30)));
+        verify(clickRollupRepository).deleteOlderThan(ClickGranularity.DAY, NOW.minus(Duration.ofDays(400)));
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.after;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class ClickCounterBufferTest {
+
+    private ShortUrlPersistenceService shortUrlPersistenceService;
+    private SimpleMeterRegistry meterRegistry;
+    private ClickCounterBuffer clickCounterBuffer;
+
+    @BeforeEach
+    void setUp() {
+        shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        var journal = new ClickJournal(false, null, 0, "short.ly", meterRegistry);
+        clickCounterBuffer = new ClickCounterBuffer(shortUrlPersistenceService, journal, 1000, meterRegistry);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldWriteAggregatedCountsPerShortUrl() {
+        clickCounterBuffer.record("short.ly/abc123");
+        clickCounterBuffer.record("short.ly/abc123");
+        clickCounterBuffer.record("short.ly/abc123");
+        clickCounterBuffer.record("short.ly/def456");
+
+        clickCounterBuffer.flush();
+
+        ArgumentCaptor<Map<String, Long>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(shortUrlPersistenceService).addUsedCounts(captor.capture());
+        assertEquals(Map.of("short.ly/abc123", 3L, "short.ly/def456", 1L), captor.getValue());
+        assertEquals(4.0, meterRegistry.get("shortener.clicks.flushed").counter().count());
+        assertEquals(2.0, meterRegistry.get("shortener.clicks.flushed.keys").counter().count());
+    }
+
+    @Test
+    void flush_ShouldSkipDatabase_WhenNothingBuffered() {
+        clickCounterBuffer.record("short.ly/abc123");
+        clickCounterBuffer.flush();
+
+        clickCounterBuffer.flush();
+
+        verify(shortUrlPersistenceService, times(1)).addUsedCounts(anyMap());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldKeepCounts_WhenWriteFails() {
+        clickCounterBuffer.record("short.ly/abc123");
+        doThrow(new RuntimeException("db down"))
+                .doNothing()
+                .when(shortUrlPersistenceService).addUsedCounts(anyMap());
+
+        clickCounterBuffer.flush();
+        clickCounterBuffer.record("short.ly/abc123");
+        clickCounterBuffer.flush();
+
+        ArgumentCaptor<Map<String, Long>> captor = ArgumentCaptor.forClass(Map.class);
+        verify(shortUrlPersistenceService, times(2)).addUsedCounts(captor.capture());
+        assertEquals(Map.of("short.ly/abc123", 2L), captor.getAllValues().get(1));
+        assertEquals(1.0, meterRegistry.get("shortener.clicks.flush.failures").counter().count());
+    }
+
+    @Test
+    void record_ShouldScheduleOneEarlyFlushAtATime_CountingOnlyKeysAddedSinceTheLastDrain() throws Exception {
+        clickCounterBuffer = new ClickCounterBuffer(shortUrlPersistenceService,
+                new ClickJournal(false, null, 0, "short.ly", meterRegistry), 2, new SimpleMeterRegistry());
+        var entered = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).doNothing().when(shortUrlPersistenceService).addUsedCounts(anyMap());
+
+        for (int i = 0; i < 3; i++) {
+            clickCounterBuffer.record("short.ly/key" + i);
+        }
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 100; i++) {
+            clickCounterBuffer.record("short.ly/key" + i); // added while the early flush runs
+        }
+        release.countDown();
+        verify(shortUrlPersistenceService, timeout(5000)).addUsedCounts(anyMap());
+
+        clickCounterBuffer.record("short.ly/key0");
+        verify(shortUrlPersistenceService, timeout(5000).times(2)).addUsedCounts(anyMap());
+
+        // The second flush drained every key; clicks on kept counters do not schedule another one
+        for (int i = 0; i < 100; i++) {
+            clickCounterBuffer.record("short.ly/key" + i);
+        }
+        verify(shortUrlPersistenceService, after(200).times(2)).addUsedCounts(anyMap());
+    }
+
+    @Test
+    void flushOnShutdown_ShouldWriteRemainingCounts() {
+        clickCounterBuffer.record("short.ly/abc123");
+
+        clickCounterBuffer.flushOnShutdown();
+
+        verify(shortUrlPersistenceService).addUsedCounts(Map.of("short.ly/abc123", 1L));
+    }
+
+    @Test
+    void record_ShouldNotTouchDatabase() {
+        clickCounterBuffer.record("short.ly/abc123");
+
+        verify(shortUrlPersistenceService, never()).addUsedCounts(anyMap());
+    }
+
+    @Test
+    void flush_ShouldDeleteJournalSegments_OnlyAfterTheClicksAreWritten(@TempDir Path directory) throws IOException {
+        var journal = new ClickJournal(true, directory, 16, "short.ly", meterRegistry);
+        clickCounterBuffer = new ClickCounterBuffer(shortUrlPersistenceService, journal, 1000, meterRegistry);
+        clickCounterBuffer.record("short.ly/abc123");
+        doThrow(new RuntimeException("db down"))
+                .doNothing()
+                .when(shortUrlPersistenceService).addUsedCounts(anyMap());
+
+        clickCounterBuffer.flush();
+        assertEquals(Map.of("short.ly/abc123", 1L), journal.read(segments(directory)));
+
+        clickCounterBuffer.flush();
+        assertEquals(Map.of(), journal.read(segments(directory)));
+    }
+
+    @Test
+    void replayJournal_ShouldApplyClicksOfAPreviousRun(@TempDir Path directory) {
+        var crashed = new ClickJournal(true, directory, 16, "short.ly", meterRegistry);
+        crashed.append("short.ly/abc123");
+        crashed.append("short.ly/abc123");
+        crashed.append("short.ly/def456");
+        crashed.close(); // only releases the lock, as the death of the process would
+
+        var journal = new ClickJournal(true, directory, 16, "short.ly", new SimpleMeterRegistry());
+        clickCounterBuffer = new ClickCounterBuffer(shortUrlPersistenceService, journal, 1000, meterRegistry);
+        clickCounterBuffer.replayJournal();
+
+        verify(shortUrlPersistenceService).addUsedCounts(Map.of("short.ly/abc123", 2L, "short.ly/def456", 1L));
+        assertEquals(List.of(), journal.recoveredSegments());
+        assertEquals(3.0, meterRegistry.get("shortener.clicks.journal.replayed").counter().count());
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (var files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".journal")).toList();
+        }
+    }
+}
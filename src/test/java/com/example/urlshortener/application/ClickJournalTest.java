@@ -0,0 +1,129 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ClickJournalTest {
+
+    @TempDir
+    private Path directory;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void rotate_ShouldReturnSegmentsHoldingAllAppendedClicks() {
+        var journal = new ClickJournal(true, directory, 4, "short.ly", meterRegistry);
+        for (int i = 0; i < 10; i++) {
+            journal.append(i % 2 == 0 ? "short.ly/abc123" : "short.ly/def456");
+        }
+
+        var sealed = journal.rotate();
+
+        assertEquals(3, sealed.size()); // two full segments of 4 records and the partially filled one
+        assertEquals(Map.of("short.ly/abc123", 5L, "short.ly/def456", 5L), journal.read(sealed));
+        assertEquals(List.of(), journal.rotate());
+    }
+
+    @Test
+    void reopen_ShouldRecoverSegmentsOfThePreviousRun() {
+        var crashed = new ClickJournal(true, directory, 4, "short.ly", meterRegistry);
+        crashed.append("short.ly/abc123");
+        crashed.append("short.ly/abc123");
+        crashed.close(); // only releases the lock, as the death of the process would
+
+        var journal = new ClickJournal(true, directory, 4, "short.ly", meterRegistry);
+
+        assertEquals(Map.of("short.ly/abc123", 2L), journal.read(journal.recoveredSegments()));
+        journal.delete(journal.recoveredSegments());
+        assertEquals(List.of(), journal.recoveredSegments());
+    }
+
+    @Test
+    void open_ShouldFail_WhileAnotherJournalUsesTheDirectory() {
+        var live = new ClickJournal(true, directory, 4, "short.ly", meterRegistry);
+        live.append("short.ly/abc123");
+
+        assertThrows(IllegalStateException.class,
+                () -> new ClickJournal(true, directory, 4, "short.ly", new SimpleMeterRegistry()));
+
+        live.close();
+        var journal = new ClickJournal(true, directory, 4, "short.ly", new SimpleMeterRegistry());
+        assertEquals(Map.of("short.ly/abc123", 1L), journal.read(journal.recoveredSegments()));
+    }
+
+    @Test
+    void read_ShouldSkipRecordsWithBadChecksum() throws IOException {
+        var journal = new ClickJournal(true, directory, 4, "short.ly", meterRegistry);
+        journal.append("short.ly/abc123");
+        journal.append("short.ly/def456");
+        var sealed = journal.rotate();
+        try (var file = new RandomAccessFile(sealed.get(0).toFile(), "rw")) {
+            file.seek(ClickJournal.RECORD_SIZE + 20); // inside the short URL of the second record
+            file.write('x');
+        }
+
+        assertEquals(Map.of("short.ly/abc123", 1L), journal.read(sealed));
+        assertEquals(1.0, meterRegistry.get("shortener.clicks.journal.corrupt").counter().count());
+    }
+
+    @Test
+    void append_ShouldSkipShortUrlsThatDoNotFitIntoARecord() {
+        var journal = new ClickJournal(true, directory, 4, "short.ly", meterRegistry);
+
+        journal.append("short.ly/" + "x".repeat(ClickJournal.MAX_CODE_BYTES + 1));
+        journal.append("other.ly/abc123");
+
+        assertTrue(journal.rotate().isEmpty());
+        assertEquals(2.0, meterRegistry.get("shortener.clicks.journal.skipped").counter().count());
+    }
+
+    @Test
+    void append_ShouldJournalTheLongestCodes_WhateverThePrefix() {
+        var prefix = "https://links.example.com/" + "p".repeat(ClickJournal.MAX_CODE_BYTES);
+        var journal = new ClickJournal(true, directory, 4, prefix, meterRegistry);
+        var shortUrl = prefix + "/" + "x".repeat(ShortCodeGenerator.MAX_CODE_LENGTH);
+
+        journal.append(shortUrl);
+        var sealed = journal.rotate();
+
+        assertEquals(Map.of(shortUrl, 1L), journal.read(sealed));
+        journal.delete(sealed);
+        assertFalse(Files.exists(sealed.get(0)));
+    }
+
+    @Test
+    void read_ShouldReplayRecordsHoldingAWholeShortUrl_AsTheyAre() {
+        // Journals written before records held only the code store the whole short URL
+        var older = new ClickJournal(true, directory, 4, "old", meterRegistry);
+        older.append("old/short.ly/abc123");
+        var sealed = older.rotate();
+        older.close();
+
+        var journal = new ClickJournal(true, directory, 4, "short.ly", meterRegistry);
+
+        assertEquals(Map.of("short.ly/abc123", 1L), journal.read(sealed));
+    }
+
+    @Test
+    void append_ShouldDoNothing_WhenDisabled() {
+        var journal = new ClickJournal(false, directory, 4, "short.ly", meterRegistry);
+
+        journal.append("short.ly/abc123");
+
+        assertEquals(List.of(), journal.rotate());
+        assertEquals(List.of(), journal.recoveredSegments());
+    }
+}
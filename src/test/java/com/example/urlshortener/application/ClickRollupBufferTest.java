@@ -0,0 +1,114 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ClickRollupRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ClickRollupBufferTest {
+
+    private static final Instant MINUTE = Instant.parse("2024-05-01T10:15:00Z");
+
+    private ClickRollupRepository clickRollupRepository;
+    private Clock clock;
+    private SimpleMeterRegistry meterRegistry;
+    private ClickRollupBuffer clickRollupBuffer;
+
+    @BeforeEach
+    void setUp() {
+        clickRollupRepository = mock(ClickRollupRepository.class);
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(MINUTE.toEpochMilli());
+        meterRegistry = new SimpleMeterRegistry();
+        clickRollupBuffer = new ClickRollupBuffer(clickRollupRepository, clock, meterRegistry);
+    }
+
+    @Test
+    void flush_ShouldWriteCountsOfTheCurrentMinute() {
+        when(clock.millis()).thenReturn(MINUTE.plusSeconds(20).toEpochMilli());
+        clickRollupBuffer.record("short.ly/abc123");
+        clickRollupBuffer.record("short.ly/abc123");
+        clickRollupBuffer.record("short.ly/def456");
+
+        clickRollupBuffer.flush();
+
+        verify(clickRollupRepository).addMinuteClicks(MINUTE, Map.of("short.ly/abc123", 2L, "short.ly/def456", 1L));
+    }
+
+    @Test
+    void flush_ShouldWriteEachMinuteToItsOwnBucket() {
+        clickRollupBuffer.record("short.ly/abc123");
+        when(clock.millis()).thenReturn(MINUTE.plusSeconds(60).toEpochMilli());
+        clickRollupBuffer.record("short.ly/abc123");
+        clickRollupBuffer.record("short.ly/abc123");
+
+        clickRollupBuffer.flush();
+
+        verify(clickRollupRepository).addMinuteClicks(MINUTE, Map.of("short.ly/abc123", 1L));
+        verify(clickRollupRepository).addMinuteClicks(MINUTE.plusSeconds(60), Map.of("short.ly/abc123", 2L));
+    }
+
+    @Test
+    void flush_ShouldSkipDatabase_WhenNothingBuffered() {
+        clickRollupBuffer.flush();
+
+        verify(clickRollupRepository, never()).addMinuteClicks(any(), anyMap());
+    }
+
+    @Test
+    void flush_ShouldKeepCounts_WhenWriteFails() {
+        clickRollupBuffer.record("short.ly/abc123");
+        doThrow(new RuntimeException("db down"))
+                .doNothing()
+                .when(clickRollupRepository).addMinuteClicks(any(), anyMap());
+
+        clickRollupBuffer.flush();
+        clickRollupBuffer.flush();
+
+        verify(clickRollupRepository, times(2)).addMinuteClicks(MINUTE, Map.of("short.ly/abc123", 1L));
+        assertEquals(1.0, meterRegistry.get("shortener.analytics.flush.failures").counter().count());
+    }
+
+    @Test
+    void flush_ShouldKeepFailedPastMinutes_ForTheNextFlush() {
+        clickRollupBuffer.record("short.ly/abc123");
+        when(clock.millis()).thenReturn(MINUTE.plusSeconds(60).toEpochMilli());
+        clickRollupBuffer.record("short.ly/def456");
+        doThrow(new RuntimeException("db down"))
+                .when(clickRollupRepository).addMinuteClicks(any(), anyMap());
+        clickRollupBuffer.flush();
+
+        when(clock.millis()).thenReturn(MINUTE.plusSeconds(180).toEpochMilli());
+        clickRollupBuffer.record("short.ly/ghi789");
+        reset(clickRollupRepository);
+        clickRollupBuffer.flush();
+
+        verify(clickRollupRepository).addMinuteClicks(MINUTE, Map.of("short.ly/abc123", 1L));
+        verify(clickRollupRepository).addMinuteClicks(MINUTE.plusSeconds(60), Map.of("short.ly/def456", 1L));
+        verify(clickRollupRepository).addMinuteClicks(MINUTE.plusSeconds(180), Map.of("short.ly/ghi789", 1L));
+    }
+
+    @Test
+    void flushOnShutdown_ShouldWriteRemainingCounts() {
+        clickRollupBuffer.record("short.ly/abc123");
+
+        clickRollupBuffer.flushOnShutdown();
+
+        verify(clickRollupRepository).addMinuteClicks(MINUTE, Map.of("short.ly/abc123", 1L));
+    }
+}
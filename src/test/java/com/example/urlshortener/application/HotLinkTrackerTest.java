@@ -0,0 +1,128 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HotLinkTrackerTest {
+
+    // Aligned to a day, so that every window's buckets start here
+    private static final long START = 20_000L * 86_400_000L;
+
+    private Clock clock;
+    private RedirectCache redirectCache;
+
+    @BeforeEach
+    void setUp() {
+        clock = mock(Clock.class);
+        when(clock.millis()).thenReturn(START);
+        redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void top_ShouldRankClicksOfTheRunningSlice() {
+        var tracker = tracker(0);
+        click(tracker, "abc", 3);
+        click(tracker, "def", 5);
+        click(tracker, "ghi", 1);
+
+        assertEquals(List.of(new HotLinkTracker.HotLink("def", 5, 0), new HotLinkTracker.HotLink("abc", 3, 0)),
+                tracker.top(HotLinkTracker.Window.MINUTE, 2));
+        assertThrows(IllegalArgumentException.class, () -> tracker.top(HotLinkTracker.Window.MINUTE, 0));
+    }
+
+    @Test
+    void top_ShouldDropClicksOnceTheyLeaveTheWindow() {
+        var tracker = tracker(0);
+        click(tracker, "abc", 4);
+        assertFalse(tracker.advance(START + HotLinkTracker.SLICE_MILLIS - 1));
+
+        // Ten seconds later the clicks are in the sealed slice, a new one is running
+        advanceTo(tracker, START + HotLinkTracker.SLICE_MILLIS);
+        click(tracker, "def", 2);
+        assertEquals(List.of("abc", "def"), codes(tracker.top(HotLinkTracker.Window.MINUTE, 10)));
+
+        // Two minutes on, the last minute is empty while the hour and day still count them
+        advanceTo(tracker, START + Duration.ofMinutes(2).toMillis());
+        assertEquals(List.of(), tracker.top(HotLinkTracker.Window.MINUTE, 10));
+        assertEquals(List.of(new HotLinkTracker.HotLink("abc", 4, 0), new HotLinkTracker.HotLink("def", 2, 0)),
+                tracker.top(HotLinkTracker.Window.HOUR, 10));
+
+        advanceTo(tracker, START + Duration.ofHours(2).toMillis());
+        assertEquals(List.of(), tracker.top(HotLinkTracker.Window.HOUR, 10));
+        assertEquals(List.of("abc", "def"), codes(tracker.top(HotLinkTracker.Window.DAY, 10)));
+    }
+
+    @Test
+    void record_ShouldCountCodesBeyondMaxSliceKeysInSpaceSavingCounters() {
+        var tracker = tracker(2, 0);
+        click(tracker, "abc", 3);
+        click(tracker, "def", 2);
+        click(tracker, "ghi", 5); // the slice already counts two codes
+
+        assertEquals(List.of(new HotLinkTracker.HotLink("ghi", 5, 0), new HotLinkTracker.HotLink("abc", 3, 0),
+                new HotLinkTracker.HotLink("def", 2, 0)), tracker.top(HotLinkTracker.Window.MINUTE, 10));
+
+        advanceTo(tracker, START + HotLinkTracker.SLICE_MILLIS);
+        click(tracker, "ghi", 1); // a new slice starts with no codes
+        assertEquals(List.of(new HotLinkTracker.HotLink("ghi", 6, 0), new HotLinkTracker.HotLink("abc", 3, 0),
+                new HotLinkTracker.HotLink("def", 2, 0)), tracker.top(HotLinkTracker.Window.MINUTE, 10));
+    }
+
+    @Test
+    void tick_ShouldPinTheHottestCachedCodes() {
+        for (var code : List.of("abc", "def", "ghi")) {
+            redirectCache.get(code, key -> Optional.of(new RedirectTarget("short.ly/" + key, "https://example.com")));
+        }
+        var tracker = tracker(2);
+        click(tracker, "abc", 1);
+        click(tracker, "def", 3);
+        click(tracker, "ghi", 2);
+
+        tracker.tick();
+        assertFalse(redirectCache.isPinned("def")); // the slice is still running
+
+        when(clock.millis()).thenReturn(START + HotLinkTracker.SLICE_MILLIS);
+        tracker.tick();
+
+        assertTrue(redirectCache.isPinned("def"));
+        assertTrue(redirectCache.isPinned("ghi"));
+        assertFalse(redirectCache.isPinned("abc"));
+    }
+
+    private HotLinkTracker tracker(int pinCount) {
+        return tracker(10_000, pinCount);
+    }
+
+    private HotLinkTracker tracker(int maxSliceKeys, int pinCount) {
+        return new HotLinkTracker(redirectCache, true, 100, maxSliceKeys, pinCount, HotLinkTracker.Window.HOUR, clock,
+                new SimpleMeterRegistry());
+    }
+
+    private void advanceTo(HotLinkTracker tracker, long millis) {
+        when(clock.millis()).thenReturn(millis);
+        assertTrue(tracker.advance(millis));
+    }
+
+    private static void click(HotLinkTracker tracker, String shortCode, int times) {
+        for (int i = 0; i < times; i++) {
+            tracker.record(shortCode);
+        }
+    }
+
+    private static List<String> codes(List<HotLinkTracker.HotLink> hotLinks) {
+        return hotLinks.stream().map(HotLinkTracker.HotLink::shortCode).toList();
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ExpiringLink;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LinkExpiryTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ShortUrlPersistenceService shortUrlPersistenceService;
+    private RedirectCache redirectCache;
+
+    @BeforeEach
+    void setUp() {
+        shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+        redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        when(shortUrlPersistenceService.findExpiring(any(), anyLong(), any(), anyInt())).thenReturn(List.of());
+        when(shortUrlPersistenceService.findExpired(any(), anyInt())).thenReturn(List.of());
+        when(shortUrlPersistenceService.deleteExpired(anyCollection(), any()))
+                .thenAnswer(invocation -> List.copyOf(invocation.<List<String>>getArgument(0)));
+    }
+
+    @Test
+    void expiresAt_ShouldPreferRequestedExpiry_ThenDefaultTtl() {
+        var requested = Instant.parse("2100-01-01T00:00:00.123456789Z");
+
+        assertEquals(Instant.parse("2100-01-01T00:00:00.123456Z"), linkExpiry(Duration.ZERO, 500).expiresAt(requested));
+        assertNull(linkExpiry(Duration.ZERO, 500).expiresAt(null));
+        var defaulted = linkExpiry(Duration.ofDays(1), 500).expiresAt(null);
+        assertTrue(Duration.between(Instant.now(), defaulted).compareTo(Duration.ofHours(23)) > 0);
+        assertEquals(defaulted, defaulted.truncatedTo(ChronoUnit.MICROS));
+    }
+
+    @Test
+    void tick_ShouldPurgeSweptLinksOnceDue_AndEvictThem() throws Exception {
+        var now = Instant.now();
+        when(shortUrlPersistenceService.findExpiring(eq(Instant.EPOCH), eq(0L), any(), anyInt())).thenReturn(List.of(
+                new ExpiringLink(1, "short.ly/soon", now.plusMillis(20)),
+                new ExpiringLink(2, "short.ly/later", now.plusSeconds(600))));
+        redirectCache.put("soon", new RedirectTarget("short.ly/soon", "https://example.com", 0, "no-store",
+                now.plusMillis(20).toEpochMilli()));
+        var linkExpiry = linkExpiry(Duration.ZERO, 500);
+
+        linkExpiry.tick();
+        verify(shortUrlPersistenceService, never()).deleteExpired(anyCollection(), any());
+
+        Thread.sleep(50);
+        linkExpiry.tick();
+
+        verify(shortUrlPersistenceService).deleteExpired(eq(List.of("short.ly/soon")), any());
+        assertFalse(redirectCache.contains("soon"));
+        assertEquals(1.0, meterRegistry.get("shortener.expiry.purged").counter().count());
+        assertEquals(1.0, meterRegistry.get("shortener.expiry.scheduled").gauge().value());
+        // The horizon is loaded, so later ticks do not query it again
+        verify(shortUrlPersistenceService, times(1)).findExpiring(any(), anyLong(), any(), anyInt());
+    }
+
+    @Test
+    void tick_ShouldDrainBacklogInCappedBatches() {
+        var backlog = List.of("short.ly/a", "short.ly/b", "short.ly/c", "short.ly/d", "short.ly/e");
+        when(shortUrlPersistenceService.findExpired(any(), anyInt())).thenReturn(backlog).thenReturn(List.of());
+        var linkExpiry = linkExpiry(Duration.ZERO, 2);
+
+        linkExpiry.tick();
+
+        // Two batches of two per tick; the rest waits for the next tick
+        verify(shortUrlPersistenceService).deleteExpired(eq(List.of("short.ly/a", "short.ly/b")), any());
+        verify(shortUrlPersistenceService).deleteExpired(eq(List.of("short.ly/c", "short.ly/d")), any());
+        assertEquals(1, linkExpiry.backlog());
+        assertEquals(4.0, meterRegistry.get("shortener.expiry.purged").counter().count());
+    }
+
+    @Test
+    void schedule_ShouldOnlyAddLinksWithinTheLoadedRange() {
+        var linkExpiry = linkExpiry(Duration.ZERO, 500);
+        linkExpiry.tick(); // loads the horizon: nothing expires within it
+
+        linkExpiry.schedule("short.ly/soon", Instant.now().plusSeconds(60));
+        linkExpiry.schedule("short.ly/far", Instant.now().plus(Duration.ofDays(1)));
+        linkExpiry.schedule("short.ly/never", null);
+
+        assertEquals(1.0, meterRegistry.get("shortener.expiry.scheduled").gauge().value());
+    }
+
+    private LinkExpiry linkExpiry(Duration defaultTtl, int purgeBatchSize) {
+        return new LinkExpiry(shortUrlPersistenceService, redirectCache, true, defaultTtl, 10, Duration.ofHours(1),
+                purgeBatchSize, 2, 100_000, meterRegistry);
+    }
+}
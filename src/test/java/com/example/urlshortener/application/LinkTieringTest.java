@@ -0,0 +1,62 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.example.urlshortener.persistence.TieringBatch;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class LinkTieringTest {
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void run_ShouldContinueWhereThePreviousRunStopped_AndStartOverAtTheEnd() {
+        when(shortUrlPersistenceService.archiveIdle(eq(0L), any(), eq(100))).thenReturn(new TieringBatch(100, 3));
+        when(shortUrlPersistenceService.archiveIdle(eq(100L), any(), eq(100))).thenReturn(new TieringBatch(200, 0));
+        when(shortUrlPersistenceService.archiveIdle(eq(200L), any(), eq(100))).thenReturn(new TieringBatch(250, 1));
+        when(shortUrlPersistenceService.archiveIdle(eq(250L), any(), eq(100))).thenReturn(new TieringBatch(0, 0));
+        var tiering = new LinkTiering(shortUrlPersistenceService, true, Duration.ofDays(365), 100, 2, meterRegistry);
+
+        tiering.run();
+        assertEquals(200, tiering.position());
+
+        tiering.run();
+        assertEquals(0, tiering.position());
+        assertEquals(4.0, meterRegistry.get("shortener.tiering.archived").counter().count());
+    }
+
+    @Test
+    void run_ShouldArchiveLinksIdleForTheConfiguredTime() {
+        when(shortUrlPersistenceService.archiveIdle(anyLong(), any(), anyInt())).thenReturn(new TieringBatch(0, 0));
+        var tiering = new LinkTiering(shortUrlPersistenceService, true, Duration.ofDays(30), 100, 2, meterRegistry);
+
+        var before = Instant.now().minus(Duration.ofDays(30));
+        tiering.run();
+
+        verify(shortUrlPersistenceService).archiveIdle(eq(0L),
+                argThat(idleSince -> !idleSince.isBefore(before)
+                        && idleSince.isBefore(before.plusSeconds(60))), eq(100));
+    }
+
+    @Test
+    void run_ShouldDoNothing_WhenDisabled() {
+        new LinkTiering(shortUrlPersistenceService, false, Duration.ofDays(365), 100, 2, meterRegistry).run();
+
+        verify(shortUrlPersistenceService, never()).archiveIdle(anyLong(), any(), anyInt());
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.urlshortener.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PrimitiveUrlTableTest {
+
+    private final HashShortCodeGenerator generator = new HashShortCodeGenerator();
+
+    @Test
+    void get_ShouldReturnEveryStoredUrl_AfterGrowth() {
+        var table = new PrimitiveUrlTable(16, false, 1024);
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(table.put(generator.generate("https://example.com/" + i, 0), "https://example.com/" + i));
+        }
+
+        assertEquals(10_000, table.size());
+        for (int i = 0; i < 10_000; i++) {
+            assertEquals("https://example.com/" + i, table.get(generator.generate("https://example.com/" + i, 0)));
+        }
+        assertNull(table.get(generator.generate("https://example.com/absent", 0)));
+    }
+
+    @Test
+    void get_ShouldReadUtf8UrlsFromOffHeapArena() {
+        var table = new PrimitiveUrlTable(16, true, 64);
+
+        table.put("abc123", "https://example.com/straße");
+        table.put("def456", "https://example.com/" + "x".repeat(40)); // does not fit into the first chunk
+
+        assertEquals("https://example.com/straße", table.get("abc123"));
+        assertEquals("https://example.com/" + "x".repeat(40), table.get("def456"));
+        assertEquals(128, table.arenaCapacity());
+    }
+
+    @Test
+    void put_ShouldKeepFirstMapping_AndRejectWhatCannotBeIndexed() {
+        var table = new PrimitiveUrlTable(16, false, 64);
+
+        table.put("abc123", "https://example.com");
+        table.put("abc123", "https://example.org");
+
+        assertEquals("https://example.com", table.get("abc123"));
+        assertEquals(1, table.size());
+        assertFalse(table.put("x".repeat(PrimitiveUrlTable.MAX_PACKED_LENGTH + 1), "https://example.com"));
+        assertFalse(table.put("abc/123", "https://example.com"));
+        assertFalse(table.put("def456", "https://example.com/" + "x".repeat(64)));
+        assertNull(table.get("abc/123"));
+    }
+
+    @Test
+    void pack_ShouldBeInjective_ForCodesOfDifferentLength() {
+        // "A" is digit 0, so only the length tells these apart
+        var packed = new HashSet<Long>();
+        for (var code : new String[]{"A", "AA", "AAA", "AAAAAAAAAA", "_", "__________"}) {
+            long key = PrimitiveUrlTable.pack(code);
+            assertNotEquals(0, key);
+            assertTrue(packed.add(key), code);
+        }
+        assertEquals(0, PrimitiveUrlTable.pack(""));
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import com.example.urlshortener.persistence.ReactiveUrlRepository;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.example.urlshortener.persistence.UpsertResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DuplicateKeyException;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ReactiveShortenerServiceTest {
+
+    private ReactiveUrlRepository reactiveUrlRepository;
+    private ShortCodeFilter shortCodeFilter;
+    private ReactiveShortenerService shortenerService;
+
+    @BeforeEach
+    void setUp() {
+        reactiveUrlRepository = mock(ReactiveUrlRepository.class);
+        var redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        shortCodeFilter = new ShortCodeFilter(mock(ShortUrlPersistenceService.class), redirectCache, true, 1000, 0.01,
+                new SimpleMeterRegistry());
+        var generator = new HashShortCodeGenerator();
+        shortenerService = new ReactiveShortenerService(reactiveUrlRepository, redirectCache,
+                mock(ClickCounterBuffer.class), mock(ClickRollupBuffer.class), shortCodeFilter,
+                new ShortCodeIndex(mock(ShortUrlPersistenceService.class), false, false, 1, new SimpleMeterRegistry()),
+                generator,
+                mock(LinkExpiry.class),
+                new ShortenerMetrics(new SimpleMeterRegistry(), generator));
+    }
+
+    @Test
+    void shortenUrl_ShouldRetryWithNextAttempt_WhenCodeCollides() {
+        var originalUrl = "https://example.com";
+        var generator = new HashShortCodeGenerator();
+        var collidingShortUrl = "short.ly/" + generator.generate(originalUrl, 0);
+        when(reactiveUrlRepository.upsert(any())).thenAnswer(invocation -> {
+            ShortUrlDto dto = invocation.getArgument(0);
+            if (dto.getShortUrl().equals(collidingShortUrl)) {
+                return Mono.error(new DuplicateKeyException("duplicate short_url"));
+            }
+            return Mono.just(new UpsertResult(dto, true));
+        });
+
+        var result = shortenerService.shortenUrl(originalUrl).block();
+
+        assertNotNull(result);
+        assertEquals("short.ly/" + generator.generate(originalUrl, 1), result.getShortUrl());
+        verify(reactiveUrlRepository, times(2)).upsert(any());
+    }
+
+    @Test
+    void shortenUrl_ShouldFail_WhenEveryAttemptCollides() {
+        when(reactiveUrlRepository.upsert(any())).thenReturn(Mono.error(new DuplicateKeyException("duplicate")));
+
+        assertThrows(RuntimeException.class, () -> shortenerService.shortenUrl("https://example.com").block());
+
+        verify(reactiveUrlRepository, times(5)).upsert(any());
+    }
+
+    @Test
+    void resolve_ShouldServeNewlyCreatedShortUrl_FromCache() {
+        when(reactiveUrlRepository.upsert(any()))
+                .thenAnswer(invocation -> Mono.just(new UpsertResult(invocation.getArgument(0), true)));
+        var created = shortenerService.shortenUrl("https://example.com").block();
+
+        var target = shortenerService.resolve(created.getShortUrl().substring("short.ly/".length())).block();
+
+        assertEquals(new RedirectTarget(created.getShortUrl(), "https://example.com"), target);
+        verify(reactiveUrlRepository, never()).findByShortUrl(anyString());
+    }
+
+    @Test
+    void resolve_ShouldBeEmpty_WhenShortUrlIsUnknown() {
+        when(reactiveUrlRepository.findByShortUrl("short.ly/missing")).thenReturn(Mono.empty());
+
+        assertNull(shortenerService.resolve("missing").block());
+        assertNull(shortenerService.resolve("missing").block());
+
+        verify(reactiveUrlRepository, times(1)).findByShortUrl("short.ly/missing");
+    }
+
+    @Test
+    void resolve_ShouldSkipDatabase_WhenFilterRulesOutShortUrl() {
+        shortCodeFilter.rebuild(); // empty table
+
+        assertNull(shortenerService.resolve("missing").block());
+
+        verify(reactiveUrlRepository, never()).findByShortUrl(anyString());
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RedirectCacheTest {
+
+    private static final RedirectTarget TARGET = new RedirectTarget("short.ly/abc123", "https://example.com");
+
+    private SimpleMeterRegistry meterRegistry;
+    private RedirectCache redirectCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), meterRegistry);
+    }
+
+    @Test
+    void get_ShouldInvokeLoaderOnlyOnce_ForKnownShortUrl() {
+        var loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            var result = redirectCache.get("abc123", key -> {
+                loads.incrementAndGet();
+                return Optional.of(TARGET);
+            });
+            assertSame(TARGET, result);
+        }
+
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_ShouldCacheNegativeEntries_AndCountNegativeHits() {
+        var loads = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            var result = redirectCache.get("missing", key -> {
+                loads.incrementAndGet();
+                return Optional.empty();
+            });
+            assertNull(result);
+        }
+
+        assertEquals(1, loads.get());
+        assertEquals(2.0, meterRegistry.get("shortener.cache.negative.hits").counter().count());
+    }
+
+    @Test
+    void get_ShouldReloadNegativeEntry_AfterTtl() throws InterruptedException {
+        redirectCache = new RedirectCache(100, 0, Duration.ofMillis(10), meterRegistry);
+        var loads = new AtomicInteger();
+
+        redirectCache.get("missing", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+        Thread.sleep(50);
+        redirectCache.get("missing", key -> {
+            loads.incrementAndGet();
+            return Optional.empty();
+        });
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void put_ShouldReplaceNegativeEntry() {
+        redirectCache.get("abc123", key -> Optional.empty());
+
+        redirectCache.put("abc123", TARGET);
+
+        var result = redirectCache.get("abc123", key -> Optional.empty());
+        assertSame(TARGET, result);
+    }
+
+    @Test
+    void get_ShouldRetryLoad_AfterLoaderFailure() {
+        assertThrows(IllegalStateException.class, () -> redirectCache.get("abc123", key -> {
+            throw new IllegalStateException("database down");
+        }));
+
+        var result = redirectCache.get("abc123", key -> Optional.of(TARGET));
+
+        assertSame(TARGET, result);
+    }
+
+    @Test
+    void hottest_ShouldReturnPositiveEntriesOnly() {
+        redirectCache.put("abc123", TARGET);
+        redirectCache.get("unknown", key -> Optional.empty());
+
+        assertEquals(Map.of("abc123", TARGET), redirectCache.hottest(10));
+        assertTrue(redirectCache.contains("unknown"));
+    }
+
+    @Test
+    void pin_ShouldServePinnedCodesWithoutLoading_AndSkipUncachedOnes() {
+        redirectCache.put("abc123", TARGET);
+        redirectCache.get("unknown", key -> Optional.empty());
+
+        redirectCache.pin(List.of("abc123", "unknown", "uncached"));
+        assertTrue(redirectCache.isPinned("abc123"));
+        assertFalse(redirectCache.isPinned("unknown"));
+        assertFalse(redirectCache.isPinned("uncached"));
+        assertEquals(1.0, meterRegistry.get("shortener.cache.pinned").gauge().value());
+
+        assertSame(TARGET, redirectCache.get("abc123", key -> {
+            throw new AssertionError("pinned code loaded");
+        }));
+        assertSame(TARGET, redirectCache.getAsync("abc123", key -> {
+            throw new AssertionError("pinned code loaded");
+        }).join().orElseThrow());
+
+        redirectCache.pin(List.of());
+        assertFalse(redirectCache.isPinned("abc123"));
+    }
+
+    @Test
+    void invalidate_ShouldUnpin_AndPutShouldReplacePinnedTarget() {
+        redirectCache.put("abc123", TARGET);
+        redirectCache.pin(List.of("abc123"));
+        var revived = new RedirectTarget("short.ly/abc123", "https://example.com", 0, "no-store", 1);
+
+        redirectCache.put("abc123", revived);
+        assertSame(revived, redirectCache.get("abc123", key -> Optional.empty()));
+
+        redirectCache.invalidate("abc123");
+        assertFalse(redirectCache.isPinned("abc123"));
+        assertNull(redirectCache.get("abc123", key -> Optional.empty()));
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RedirectCacheWarmerTest {
+
+    @TempDir
+    private Path directory;
+
+    private final ShortUrlPersistenceService shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void warmUp_ShouldCacheMostUsedShortUrlsOfThisPrefix() {
+        when(shortUrlPersistenceService.forEachMostUsed(anyInt(), anyInt(), any())).thenAnswer(invocation -> {
+            Predicate<ShortUrlDto> consumer = invocation.getArgument(2);
+            consumer.test(new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 7));
+            consumer.test(new ShortUrlDto("other.ly/def456", "https://example.org", 1, 5));
+            return 2;
+        });
+        var redirectCache = newCache();
+
+        warmer(redirectCache, true, false).warmUp();
+
+        assertEquals(new RedirectTarget("short.ly/abc123", "https://example.com"),
+                redirectCache.get("abc123", key -> { throw new AssertionError("not warmed: " + key); }));
+        assertFalse(redirectCache.contains("def456"));
+        assertEquals(1.0, meterRegistry.get("shortener.cache.warmup.entries").tag("source", "database")
+                .counter().count());
+    }
+
+    @Test
+    void warmUp_ShouldNotFailStartup_WhenDatabaseIsUnavailable() {
+        when(shortUrlPersistenceService.forEachMostUsed(anyInt(), anyInt(), any()))
+                .thenThrow(new IllegalStateException("connection refused"));
+        var redirectCache = newCache();
+
+        warmer(redirectCache, true, false).warmUp();
+
+        assertEquals(0, redirectCache.estimatedSize());
+    }
+
+    @Test
+    void snapshot_ShouldRestoreHottestEntries_OnNextStart() {
+        var previous = newCache();
+        previous.put("abc123", new RedirectTarget("short.ly/abc123", "https://example.com/stra%C3%9Fe"));
+        previous.put("def456", new RedirectTarget("short.ly/def456", "https://example.org", 301, "public, max-age=3600"));
+        previous.put("ghi789", new RedirectTarget("short.ly/ghi789", "https://example.net", 0, "no-store",
+                System.currentTimeMillis() + 60_000));
+        previous.put("jkl012", new RedirectTarget("short.ly/jkl012", "https://example.net", 0, "no-store",
+                System.currentTimeMillis() - 1000));
+        previous.get("unknown", key -> Optional.empty());
+        warmer(previous, false, true).writeSnapshot();
+
+        var restarted = newCache();
+        warmer(restarted, false, true).warmUp();
+
+        var expected = previous.hottest(10);
+        expected.remove("jkl012");
+        assertEquals(expected, restarted.hottest(10));
+        assertFalse(restarted.contains("unknown"));
+        assertFalse(restarted.contains("jkl012")); // expired
+    }
+
+    @Test
+    void snapshot_ShouldBeIgnored_WhenCorrupt() throws IOException {
+        var previous = newCache();
+        previous.put("abc123", new RedirectTarget("short.ly/abc123", "https://example.com"));
+        warmer(previous, false, true).writeSnapshot();
+        try (var file = new RandomAccessFile(directory.resolve("redirect.snapshot").toFile(), "rw")) {
+            file.seek(file.length() - 16); // inside the last location
+            file.write('x');
+        }
+
+        var restarted = newCache();
+
+        assertEquals(0, warmer(restarted, false, true).loadSnapshot());
+        assertTrue(restarted.hottest(10).isEmpty());
+    }
+
+    private RedirectCache newCache() {
+        return new RedirectCache(100, 0, Duration.ofSeconds(30), new SimpleMeterRegistry());
+    }
+
+    private RedirectCacheWarmer warmer(RedirectCache redirectCache, boolean enabled, boolean snapshotEnabled) {
+        return new RedirectCacheWarmer(redirectCache, shortUrlPersistenceService, enabled, 100, 10,
+                Duration.ofSeconds(5), snapshotEnabled, directory.resolve("redirect.snapshot"), 100, meterRegistry);
+    }
+}
@@ -0,0 +1,60 @@
+package com.example.urlshortener.application;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalableBloomFilterTest {
+
+    @Test
+    void mightContain_ShouldNeverReturnFalseNegatives() {
+        var filter = new ScalableBloomFilter(1_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("short.ly/code" + i);
+        }
+
+        for (int i = 0; i < 10_000; i++) {
+            assertTrue(filter.mightContain("short.ly/code" + i));
+        }
+    }
+
+    @Test
+    void put_ShouldAddSegments_WhenCapacityIsExceeded() {
+        var filter = new ScalableBloomFilter(1_000, 0.01);
+
+        for (int i = 0; i < 10_000; i++) {
+            filter.put("short.ly/code" + i);
+        }
+
+        assertTrue(filter.segmentCount() > 1);
+    }
+
+    @Test
+    void falsePositiveRate_ShouldStayWithinBound_AfterGrowth() {
+        var filter = new ScalableBloomFilter(1_000, 0.01);
+        for (int i = 0; i < 20_000; i++) {
+            filter.put("short.ly/code" + i);
+        }
+
+        int falsePositives = 0;
+        int probes = 100_000;
+        for (int i = 0; i < probes; i++) {
+            if (filter.mightContain("short.ly/absent" + i)) {
+                falsePositives++;
+            }
+        }
+
+        assertTrue(falsePositives / (double) probes < 0.02, "observed rate " + falsePositives / (double) probes);
+        assertTrue(filter.expectedFalsePositiveRate() < 0.02);
+        assertTrue(filter.fillRatio() > 0 && filter.fillRatio() < 1);
+    }
+
+    @Test
+    void mightContain_ShouldReturnFalse_OnEmptyFilter() {
+        var filter = new ScalableBloomFilter(1_000, 0.01);
+
+        assertFalse(filter.mightContain("short.ly/abc123"));
+    }
+}
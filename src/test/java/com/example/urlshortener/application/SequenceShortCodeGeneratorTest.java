@@ -0,0 +1,68 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SequenceShortCodeGeneratorTest {
+
+    private ShortUrlPersistenceService shortUrlPersistenceService;
+    private SimpleMeterRegistry meterRegistry;
+    private SequenceShortCodeGenerator generator;
+
+    @BeforeEach
+    void setUp() {
+        shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        when(shortUrlPersistenceService.codeBlockSize()).thenReturn(100L);
+        when(shortUrlPersistenceService.nextCodeBlockStart()).thenReturn(1L, 101L, 201L, 301L, 401L);
+        generator = new SequenceShortCodeGenerator(shortUrlPersistenceService, meterRegistry);
+    }
+
+    @Test
+    void generate_ShouldLeaseOneBlockPerBlockSizeCodes() {
+        var codes = new HashSet<String>();
+        for (int i = 0; i < 250; i++) {
+            codes.add(generator.generate("https://example.com/" + i, 0));
+        }
+
+        assertEquals(250, codes.size());
+        verify(shortUrlPersistenceService, times(3)).nextCodeBlockStart();
+        verify(shortUrlPersistenceService, times(1)).codeBlockSize();
+        assertEquals(3.0, meterRegistry.get("shortener.codes.block.refills").counter().count());
+    }
+
+    @Test
+    void generate_ShouldReturnUniqueCodes_UnderConcurrency() throws InterruptedException {
+        var codes = ConcurrentHashMap.<String>newKeySet();
+        var executor = Executors.newFixedThreadPool(8);
+        for (int i = 0; i < 400; i++) {
+            executor.submit(() -> codes.add(generator.generate("https://example.com", 0)));
+        }
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        assertEquals(400, codes.size());
+    }
+
+    @Test
+    void encodeBase62_ShouldEncodeWithoutPadding() {
+        assertEquals("0", SequenceShortCodeGenerator.encodeBase62(0));
+        assertEquals("z", SequenceShortCodeGenerator.encodeBase62(61));
+        assertEquals("10", SequenceShortCodeGenerator.encodeBase62(62));
+        assertEquals("zzzzzzz", SequenceShortCodeGenerator.encodeBase62(3521614606207L));
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShortCodeFilterTest {
+
+    private ShortUrlPersistenceService shortUrlPersistenceService;
+    private RedirectCache redirectCache;
+    private SimpleMeterRegistry meterRegistry;
+    private ShortCodeFilter shortCodeFilter;
+
+    @BeforeEach
+    void setUp() {
+        shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+        meterRegistry = new SimpleMeterRegistry();
+        redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), meterRegistry);
+        shortCodeFilter = new ShortCodeFilter(shortUrlPersistenceService, redirectCache, true, 1000, 0.01,
+                meterRegistry);
+        doAnswer(invocation -> {
+            Consumer<String> consumer = invocation.getArgument(0);
+            consumer.accept("short.ly/local");
+            return null;
+        }).when(shortUrlPersistenceService).forEachShortUrl(any());
+    }
+
+    @Test
+    void refresh_ShouldAddLinksCreatedByOtherProcesses_AndDropTheirNegativeEntries() {
+        assertTrue(shortCodeFilter.rebuild());
+        assertFalse(shortCodeFilter.mightContain("short.ly/remote"));
+        redirectCache.putMissing("remote");
+        when(shortUrlPersistenceService.findShortUrlsCreatedWithin(any()))
+                .thenReturn(List.of("short.ly/local", "short.ly/remote"));
+
+        shortCodeFilter.refresh();
+
+        assertTrue(shortCodeFilter.mightContain("short.ly/remote"));
+        assertFalse(redirectCache.isMissing("remote"));
+        assertEquals(1.0, meterRegistry.get("shortener.filter.refreshed").counter().count());
+    }
+
+    @Test
+    void refresh_ShouldLookBackToThePreviousRefresh_WithOverlap() {
+        assertTrue(shortCodeFilter.rebuild());
+        when(shortUrlPersistenceService.findShortUrlsCreatedWithin(any())).thenReturn(List.of());
+
+        shortCodeFilter.refresh();
+        shortCodeFilter.refresh();
+
+        var lookbacks = ArgumentCaptor.forClass(Duration.class);
+        verify(shortUrlPersistenceService, times(2)).findShortUrlsCreatedWithin(lookbacks.capture());
+        for (var lookback : lookbacks.getAllValues()) {
+            assertTrue(lookback.compareTo(Duration.ofMinutes(1)) >= 0);
+            assertTrue(lookback.compareTo(Duration.ofMinutes(2)) < 0);
+        }
+    }
+
+    @Test
+    void refresh_ShouldDoNothing_BeforeTheFirstBuild() {
+        shortCodeFilter.refresh();
+
+        verify(shortUrlPersistenceService, never()).findShortUrlsCreatedWithin(any());
+        assertTrue(shortCodeFilter.mightContain("short.ly/remote"));
+    }
+}
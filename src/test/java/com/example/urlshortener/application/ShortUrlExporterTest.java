@@ -0,0 +1,103 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.persistence.ExportQuery;
+import com.example.urlshortener.persistence.ExportRow;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class ShortUrlExporterTest {
+
+    private static final ExportQuery ALL = new ExportQuery(0, null, null, 0);
+    private static final Instant CREATED = Instant.parse("2024-01-01T00:00:00Z");
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ShortUrlPersistenceService shortUrlPersistenceService;
+    private ShortUrlExporter exporter;
+
+    @BeforeEach
+    void setUp() {
+        shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
+        exporter = new ShortUrlExporter(shortUrlPersistenceService, objectMapper, meterRegistry);
+        doAnswer(invocation -> {
+            Consumer<ExportRow> consumer = invocation.getArgument(1);
+            consumer.accept(new ExportRow(1, "short.ly/abc", "https://example.com", 3, 7, CREATED));
+            consumer.accept(new ExportRow(2, "short.ly/def", "https://example.com/?q=a,b&t=\"x\"", 1, 0, CREATED));
+            return null;
+        }).when(shortUrlPersistenceService).exportRows(eq(ALL), any());
+    }
+
+    @Test
+    void export_ShouldWriteOneJsonObjectPerLine() throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        assertEquals(2, exporter.export(ShortUrlExporter.Format.NDJSON, ALL, output));
+
+        var lines = output.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertTrue(lines[1].startsWith("{\"id\":2,"));
+        var first = objectMapper.readTree(lines[0]);
+        assertEquals(1, first.get("id").asLong());
+        assertEquals("short.ly/abc", first.get("shortUrl").asText());
+        assertEquals(3, first.get("requestCount").asInt());
+        assertEquals(7, first.get("usedCount").asInt());
+        assertEquals("2024-01-01T00:00:00Z", first.get("createdAt").asText());
+        assertEquals("https://example.com/?q=a,b&t=\"x\"", objectMapper.readTree(lines[1]).get("originalUrl").asText());
+        assertEquals(2, meterRegistry.get("shortener.export.rows").counter().count());
+    }
+
+    @Test
+    void export_ShouldWriteCsvWithHeader_QuotingFieldsWhereNeeded() throws Exception {
+        var output = new ByteArrayOutputStream();
+
+        exporter.export(ShortUrlExporter.Format.CSV, ALL, output);
+
+        assertEquals("""
+                id,short_url,original_url,request_count,used_count,created_at
+                1,short.ly/abc,https://example.com,3,7,2024-01-01T00:00:00Z
+                2,short.ly/def,"https://example.com/?q=a,b&t=\"\"x\"\"",1,0,2024-01-01T00:00:00Z
+                """, output.toString(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void export_ShouldStopAndRethrow_WhenClientDisconnects() {
+        var broken = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+
+        var failure = assertThrows(IOException.class,
+                () -> exporter.export(ShortUrlExporter.Format.NDJSON, new ExportQuery(0, null, null, 0), broken));
+        assertEquals("Broken pipe", failure.getMessage());
+    }
+
+    @Test
+    void writeCsvField_ShouldQuoteLineBreaks() throws Exception {
+        var writer = new StringWriter();
+
+        ShortUrlExporter.writeCsvField(writer, "a\nb");
+
+        assertEquals("\"a\nb\"", writer.toString());
+    }
+}
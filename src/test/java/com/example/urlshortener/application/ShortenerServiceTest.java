@@ -2,29 +2,60 @@ package com.example.urlshortener.application;
 
 import com.example.urlshortener.api.ShortUrlDto;
 import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.example.urlshortener.persistence.UpsertResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.dao.DataIntegrityViolationException;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
-import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 class ShortenerServiceTest {
 
     private ShortUrlPersistenceService shortUrlPersistenceService;
+    private ClickCounterBuffer clickCounterBuffer;
+    private ClickRollupBuffer clickRollupBuffer;
+    private ShortCodeFilter shortCodeFilter;
+    private ShortCodeIndex shortCodeIndex;
+    private LinkExpiry linkExpiry;
     private ShortenerService shortenerService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         shortUrlPersistenceService = mock(ShortUrlPersistenceService.class);
-        shortenerService = new ShortenerService(shortUrlPersistenceService);
+        var redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        clickCounterBuffer = mock(ClickCounterBuffer.class);
+        clickRollupBuffer = mock(ClickRollupBuffer.class);
+        shortCodeFilter = new ShortCodeFilter(shortUrlPersistenceService, redirectCache, true, 1000, 0.01,
+                new SimpleMeterRegistry());
+        shortCodeIndex = new ShortCodeIndex(shortUrlPersistenceService, true, false, 16, new SimpleMeterRegistry());
+        var generator = new HashShortCodeGenerator();
+        meterRegistry = new SimpleMeterRegistry();
+        linkExpiry = mock(LinkExpiry.class);
+        shortenerService = new ShortenerService(shortUrlPersistenceService, redirectCache, clickCounterBuffer,
+                clickRollupBuffer, shortCodeFilter, shortCodeIndex, generator, linkExpiry,
+                new ShortenerMetrics(meterRegistry, generator));
     }
 
     @Test
@@ -34,9 +65,8 @@ class ShortenerServiceTest {
         var expectedShort = "short.ly/abc123";
         var expectedDto = new ShortUrlDto(expectedShort, originalUrl, 1, 0);
 
-        // Simulate first try will work
-        when(shortUrlPersistenceService.findByShortUrl(anyString())).thenReturn(Optional.empty());
-        when(shortUrlPersistenceService.save(any())).thenReturn(expectedDto);
+        // Simulate first try will insert
+        when(shortUrlPersistenceService.upsert(any())).thenReturn(new UpsertResult(expectedDto, true));
 
         // Act
         var result = shortenerService.shortenUrl(originalUrl);
@@ -46,23 +76,18 @@ class ShortenerServiceTest {
         assertEquals(expectedDto.getShortUrl(), result.getShortUrl());
         assertEquals(expectedDto.getOriginalUrl(), result.getOriginalUrl());
         assertEquals(1, result.getRequestCount());
-        verify(shortUrlPersistenceService).save(any());
+        verify(shortUrlPersistenceService).upsert(any());
+        verify(shortUrlPersistenceService, never()).findByShortUrl(anyString());
     }
 
     @Test
-    void shortenUrl_ShouldHandleDuplicateUrl_ByFetchingExisting() {
+    void shortenUrl_ShouldReturnExisting_WhenUrlIsAlreadyShortened() {
         // Arrange
         var originalUrl = "https://example.com";
         var shortUrl = "short.ly/abc123";
-        var existingDto = new ShortUrlDto(shortUrl, originalUrl, 5, 2);
-
-        // First save call throws, simulating duplicate
-        doThrow(new DataIntegrityViolationException("duplicate"))
-                .when(shortUrlPersistenceService).save(any());
-
-        // When fallback path is triggered
-        when(shortUrlPersistenceService.findByOriginalUrl(originalUrl))
-                .thenReturn(Optional.of(existingDto));
+        // The upsert already incremented the stored request count from 5 to 6
+        var existingDto = new ShortUrlDto(shortUrl, originalUrl, 6, 2);
+        when(shortUrlPersistenceService.upsert(any())).thenReturn(new UpsertResult(existingDto, false));
 
         // Act
         var result = shortenerService.shortenUrl(originalUrl);
@@ -70,35 +95,233 @@ class ShortenerServiceTest {
         // Assert
         assertNotNull(result);
         assertEquals(shortUrl, result.getShortUrl());
-        assertEquals(6, result.getRequestCount()); // original was 5 + 1
-        verify(shortUrlPersistenceService).incrementRequestCount(shortUrl);
+        assertEquals(6, result.getRequestCount());
+        verify(shortUrlPersistenceService, times(1)).upsert(any());
+        verify(shortUrlPersistenceService, never()).findByOriginalUrl(anyString());
+        verify(shortUrlPersistenceService, never()).incrementRequestCount(anyString());
+    }
+
+    @Test
+    void shortenUrl_ShouldShareOneUpsert_AndAddCoalescedRequests() throws Exception {
+        var originalUrl = "https://example.com/viral";
+        var stored = new ShortUrlDto("short.ly/abc123", originalUrl, 1, 0);
+        var release = new CountDownLatch(1);
+        when(shortUrlPersistenceService.upsert(any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return new UpsertResult(stored, true);
+        });
+        var executor = Executors.newFixedThreadPool(3);
+        try {
+            var results = new ArrayList<Future<ShortUrlDto>>();
+            for (int i = 0; i < 3; i++) {
+                results.add(executor.submit(() -> shortenerService.shortenUrl(originalUrl)));
+            }
+            while (meterRegistry.get("shortener.singleflight.calls").tags("operation", "shorten", "coalesced", "true")
+                    .counter().count() < 2) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (var result : results) {
+                assertEquals("short.ly/abc123", result.get(5, TimeUnit.SECONDS).getShortUrl());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(shortUrlPersistenceService, times(1)).upsert(any());
+        verify(shortUrlPersistenceService).addRequestCount("short.ly/abc123", 2);
     }
 
     @Test
-    void shortenUrl_ShouldThrow_WhenDuplicateAndNoExistingFound() {
+    void shortenUrl_ShouldThrow_WhenEveryAttemptCollides() {
         // Arrange
         var originalUrl = "https://example.com";
-        when(shortUrlPersistenceService.save(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
-        when(shortUrlPersistenceService.findByOriginalUrl(originalUrl)).thenReturn(Optional.empty());
+        when(shortUrlPersistenceService.upsert(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
 
         // Act & Assert
         var exception = assertThrows(RuntimeException.class, () ->
                 shortenerService.shortenUrl(originalUrl));
 
-        assertTrue(exception.getMessage().contains("Failed to shorten URL and no existing record found"));
+        assertTrue(exception.getMessage().contains("Failed to generate unique short URL after retries"));
+        verify(shortUrlPersistenceService, times(5)).upsert(any());
     }
 
     @Test
-    void getOriginalUrl_ShouldReturnValue_WhenExists() {
+    void resolve_ShouldReturnTarget_WhenExists() {
         var shortUrl = "short.ly/abc123";
         var originalUrl = "https://example.com";
         var dto = new ShortUrlDto(shortUrl, originalUrl, 1, 0);
 
         when(shortUrlPersistenceService.findByShortUrl(shortUrl)).thenReturn(Optional.of(dto));
 
-        var result = shortenerService.getOriginalUrl(shortUrl);
-        assertTrue(result.isPresent());
-        assertEquals(originalUrl, result.get());
+        var result = shortenerService.resolve("abc123");
+        assertEquals(new RedirectTarget(shortUrl, originalUrl), result);
+    }
+
+    @Test
+    void resolve_ShouldPercentEncodeNonAsciiLocation() {
+        var dto = new ShortUrlDto("short.ly/abc123", "https://example.com/straße", 1, 0);
+        when(shortUrlPersistenceService.findByShortUrl("short.ly/abc123")).thenReturn(Optional.of(dto));
+
+        var result = shortenerService.resolve("abc123");
+
+        assertEquals("https://example.com/stra%C3%9Fe", result.location());
+    }
+
+    @Test
+    void resolve_ShouldRejectMalformedCode_WithoutLookup() {
+        assertNull(shortenerService.resolve("abc/123"));
+        assertNull(shortenerService.resolve(""));
+        assertNull(shortenerService.resolve("x".repeat(ShortCodeGenerator.MAX_CODE_LENGTH + 1)));
+
+        verify(shortUrlPersistenceService, never()).findByShortUrl(anyString());
+    }
+
+    @Test
+    void resolve_ShouldServeRepeatedLookupsFromCache() {
+        var shortUrl = "short.ly/abc123";
+        var dto = new ShortUrlDto(shortUrl, "https://example.com", 1, 0);
+
+        when(shortUrlPersistenceService.findByShortUrl(shortUrl)).thenReturn(Optional.of(dto));
+
+        var first = shortenerService.resolve("abc123");
+        var result = shortenerService.resolve("abc123");
+
+        assertSame(first, result);
+        assertEquals("https://example.com", result.location());
+        verify(shortUrlPersistenceService, times(1)).findByShortUrl(shortUrl);
+    }
+
+    @Test
+    void resolve_ShouldNotQueryDatabase_ForNewlyCreatedShortUrl() {
+        var originalUrl = "https://example.com";
+        var dto = new ShortUrlDto("short.ly/abc123", originalUrl, 1, 0);
+
+        when(shortUrlPersistenceService.upsert(any())).thenReturn(new UpsertResult(dto, true));
+
+        shortenerService.shortenUrl(originalUrl);
+        var result = shortenerService.resolve("abc123");
+
+        verify(shortUrlPersistenceService, never()).findByShortUrl(anyString());
+
+        assertEquals(new RedirectTarget("short.ly/abc123", originalUrl), result);
+    }
+
+    @Test
+    void resolve_ShouldSkipDatabase_WhenFilterRulesOutShortUrl() {
+        shortCodeFilter.rebuild(); // empty table
+
+        var result = shortenerService.resolve("unknown");
+
+        assertNull(result);
+        verify(shortUrlPersistenceService, never()).findByShortUrl(anyString());
+        assertEquals(1.0, meterRegistry.get("shortener.redirect.not.found").counter().count());
+    }
+
+    @Test
+    void resolve_ShouldServeIndexedCode_WithoutDatabase() {
+        doAnswer(invocation -> {
+            BiConsumer<String, String> consumer = invocation.getArgument(0);
+            consumer.accept("short.ly/abc123", "https://example.com");
+            consumer.accept("other.ly/def456", "https://example.org");
+            return null;
+        }).when(shortUrlPersistenceService).forEachMapping(any());
+        shortCodeIndex.load();
+
+        var result = shortenerService.resolve("abc123");
+
+        assertEquals(new RedirectTarget("short.ly/abc123", "https://example.com"), result);
+        verify(shortUrlPersistenceService, never()).findByShortUrl(anyString());
+        assertTrue(shortCodeIndex.isReady());
+        assertNull(shortCodeIndex.get("def456")); // stored under a different prefix
+    }
+
+    @Test
+    void shortenUrl_ShouldAddCreatedShortUrlToFilter() {
+        var originalUrl = "https://example.com";
+        shortCodeFilter.rebuild(); // empty table
+        when(shortUrlPersistenceService.upsert(any()))
+                .thenAnswer(invocation -> new UpsertResult(invocation.getArgument(0), true));
+
+        var result = shortenerService.shortenUrl(originalUrl);
+
+        assertTrue(shortCodeFilter.mightContain(result.getShortUrl()));
+    }
+
+    @Test
+    void shortenUrl_ShouldScheduleExpiringLink_AndKeepItOutOfTheIndex() {
+        var originalUrl = "https://example.com";
+        var expiresAt = Instant.now().plusSeconds(60).truncatedTo(ChronoUnit.MICROS);
+        when(linkExpiry.expiresAt(expiresAt)).thenReturn(expiresAt);
+        when(shortUrlPersistenceService.upsert(any()))
+                .thenAnswer(invocation -> new UpsertResult(invocation.getArgument(0), true));
+
+        var result = shortenerService.shortenUrl(originalUrl, null, null, expiresAt);
+
+        assertEquals(expiresAt, result.getExpiresAt());
+        var shortCode = result.getShortUrl().substring("short.ly/".length());
+        assertNull(shortCodeIndex.get(shortCode));
+        var target = shortenerService.resolve(shortCode);
+        assertEquals(expiresAt.toEpochMilli(), target.expiresAt());
+        assertEquals("no-store", target.cacheControl());
+        verify(linkExpiry).schedule(result.getShortUrl(), expiresAt);
+    }
+
+    @Test
+    void shortenUrl_ShouldRecacheAndSchedule_WhenExpiredLinkIsRevived() {
+        var originalUrl = "https://example.com";
+        var expiresAt = Instant.now().plusSeconds(60).truncatedTo(ChronoUnit.MICROS);
+        when(linkExpiry.expiresAt(expiresAt)).thenReturn(expiresAt);
+        var redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), new SimpleMeterRegistry());
+        redirectCache.put("abc123", new RedirectTarget("short.ly/abc123", originalUrl, 0, "no-store",
+                System.currentTimeMillis() - 1000));
+        shortenerService = new ShortenerService(shortUrlPersistenceService, redirectCache, clickCounterBuffer,
+                clickRollupBuffer, shortCodeFilter, shortCodeIndex, new HashShortCodeGenerator(), linkExpiry,
+                new ShortenerMetrics(new SimpleMeterRegistry(), new HashShortCodeGenerator()));
+        when(shortUrlPersistenceService.upsert(any())).thenReturn(new UpsertResult(
+                new ShortUrlDto("short.ly/abc123", originalUrl, 2, 5, null, null, 1, expiresAt), false));
+
+        shortenerService.shortenUrl(originalUrl, null, null, expiresAt);
+
+        assertFalse(shortenerService.resolve("abc123").isExpired(System.currentTimeMillis()));
+        verify(linkExpiry).schedule("short.ly/abc123", expiresAt);
+    }
+
+    @Test
+    void shortenUrl_ShouldNotRetry_WhenCollisionFreeGeneratorViolatesConstraint() {
+        var generator = mock(ShortCodeGenerator.class);
+        when(generator.name()).thenReturn("sequence");
+        when(generator.isCollisionFree()).thenReturn(true);
+        when(generator.generate(anyString(), anyInt())).thenReturn("1C");
+        when(shortUrlPersistenceService.upsert(any())).thenThrow(new DataIntegrityViolationException("duplicate"));
+        shortenerService = new ShortenerService(shortUrlPersistenceService, mock(RedirectCache.class),
+                clickCounterBuffer, clickRollupBuffer, shortCodeFilter, shortCodeIndex, generator, linkExpiry,
+                new ShortenerMetrics(new SimpleMeterRegistry(), generator));
+
+        assertThrows(DataIntegrityViolationException.class, () -> shortenerService.shortenUrl("https://example.com"));
+
+        verify(shortUrlPersistenceService, times(1)).upsert(any());
+    }
+
+    @Test
+    void shortenUrl_ShouldRetryWithNextAttempt_WhenCodeCollides() {
+        var originalUrl = "https://example.com";
+        var generator = new HashShortCodeGenerator();
+        var collidingShortUrl = "short.ly/" + generator.generate(originalUrl, 0);
+        when(shortUrlPersistenceService.upsert(any())).thenAnswer(invocation -> {
+            ShortUrlDto dto = invocation.getArgument(0);
+            if (dto.getShortUrl().equals(collidingShortUrl)) {
+                throw new DataIntegrityViolationException("duplicate short_url");
+            }
+            return new UpsertResult(dto, true);
+        });
+
+        var result = shortenerService.shortenUrl(originalUrl);
+
+        assertEquals("short.ly/" + generator.generate(originalUrl, 1), result.getShortUrl());
+        assertEquals(1.0, meterRegistry.get("shortener.shorten.collisions").counter().count());
+        assertEquals(2.0, meterRegistry.get("shortener.shorten.attempts").summary().totalAmount());
+        assertEquals(1, meterRegistry.get("shortener.shorten").tag("outcome", "created").timer().count());
     }
 
     @Test
@@ -115,11 +338,24 @@ class ShortenerServiceTest {
     }
 
     @Test
-    void incrementUsedCount_ShouldCallDao() {
+    void getStatistics_ShouldCacheMiss_SoAnUnknownCodeIsLookedUpOnce() {
+        var shortUrl = "short.ly/unknown";
+        when(shortUrlPersistenceService.findByShortUrl(shortUrl)).thenReturn(Optional.empty());
+
+        assertNull(shortenerService.getStatistics(shortUrl));
+        assertNull(shortenerService.getStatistics(shortUrl));
+
+        verify(shortUrlPersistenceService, times(1)).findByShortUrl(shortUrl);
+    }
+
+    @Test
+    void incrementUsedCount_ShouldRecordClickInBuffer() {
         var shortUrl = "short.ly/abc123";
 
         shortenerService.incrementUsedCount(shortUrl);
 
-        verify(shortUrlPersistenceService).incrementUsedCount(shortUrl);
+        verify(clickCounterBuffer).record(shortUrl);
+        verify(clickRollupBuffer).record(shortUrl);
+        verify(shortUrlPersistenceService, never()).incrementUsedCount(anyString());
     }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.example.urlshortener.application;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final SingleFlight<String, Object> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void execute_ShouldRunOnce_ForConcurrentCallsWithTheSameKey() throws Exception {
+        int callers = 8;
+        var release = new CountDownLatch(1);
+        var executions = new AtomicInteger();
+        var shared = new AtomicInteger();
+        var result = new Object();
+        var executor = Executors.newFixedThreadPool(callers);
+        try {
+            var futures = new ArrayList<Future<Object>>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> singleFlight.execute("key", () -> {
+                    executions.incrementAndGet();
+                    await(release);
+                    return result;
+                }, (value, followers) -> shared.set(followers))));
+            }
+            // Release the leader only once every other caller has joined its flight
+            while (coalescedCalls() < callers - 1) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+            for (var future : futures) {
+                assertSame(result, future.get(5, TimeUnit.SECONDS));
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, executions.get());
+        assertEquals(callers - 1, shared.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    @Test
+    void execute_ShouldShareFailure_AndReleaseKey() throws Exception {
+        var release = new CountDownLatch(1);
+        var executor = Executors.newSingleThreadExecutor();
+        try {
+            var leader = executor.submit(() -> singleFlight.execute("key", () -> {
+                await(release);
+                throw new IllegalStateException("database down");
+            }));
+            while (singleFlight.inFlight() == 0) {
+                Thread.sleep(1);
+            }
+            var follower = CompletableFuture.supplyAsync(() -> singleFlight.execute("key", () -> "not run"));
+            while (coalescedCalls() == 0) {
+                Thread.sleep(1);
+            }
+            release.countDown();
+
+            var leaderFailure = assertThrows(ExecutionException.class, () -> leader.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, leaderFailure.getCause());
+            var followerFailure = assertThrows(ExecutionException.class, () -> follower.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, followerFailure.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals("retried", singleFlight.execute("key", () -> "retried"));
+    }
+
+    @Test
+    void executeAsync_ShouldShareThePendingFuture() {
+        var pending = new CompletableFuture<Object>();
+        var shared = new AtomicInteger();
+
+        var leader = singleFlight.executeAsync("key", () -> pending, (value, followers) -> shared.set(followers));
+        var follower = singleFlight.executeAsync("key", () -> CompletableFuture.completedFuture("not run"), null);
+        assertTrue(!leader.isDone() && !follower.isDone());
+        pending.complete("value");
+
+        assertEquals("value", leader.join());
+        assertEquals("value", follower.join());
+        assertEquals(1, shared.get());
+        assertEquals(0, singleFlight.inFlight());
+    }
+
+    private double coalescedCalls() {
+        return meterRegistry.get("shortener.singleflight.calls").tag("coalesced", "true").counter().count();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
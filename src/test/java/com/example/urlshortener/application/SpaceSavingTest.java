@@ -0,0 +1,90 @@
+package com.example.urlshortener.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpaceSavingTest {
+
+    @Test
+    void offer_ShouldCountExactly_WhileKeysFit() {
+        var counter = new SpaceSaving(4);
+        for (var key : new String[]{"a", "b", "a", "c", "a", "b"}) {
+            counter.offer(key);
+        }
+
+        var totals = new HashMap<String, long[]>();
+        counter.addTo(totals);
+
+        assertEquals(3, totals.size());
+        assertEquals(3, totals.get("a")[0]);
+        assertEquals(2, totals.get("b")[0]);
+        assertEquals(1, totals.get("c")[0]);
+        assertEquals(0, totals.get("a")[1]);
+    }
+
+    @Test
+    void offer_ShouldKeepHeavyHitters_AndBoundTheirError_UnderALongTail() {
+        var counter = new SpaceSaving(50);
+        var actual = new HashMap<String, Long>();
+        var random = new Random(42);
+        int offers = 100_000;
+        for (int i = 0; i < offers; i++) {
+            // A quarter of the clicks go to three hot keys, the rest to 10 000 cold ones
+            var key = random.nextInt(4) == 0 ? "hot-" + random.nextInt(3) : "cold-" + random.nextInt(10_000);
+            counter.offer(key);
+            actual.merge(key, 1L, Long::sum);
+        }
+
+        var totals = new HashMap<String, long[]>();
+        counter.addTo(totals);
+
+        assertEquals(50, totals.size());
+        for (int i = 0; i < 3; i++) {
+            var estimate = totals.get("hot-" + i);
+            long real = actual.get("hot-" + i);
+            assertTrue(estimate[0] >= real, "underestimated");
+            assertTrue(estimate[0] - estimate[1] <= real, "error does not cover the overestimate");
+            assertTrue(estimate[1] <= offers / 50, "error above N / capacity");
+        }
+        for (Map.Entry<String, long[]> entry : totals.entrySet()) {
+            assertTrue(entry.getValue()[0] >= actual.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    void offer_ShouldBeRefused_OnceSealed() {
+        var counter = new SpaceSaving(2);
+        assertTrue(counter.offer("a"));
+
+        counter.seal();
+
+        assertFalse(counter.offer("a"));
+        assertEquals(1, counter.size());
+    }
+
+    @Test
+    void offer_ShouldMergeWeightedCounts_AndCarryTheirError() {
+        var counter = new SpaceSaving(2);
+        counter.offer("a", 10, 0);
+        counter.offer("b", 4, 1);
+        counter.offer("a", 5, 2);
+
+        // Takes over b's counter: 4 + 3, overestimated by b's 4 plus its own 0
+        counter.offer("c", 3, 0);
+
+        var totals = new HashMap<String, long[]>();
+        counter.addTo(totals);
+        assertEquals(2, totals.size());
+        assertEquals(15, totals.get("a")[0]);
+        assertEquals(2, totals.get("a")[1]);
+        assertEquals(7, totals.get("c")[0]);
+        assertEquals(4, totals.get("c")[1]);
+    }
+}
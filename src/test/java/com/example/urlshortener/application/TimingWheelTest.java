@@ -0,0 +1,72 @@
+package com.example.urlshortener.application;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TimingWheelTest {
+
+    @Test
+    void advance_ShouldExpireEntriesInDeadlineOrder_NeverEarly() {
+        var wheel = new TimingWheel<String>(10, 1_000);
+        wheel.schedule(1_035, "c");
+        wheel.schedule(1_011, "a");
+        wheel.schedule(1_020, "b");
+        var expired = new ArrayList<String>();
+
+        wheel.advance(1_019, expired::add);
+        assertEquals(List.of(), expired); // 1_011 rounds up to the tick ending at 1_020
+
+        wheel.advance(1_020, expired::add);
+        assertEquals(List.of("a", "b"), expired);
+
+        wheel.advance(5_000, expired::add);
+        assertEquals(List.of("a", "b", "c"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void advance_ShouldCascadeFarDeadlinesThroughEveryLevel() {
+        var wheel = new TimingWheel<Long>(1, 0);
+        var deadlines = List.of(3L, 63L, 64L, 65L, 4_095L, 4_096L, 4_100L, 262_143L, 262_144L, 300_001L, 16_000_000L);
+        for (int i = deadlines.size() - 1; i >= 0; i--) {
+            assertTrue(wheel.schedule(deadlines.get(i), deadlines.get(i)));
+        }
+        var expired = new ArrayList<Long>();
+        var expiredAt = new ArrayList<Long>();
+
+        // Steps of growing size, ending exactly on the last deadline
+        long now = 0;
+        while (now < 16_000_000L) {
+            now = Math.min(now + 1 + now / 1_000, 16_000_000L);
+            long at = now;
+            wheel.advance(now, deadline -> {
+                expired.add(deadline);
+                expiredAt.add(at);
+            });
+        }
+
+        assertEquals(deadlines, expired);
+        for (int i = 0; i < expired.size(); i++) {
+            assertTrue(expiredAt.get(i) >= expired.get(i), "expired early: " + expired.get(i));
+        }
+    }
+
+    @Test
+    void schedule_ShouldRefuseDeadlinesBeyondSpan_AndExpirePastOnesOnNextTick() {
+        var wheel = new TimingWheel<String>(1_000, 0);
+
+        assertFalse(wheel.schedule(wheel.spanMillis() + 1_000, "too far"));
+        assertTrue(wheel.schedule(-5_000, "overdue"));
+
+        var expired = new ArrayList<String>();
+        wheel.advance(1_000, expired::add);
+        assertEquals(List.of("overdue"), expired);
+        assertEquals(0, wheel.size());
+    }
+}
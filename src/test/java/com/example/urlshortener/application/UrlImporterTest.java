@@ -0,0 +1,167 @@
+package com.example.urlshortener.application;
+
+import com.example.urlshortener.api.ShortUrlDto;
+import com.example.urlshortener.persistence.ShortUrlImportRepository;
+import com.example.urlshortener.persistence.ShortUrlImportRepository.ChunkResult;
+import com.example.urlshortener.persistence.ShortUrlImportRepository.ImportRow;
+import com.example.urlshortener.persistence.ShortUrlPersistenceService;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UrlImporterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private ShortUrlImportRepository importRepository;
+    private ShortCodeFilter shortCodeFilter;
+    private UrlImporter importer;
+
+    @BeforeEach
+    void setUp() {
+        importRepository = mock(ShortUrlImportRepository.class);
+        shortCodeFilter = mock(ShortCodeFilter.class);
+        importer = new UrlImporter(importRepository, new HashShortCodeGenerator(), shortCodeFilter,
+                new ObjectMapper(), tempDir, 2, meterRegistry);
+        when(importRepository.importChunk(anyString(), anyLong(), anyList(), anyLong(), any())).thenAnswer(invocation -> {
+            List<ImportRow> rows = invocation.getArgument(2);
+            return new ChunkResult(rows.stream().map(ImportRow::shortUrl).toList(), 0, List.of());
+        });
+    }
+
+    @Test
+    void prepare_ShouldKeepLegacyCodes_GenerateMissingOnes_AndCountInvalidLines() {
+        var chunk = importer.prepare(List.of(
+                "original_url,code",
+                "\"https://example.com/?a=1,2\",legacy1",
+                "https://example.com/b,short.ly/legacy2",
+                "https://example.com/c",
+                "",
+                "not a url",
+                "https://example.com/d,bad/code"), 1, true);
+
+        assertEquals(7, chunk.lastLine());
+        assertEquals(2, chunk.invalid());
+        assertEquals(new ImportRow("https://example.com/?a=1,2", "short.ly/legacy1", false), chunk.rows().get(0));
+        assertEquals(new ImportRow("https://example.com/b", "short.ly/legacy2", false), chunk.rows().get(1));
+        var generated = chunk.rows().get(2);
+        assertTrue(generated.generated() && generated.shortUrl().startsWith("short.ly/"));
+    }
+
+    @Test
+    void prepare_ShouldOnlyKeepLegacyCodesThatRedirect() {
+        var chunk = importer.prepare(List.of(
+                "https://example.com/a,Legacy_code-1",
+                "https://example.com/b,abc.1",
+                "https://example.com/c,a~b",
+                "https://example.com/d," + "x".repeat(ShortCodeGenerator.MAX_CODE_LENGTH + 1)), 1, true);
+
+        assertEquals(3, chunk.invalid());
+        assertEquals(List.of(new ImportRow("https://example.com/a", "short.ly/Legacy_code-1", false)), chunk.rows());
+
+        var persistence = mock(ShortUrlPersistenceService.class);
+        when(persistence.findByShortUrl("short.ly/Legacy_code-1"))
+                .thenReturn(Optional.of(new ShortUrlDto("short.ly/Legacy_code-1", "https://example.com/a", 0, 0)));
+        var registry = new SimpleMeterRegistry();
+        var redirectCache = new RedirectCache(100, 0, Duration.ofSeconds(30), registry);
+        var generator = new HashShortCodeGenerator();
+        var shortenerService = new ShortenerService(persistence, redirectCache, mock(ClickCounterBuffer.class),
+                mock(ClickRollupBuffer.class), new ShortCodeFilter(persistence, redirectCache, false, 1, 0.01, registry),
+                new ShortCodeIndex(persistence, false, false, 1, registry), generator, mock(LinkExpiry.class),
+                new ShortenerMetrics(registry, generator));
+
+        assertEquals(new RedirectTarget("short.ly/Legacy_code-1", "https://example.com/a"),
+                shortenerService.resolve("Legacy_code-1"));
+    }
+
+    @Test
+    void prepare_ShouldAcceptNdjsonStringsAndObjects() {
+        var chunk = importer.prepare(List.of(
+                "\"https://example.com/a\"",
+                "{\"url\": \"https://example.com/b\", \"code\": \"xyz\"}",
+                "{\"url\": 42}",
+                "{broken"), 10, false);
+
+        assertEquals(13, chunk.lastLine());
+        assertEquals(2, chunk.invalid());
+        assertTrue(chunk.rows().get(0).generated());
+        assertEquals("short.ly/xyz", chunk.rows().get(1).shortUrl());
+    }
+
+    @Test
+    void run_ShouldResumeAfterCheckpoint_AndCommitEachChunkWithItsLastLine() throws Exception {
+        var file = tempDir.resolve("links.csv");
+        Files.writeString(file, """
+                https://example.com/1
+                https://example.com/2
+                https://example.com/3
+                https://example.com/4
+                https://example.com/5
+                """);
+        var source = file.toAbsolutePath().normalize().toString();
+        var resumed = new UrlImporter.Progress(source, UrlImporter.State.RUNNING, 2, 2, 0, 0, 0, Instant.now(), null, null);
+
+        importer.run(file, resumed);
+
+        var rows = ArgumentCaptor.<List<ImportRow>>captor();
+        verify(importRepository).importChunk(eq(source), eq(4L), rows.capture(), eq(0L), any());
+        verify(importRepository).importChunk(eq(source), eq(5L), rows.capture(), eq(0L), any());
+        assertEquals("https://example.com/3", rows.getAllValues().get(0).get(0).originalUrl());
+        assertEquals("https://example.com/5", rows.getAllValues().get(1).get(0).originalUrl());
+        verify(importRepository).complete(source);
+        verify(shortCodeFilter, times(3)).add(anyString());
+
+        var progress = importer.progress();
+        assertEquals(UrlImporter.State.COMPLETED, progress.state());
+        assertEquals(5, progress.linesDone());
+        assertEquals(5, progress.inserted());
+        assertNull(progress.error());
+        assertEquals(3, meterRegistry.get("shortener.import.rows").tag("result", "inserted").counter().count());
+    }
+
+    @Test
+    void start_ShouldRefuseFilesOutsideTheImportDirectory(@TempDir Path outside) throws Exception {
+        var secret = Files.writeString(outside.resolve("secret.csv"), "https://example.com/1\n");
+        Files.createSymbolicLink(tempDir.resolve("link.csv"), secret);
+
+        for (var file : List.of(secret, tempDir.relativize(secret), Path.of("link.csv"), Path.of("missing.csv"))) {
+            var e = assertThrows(IllegalArgumentException.class, () -> importer.start(file, false));
+            assertEquals("Cannot read " + file + " in the import directory", e.getMessage());
+        }
+        verify(importRepository, never()).begin(anyString(), anyBoolean());
+    }
+
+    @Test
+    void parseCsvLine_ShouldUnquoteFields() {
+        assertEquals(List.of("a,\"b\"", "c"), UrlImporter.parseCsvLine("\"a,\"\"b\"\"\",c"));
+        assertNull(UrlImporter.parseCsvLine("\"unterminated"));
+    }
+}
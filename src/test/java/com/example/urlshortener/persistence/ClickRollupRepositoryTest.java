@@ -0,0 +1,71 @@
+package com.example.urlshortener.persistence;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.Instant;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@JdbcTest
+@Import(ClickRollupRepository.class)
+class ClickRollupRepositoryTest {
+
+    private static final Instant HOUR = Instant.parse("2024-05-01T10:00:00Z");
+
+    @Autowired
+    private ClickRollupRepository repository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.update("DELETE FROM click_rollups");
+    }
+
+    @Test
+    void addMinuteClicks_ShouldAccumulateIntoTheSameBucket() {
+        repository.addMinuteClicks(HOUR, Map.of("short.ly/abc123", 2L, "short.ly/def456", 1L));
+        repository.addMinuteClicks(HOUR, Map.of("short.ly/abc123", 3L));
+
+        var series = repository.findSeries("short.ly/abc123", ClickGranularity.MINUTE, HOUR, HOUR.plusSeconds(60));
+
+        assertThat(series).containsExactly(Map.entry(HOUR, 5L));
+    }
+
+    @Test
+    void rollUp_ShouldSumMinutesIntoHours_AndBeIdempotent() {
+        repository.addMinuteClicks(HOUR.plusSeconds(60), Map.of("short.ly/abc123", 2L));
+        repository.addMinuteClicks(HOUR.plusSeconds(59 * 60), Map.of("short.ly/abc123", 3L));
+        repository.addMinuteClicks(HOUR.plusSeconds(3600), Map.of("short.ly/abc123", 4L));
+
+        repository.rollUp(ClickGranularity.MINUTE, ClickGranularity.HOUR, HOUR, HOUR.plusSeconds(7200));
+        repository.rollUp(ClickGranularity.MINUTE, ClickGranularity.HOUR, HOUR, HOUR.plusSeconds(7200));
+
+        var series = repository.findSeries("short.ly/abc123", ClickGranularity.HOUR, HOUR, HOUR.plusSeconds(7200));
+        assertThat(series).containsExactly(Map.entry(HOUR, 5L), Map.entry(HOUR.plusSeconds(3600), 4L));
+    }
+
+    @Test
+    void deleteOlderThan_ShouldOnlyRemoveExpiredRowsOfThatGranularity() {
+        repository.addMinuteClicks(HOUR, Map.of("short.ly/abc123", 1L));
+        repository.addMinuteClicks(HOUR.plusSeconds(120), Map.of("short.ly/abc123", 1L));
+        repository.rollUp(ClickGranularity.MINUTE, ClickGranularity.HOUR, HOUR, HOUR.plusSeconds(3600));
+
+        int deleted = repository.deleteOlderThan(ClickGranularity.MINUTE, HOUR.plusSeconds(60));
+
+        assertThat(deleted).isEqualTo(1);
+        assertThat(repository.findSeries("short.ly/abc123", ClickGranularity.MINUTE, HOUR, HOUR.plusSeconds(3600)))
+                .containsOnlyKeys(HOUR.plusSeconds(120));
+        assertThat(repository.findSeries("short.ly/abc123", ClickGranularity.HOUR, HOUR, HOUR.plusSeconds(3600)))
+                .containsExactly(Map.entry(HOUR, 2L));
+    }
+}
@@ -66,6 +66,25 @@ class JpaShortUrlRepositoryTest {
         assertThat(found.get().getShortUrl()).isEqualTo("short.ly/abc123");
     }
 
+    @Test
+    void testFindByOriginalUrlSha256() {
+        // given
+        var entity = new ShortUrlEntity();
+        entity.setOriginalUrl("https://example.com");
+        entity.setShortUrl("short.ly/abc123");
+        repository.save(entity);
+        entityManager.flush();
+        entityManager.clear();
+
+        // when
+        var found = repository.findByOriginalUrlSha256(UrlDigest.sha256("https://example.com"));
+
+        // then
+        assertThat(found).isPresent();
+        assertThat(found.get().getOriginalUrlSha256()).hasSize(32);
+        assertThat(repository.findByOriginalUrl("https://example.com/other")).isEmpty();
+    }
+
     @Test
     void testIncrementRequestCount() {
         // given
@@ -0,0 +1,117 @@
+package com.example.urlshortener.persistence;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class RoutingDataSourceTest {
+
+    private final Connection primaryConnection = mock(Connection.class);
+    private final Connection firstReplicaConnection = mock(Connection.class);
+    private final Connection secondReplicaConnection = mock(Connection.class);
+    private final DataSource primary = mock(DataSource.class);
+    private final DataSource firstReplica = mock(DataSource.class);
+    private final DataSource secondReplica = mock(DataSource.class);
+    private RoutingDataSource routingDataSource;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstReplicaConnection);
+        when(secondReplica.getConnection()).thenReturn(secondReplicaConnection);
+        routingDataSource = new RoutingDataSource(primary, List.of(firstReplica, secondReplica),
+                Duration.ofSeconds(10), new SimpleMeterRegistry());
+    }
+
+    @Test
+    void getConnection_ShouldUsePrimary_OutsideReplicaScope() throws SQLException {
+        assertSame(primaryConnection, routingDataSource.getConnection());
+    }
+
+    @Test
+    void getConnection_ShouldPassExplicitCredentialsToPrimary() throws SQLException {
+        var connection = mock(Connection.class);
+        when(primary.getConnection("admin", "secret")).thenReturn(connection);
+
+        assertSame(connection, routingDataSource.getConnection("admin", "secret"));
+    }
+
+    @Test
+    void getConnection_ShouldRoundRobinOverReplicas_InsideReplicaScope() {
+        var connections = RoutingDataSource.onReplica(() -> List.of(connection(), connection(), connection()));
+
+        assertEquals(List.of(firstReplicaConnection, secondReplicaConnection, firstReplicaConnection), connections);
+    }
+
+    @Test
+    void getConnection_ShouldSkipFailingReplica_AndFallBackToPrimary() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(secondReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+
+        assertSame(primaryConnection, RoutingDataSource.onReplica(this::connection));
+        assertEquals(0, routingDataSource.healthyReplicas());
+    }
+
+    @Test
+    void checkReplicas_ShouldRestoreReplica_OnceReachableAgain() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("connection refused"));
+        RoutingDataSource.onReplica(this::connection);
+        RoutingDataSource.onReplica(this::connection);
+        assertEquals(1, routingDataSource.healthyReplicas());
+
+        var statement = mock(Statement.class);
+        var resultSet = mock(ResultSet.class);
+        when(statement.executeQuery(anyString())).thenReturn(resultSet);
+        when(firstReplicaConnection.createStatement()).thenReturn(statement);
+        when(secondReplicaConnection.createStatement()).thenReturn(statement);
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getDouble(1)).thenReturn(0.0);
+        doReturn(firstReplicaConnection).when(firstReplica).getConnection();
+
+        routingDataSource.checkReplicas();
+
+        assertEquals(2, routingDataSource.healthyReplicas());
+    }
+
+    @Test
+    void find_ShouldReadRecentWritesFromPrimary_AndConfirmReplicaMissesOnPrimary() {
+        var replicaReads = new ReplicaReads(List.of("jdbc:postgresql://replica/urlshortener"), Duration.ofSeconds(10));
+        replicaReads.written("short.ly/abc123");
+
+        assertEquals(Optional.of(primaryConnection),
+                replicaReads.find("short.ly/abc123", () -> Optional.of(connection())));
+        assertEquals(Optional.of(firstReplicaConnection),
+                replicaReads.find("short.ly/def456", () -> Optional.of(connection())));
+        var routes = new ArrayList<Connection>();
+        replicaReads.find("short.ly/unknown", () -> {
+            routes.add(connection());
+            return Optional.empty();
+        });
+        assertEquals(List.of(secondReplicaConnection, primaryConnection), routes);
+    }
+
+    private Connection connection() {
+        try {
+            return routingDataSource.getConnection();
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,18 +1,24 @@
 package com.example.urlshortener.persistence;
 
 import com.example.urlshortener.api.ShortUrlDto;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.transaction.PlatformTransactionManager;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -23,12 +29,16 @@ class ShortUrlPersistenceServiceTest {
 
     private AutoCloseable closeable;
 
-    @InjectMocks
     private ShortUrlPersistenceService shortUrlPersistenceService;
+    private SimpleMeterRegistry meterRegistry;
 
     @BeforeEach
     void setUp() {
         closeable = MockitoAnnotations.openMocks(this);
+        meterRegistry = new SimpleMeterRegistry();
+        shortUrlPersistenceService = new ShortUrlPersistenceService(repository,
+                new ReplicaReads(List.of(), Duration.ofSeconds(10)), mock(PlatformTransactionManager.class),
+                meterRegistry);
     }
 
     @AfterEach
@@ -55,13 +65,85 @@ class ShortUrlPersistenceServiceTest {
         var shortUrl = "short.ly/abc123";
         var dto = new ShortUrlDto(shortUrl, "https://example.com", 1, 0);
 
-        when(repository.findByShortUrl(shortUrl)).thenReturn(Optional.of(dto));
+        when(repository.findInEitherTier(shortUrl)).thenReturn(Optional.of(new StoredLink(dto, false)));
 
         var result = shortUrlPersistenceService.findByShortUrl(shortUrl);
 
         assertTrue(result.isPresent());
         assertEquals(dto, result.get());
-        verify(repository).findByShortUrl(shortUrl);
+        verify(repository).findInEitherTier(shortUrl);
+        verify(repository, never()).promote(any());
+    }
+
+    @Test
+    void findByShortUrl_ShouldNotWrite_WhenUnknown() {
+        var shortUrl = "short.ly/abc123";
+        when(repository.findInEitherTier(shortUrl)).thenReturn(Optional.empty());
+
+        assertEquals(Optional.empty(), shortUrlPersistenceService.findByShortUrl(shortUrl));
+        verify(repository, never()).promote(any());
+    }
+
+    @Test
+    void findByShortUrl_ShouldPromoteArchivedLink() {
+        var shortUrl = "short.ly/abc123";
+        var dto = new ShortUrlDto(shortUrl, "https://example.com", 1, 0);
+        when(repository.findInEitherTier(shortUrl)).thenReturn(Optional.of(new StoredLink(dto, true)));
+        when(repository.promote(shortUrl)).thenReturn(Optional.of(dto));
+
+        assertEquals(Optional.of(dto), shortUrlPersistenceService.findByShortUrl(shortUrl));
+        assertEquals(1.0, meterRegistry.get("shortener.tiering.promoted").counter().count());
+    }
+
+    @Test
+    void findByShortUrl_ShouldReadAgain_WhenPromotedConcurrently() {
+        var shortUrl = "short.ly/abc123";
+        var dto = new ShortUrlDto(shortUrl, "https://example.com", 1, 0);
+        // Moved back by a concurrent lookup while this one waited for the archived row
+        when(repository.findInEitherTier(shortUrl)).thenReturn(Optional.of(new StoredLink(dto, true)));
+        when(repository.promote(shortUrl)).thenReturn(Optional.empty());
+        when(repository.findByShortUrl(shortUrl)).thenReturn(Optional.of(dto));
+
+        assertEquals(Optional.of(dto), shortUrlPersistenceService.findByShortUrl(shortUrl));
+        assertEquals(0.0, meterRegistry.get("shortener.tiering.promoted").counter().count());
+    }
+
+    @Test
+    void upsert_ShouldNotPromote_WhenNothingIsArchived() {
+        var dto = new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 0);
+        when(repository.upsert(dto)).thenReturn(Optional.of(new UpsertResult(dto, true)));
+
+        shortUrlPersistenceService.upsert(dto);
+
+        verify(repository).upsert(dto);
+        verify(repository, never()).promoteAll(any(), any());
+    }
+
+    @Test
+    void upsert_ShouldPromoteArchivedCodeOrUrl_AndRetry() {
+        var dto = new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 0);
+        when(repository.upsert(dto))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new UpsertResult(dto, false)));
+
+        var result = shortUrlPersistenceService.upsert(dto);
+
+        assertEquals(new UpsertResult(dto, false), result);
+        var order = inOrder(repository);
+        order.verify(repository).upsert(dto);
+        order.verify(repository).promoteAll(List.of("short.ly/abc123"), List.of("https://example.com"));
+        order.verify(repository).upsert(dto);
+    }
+
+    @Test
+    void insertAllIgnoringConflicts_ShouldPromoteOnlyTheSkippedRows() {
+        var inserted = new ShortUrlDto("short.ly/abc123", "https://example.com", 1, 0);
+        var skipped = new ShortUrlDto("short.ly/def456", "https://example.org", 1, 0);
+        when(repository.insertAllIgnoringConflicts(List.of(inserted, skipped))).thenReturn(List.of(inserted));
+
+        assertEquals(List.of(inserted), shortUrlPersistenceService.insertAllIgnoringConflicts(List.of(inserted, skipped)));
+
+        verify(repository).promoteAll(List.of("short.ly/def456"), List.of("https://example.org"));
     }
 
     @Test
@@ -77,30 +159,36 @@ class ShortUrlPersistenceServiceTest {
     }
 
     @Test
-    void incrementUsedCount_ShouldUpdateUsedCount() {
+    void incrementUsedCount_ShouldDelegateToAtomicUpdate() {
         var shortUrl = "short.ly/abc123";
-        var dto = new ShortUrlDto(shortUrl, "https://example.com", 1, 5);
-
-        when(repository.findByShortUrl(shortUrl)).thenReturn(Optional.of(dto));
-        when(repository.save(dto)).thenReturn(dto);
 
         shortUrlPersistenceService.incrementUsedCount(shortUrl);
 
-        assertEquals(6, dto.getUsedCount());
-        verify(repository).findByShortUrl(shortUrl);
-        verify(repository).save(dto);
+        verify(repository).incrementUsedCount(shortUrl);
+        verify(repository, never()).findByShortUrl(shortUrl);
+        verify(repository, never()).save(any());
     }
 
     @Test
-    void incrementUsedCount_ShouldDoNothingIfNotFound() {
-        var shortUrl = "short.ly/abc123";
+    void addUsedCounts_ShouldCallRepository() {
+        var increments = Map.of("short.ly/abc123", 3L, "short.ly/def456", 1L);
 
-        when(repository.findByShortUrl(shortUrl)).thenReturn(Optional.empty());
+        shortUrlPersistenceService.addUsedCounts(increments);
 
-        shortUrlPersistenceService.incrementUsedCount(shortUrl);
+        verify(repository).addUsedCounts(increments);
+        verify(repository, never()).promoteAll(any(), any());
+    }
 
-        verify(repository).findByShortUrl(shortUrl);
-        verify(repository, never()).save(any());
+    @Test
+    void addUsedCounts_ShouldPromoteArchivedLinks_AndApplyTheirClicks() {
+        var increments = Map.of("short.ly/abc123", 3L, "short.ly/archived", 2L, "short.ly/deleted", 1L);
+        when(repository.addUsedCounts(increments)).thenReturn(List.of("short.ly/archived", "short.ly/deleted"));
+        when(repository.promoteAll(List.of("short.ly/archived", "short.ly/deleted"), List.of()))
+                .thenReturn(List.of("short.ly/archived"));
+
+        shortUrlPersistenceService.addUsedCounts(increments);
+
+        verify(repository).addUsedCounts(Map.of("short.ly/archived", 2L));
     }
 
     @Test
@@ -7,10 +7,15 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.jdbc.core.JdbcTemplate;
 
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -19,6 +24,9 @@ class ShortUrlRepositoryAdapterTest {
     @Mock
     private JpaShortUrlRepository jpaRepository;
 
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
     private ShortUrlRepositoryAdapter shortUrlRepositoryAdapter;
 
     private AutoCloseable closeable;
@@ -27,7 +35,7 @@ class ShortUrlRepositoryAdapterTest {
     @BeforeEach
     void setUp() {
         closeable = MockitoAnnotations.openMocks(this);
-        shortUrlRepositoryAdapter = new ShortUrlRepositoryAdapter(jpaRepository);
+        shortUrlRepositoryAdapter = new ShortUrlRepositoryAdapter(jpaRepository, jdbcTemplate);
     }
 
     @AfterEach
@@ -113,6 +121,27 @@ class ShortUrlRepositoryAdapterTest {
         verify(jpaRepository).incrementUsedCount(shortUrl);
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void addUsedCounts_ShouldIssueOneBatchedUpdate_AndReturnShortUrlsWithoutRow() {
+        var increments = new LinkedHashMap<String, Long>();
+        increments.put("short.ly/abc123", 3L);
+        increments.put("short.ly/def456", 1L);
+        var sql = "UPDATE short_urls SET used_count = used_count + ?, version = version + 1, last_used_at = now() "
+                + "WHERE short_url = ?";
+        when(jdbcTemplate.batchUpdate(eq(sql), anyList())).thenReturn(new int[]{1, 0});
+
+        var missed = shortUrlRepositoryAdapter.addUsedCounts(increments);
+
+        assertEquals(List.of("short.ly/def456"), missed);
+        ArgumentCaptor<List<Object[]>> argsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(eq(sql), argsCaptor.capture());
+        var batchArgs = argsCaptor.getValue();
+        assertEquals(2, batchArgs.size());
+        assertArrayEquals(new Object[]{3L, "short.ly/abc123"}, batchArgs.get(0));
+        assertArrayEquals(new Object[]{1L, "short.ly/def456"}, batchArgs.get(1));
+    }
+
     @Test
     void findByShortUrl_ShouldReturnMappedDto_WhenEntityPresent() {
         var entity = new ShortUrlEntity();